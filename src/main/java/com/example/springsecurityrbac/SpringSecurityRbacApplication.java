@@ -2,13 +2,42 @@ package com.example.springsecurityrbac;
 
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.actuate.autoconfigure.metrics.web.tomcat.TomcatMetricsAutoConfiguration;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.Collections;
 
 @SpringBootApplication
 @MapperScan("com.example.springsecurityrbac.dao")
+@EnableScheduling
 public class SpringSecurityRbacApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(SpringSecurityRbacApplication.class, args);
+        application(args).run(args);
+    }
+
+    /**
+     * Boot 2.0 creates a servlet environment before it binds {@code spring.main.web-application-type},
+     * which keeps the servlet-only conditions matching in reactive mode. The type is therefore read
+     * from the command line, system properties and environment variables up front.
+     * <p>
+     * The reactive Tomcat metrics customizer is a lambda that Boot 2.0 also applies to the Netty
+     * factory; it only gets away with that below JDK 9, so it is left out on Netty.
+     */
+    public static SpringApplication application(String... args) {
+        SpringApplication application = new SpringApplication(SpringSecurityRbacApplication.class);
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        String type = environment.getProperty("spring.main.web-application-type");
+        if (type != null) application.setWebApplicationType(WebApplicationType.valueOf(type.trim().toUpperCase()));
+        if (application.getWebApplicationType() == WebApplicationType.REACTIVE) {
+            application.setDefaultProperties(Collections.singletonMap("spring.autoconfigure.exclude",
+                    TomcatMetricsAutoConfiguration.class.getName()));
+        }
+        return application;
     }
 }
@@ -0,0 +1,48 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.service.PermissionAuthorities;
+import com.example.springsecurityrbac.service.PermissionRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.PermissionEvaluator;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+
+/**
+ * {@code hasPermission(target, permission)} backed by {@link PermissionAuthorities}:
+ * the permission (code or registry index) resolves to an int and the check is one bit test.
+ * The target is not evaluated, permissions are not object-scoped. An index the registry does
+ * not know is denied.
+ */
+@Component
+public class BitPermissionEvaluator implements PermissionEvaluator {
+    @Autowired
+    private PermissionRegistry permissionRegistry;
+
+    @Override
+    public boolean hasPermission(Authentication authentication, Object targetDomainObject, Object permission) {
+        if (authentication == null || permission == null) return false;
+        PermissionAuthorities authorities = PermissionAuthorities.of(authentication);
+        if (authorities != null) {
+            int index = permission instanceof Integer ? (Integer) permission : permissionRegistry.indexOf(permission.toString());
+            return authorities.has(index);
+        }
+        String code = permission.toString();
+        if (permission instanceof Integer) {
+            GrantedAuthority authority = permissionRegistry.authority((Integer) permission);
+            if (authority == null) return false;
+            code = authority.getAuthority();
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (code.equals(authority.getAuthority())) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasPermission(Authentication authentication, Serializable targetId, String targetType, Object permission) {
+        return hasPermission(authentication, null, permission);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.springsecurityrbac.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link DelegatingPasswordEncoder} writing {@code {bcrypt}} hashes, with adaptive hashing
+ * run on a fixed pool of threads. A login storm queues at most {@code queueCapacity} hashes,
+ * anything beyond is rejected right away with an {@link AuthenticationServiceException}
+ * instead of holding servlet threads on the CPU. A caller waits at most {@code timeoutMillis}
+ * for its hash, which bounds the wait, not the work. Stored passwords without an id prefix are
+ * matched as plain text, so existing rows keep working until they are upgraded on login.
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+    private static final String ID = "bcrypt";
+    private static final String PREFIX = "{" + ID + "}";
+
+    private final PasswordEncoder delegate;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    public BoundedPasswordEncoder(int strength, int poolSize, int queueCapacity, long timeoutMillis) {
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(ID, new BCryptPasswordEncoder(strength));
+        encoders.put("pbkdf2", new Pbkdf2PasswordEncoder());
+        encoders.put("noop", NoOpPasswordEncoder.getInstance());
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(ID, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(NoOpPasswordEncoder.getInstance());
+        this.delegate = delegating;
+        this.strength = strength;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "password-hash-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * The highest bcrypt strength whose hash stays within {@code targetMillis} on this machine,
+     * extrapolated from a measurement at strength 8 (every step doubles the work).
+     */
+    public static int calibrate(long targetMillis) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(8);
+        probe.encode("warm-up");
+        long start = System.nanoTime();
+        int rounds = 3;
+        for (int i = 0; i < rounds; i++) {
+            probe.encode("calibrate");
+        }
+        double millis = Math.max((System.nanoTime() - start) / 1e6 / rounds, 0.01);
+        int strength = 8 + (int) Math.floor(Math.log(targetMillis / millis) / Math.log(2));
+        strength = Math.max(4, Math.min(31, strength));
+        log.info("bcrypt strength {} for a {}ms target ({}ms at strength 8)", strength, targetMillis, String.format("%.1f", millis));
+        return strength;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (!isAdaptive(encodedPassword)) return delegate.matches(rawPassword, encodedPassword);
+        return submit(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Whether a stored password should be re-encoded: anything not bcrypt, or bcrypt below
+     * the configured strength.
+     */
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || !encodedPassword.startsWith(PREFIX)) return true;
+        String hash = encodedPassword.substring(PREFIX.length());
+        if (hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(3) != '$') return true;
+        try {
+            return Integer.parseInt(hash.substring(4, 6)) < strength;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    private static boolean isAdaptive(String encodedPassword) {
+        return encodedPassword != null && (encodedPassword.startsWith(PREFIX) || encodedPassword.startsWith("{pbkdf2}"));
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new AuthenticationServiceException("password hashing is saturated, try again later");
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // drops the hash if it is still queued; bcrypt does not check for interrupts, so a
+            // hash already running finishes on its pool thread and only the caller stops waiting
+            future.cancel(true);
+            throw new AuthenticationServiceException("password hashing timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new AuthenticationServiceException("password hashing failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
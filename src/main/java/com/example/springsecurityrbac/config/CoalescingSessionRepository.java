@@ -0,0 +1,297 @@
+package com.example.springsecurityrbac.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.FindByIndexNameSessionRepository;
+import org.springframework.session.Session;
+import org.springframework.session.data.redis.RedisOperationsSessionRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis session repository that writes access-time touches in batches.
+ * <p>
+ * Spring Session saves the access time of every request: the session hash, the expiration
+ * bucket, the {@code expires:} key and three TTLs, one round trip each. A save that changed
+ * nothing but the access time is kept here instead, the latest touch per session, and every
+ * {@code rbac.session.touch.window-millis} all pending touches are written with the keys and
+ * TTLs Spring Session would have written, in one pipelined round trip (after one pipelined
+ * check of the {@code expires:} keys, so that a session deleted or expired meanwhile is not
+ * recreated). A touch is written at once when less than {@code write-through-seconds} of the
+ * stored TTL is left; anything else (new session, attributes, id, timeout) is saved by the
+ * Redis repository together with the latest access time. The threshold is kept above the
+ * window, so a stored session never expires while a newer touch is pending; a session
+ * expires one timeout after its last access. Used in the servlet mode only.
+ */
+@Slf4j
+public class CoalescingSessionRepository implements FindByIndexNameSessionRepository<CoalescingSessionRepository.TouchedSession> {
+    private static final byte[] LAST_ACCESSED_TIME = "lastAccessedTime".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EMPTY = new byte[0];
+    private static final long BUCKET_GRACE_SECONDS = TimeUnit.MINUTES.toSeconds(5);
+
+    private final FindByIndexNameSessionRepository<Session> delegate;
+    private final RedisOperations<Object, Object> redis;
+    private final String namespace;
+    private final long writeThroughMillis;
+    private final Map<String, Touch> pending = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+    private final Counter writtenThrough;
+
+    @SuppressWarnings("unchecked")
+    public CoalescingSessionRepository(RedisOperationsSessionRepository repository, String namespace,
+                                       long windowMillis, int writeThroughSeconds, MeterRegistry meterRegistry) {
+        this.delegate = (FindByIndexNameSessionRepository<Session>) (FindByIndexNameSessionRepository<?>) repository;
+        this.redis = repository.getSessionRedisOperations();
+        this.namespace = namespace.trim() + ":";
+        this.writeThroughMillis = Math.max(TimeUnit.SECONDS.toMillis(writeThroughSeconds), 2 * windowMillis);
+        this.coalesced = meterRegistry == null ? null : touches(meterRegistry, "coalesced");
+        this.writtenThrough = meterRegistry == null ? null : touches(meterRegistry, "written-through");
+    }
+
+    private static Counter touches(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("rbac.session.touch")
+                .tag("result", result)
+                .description("session saves that only changed the access time")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public TouchedSession createSession() {
+        TouchedSession session = new TouchedSession(delegate.createSession());
+        session.changed = true;
+        return session;
+    }
+
+    @Override
+    public TouchedSession findById(String id) {
+        Session session = delegate.findById(id);
+        return session == null ? null : new TouchedSession(session);
+    }
+
+    @Override
+    public Map<String, TouchedSession> findByIndexNameAndIndexValue(String indexName, String indexValue) {
+        Map<String, TouchedSession> sessions = new LinkedHashMap<>();
+        delegate.findByIndexNameAndIndexValue(indexName, indexValue)
+                .forEach((id, session) -> sessions.put(id, new TouchedSession(session)));
+        return sessions;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        pending.remove(id);
+        delegate.deleteById(id);
+    }
+
+    @Override
+    public void save(TouchedSession session) {
+        Duration timeout = session.getMaxInactiveInterval();
+        if (session.changed || timeout.isNegative() || timeout.isZero()) {
+            pending.remove(session.storedId);
+            pending.remove(session.getId());
+            if (session.accessed != null) session.delegate.setLastAccessedTime(session.accessed);
+            delegate.save(session.delegate);
+            session.changed = false;
+            session.storedId = session.getId();
+            session.stored = session.getLastAccessedTime();
+            session.queued = session.accessed;
+            return;
+        }
+        if (session.accessed == null || session.accessed.equals(session.queued)) return;
+        Touch touch = new Touch(session.getId(), session.stored.toEpochMilli(), session.accessed.toEpochMilli(), timeout.getSeconds());
+        if (touch.expiresAt(touch.stored) - System.currentTimeMillis() < writeThroughMillis) {
+            pending.remove(touch.sessionId);
+            write(Collections.singletonList(touch));
+            if (writtenThrough != null) writtenThrough.increment();
+        } else {
+            pending.merge(touch.sessionId, touch, Touch::latest);
+            if (coalesced != null) coalesced.increment();
+        }
+        session.queued = session.accessed;
+    }
+
+    @Scheduled(fixedDelayString = "${rbac.session.touch.window-millis:5000}")
+    public void flush() {
+        List<Touch> touches = new ArrayList<>();
+        for (String id : pending.keySet()) {
+            Touch touch = pending.remove(id);
+            if (touch != null) touches.add(touch);
+        }
+        if (touches.isEmpty()) return;
+        try {
+            write(touches);
+        } catch (RuntimeException e) {
+            log.warn("cannot write {} session touches", touches.size(), e);
+            touches.forEach(touch -> pending.merge(touch.sessionId, touch, Touch::latest));
+        }
+    }
+
+    private void write(List<Touch> touches) {
+        List<Object> exists = redis.executePipelined((RedisCallback<Object>) connection -> {
+            // a deleted session keeps its hash for a while, only the expires: key is gone
+            for (Touch touch : touches) connection.exists(key("expires:" + touch.sessionId));
+            return null;
+        });
+        redis.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < touches.size(); i++) {
+                if (Boolean.TRUE.equals(exists.get(i))) write(connection, touches.get(i));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * The commands of {@code RedisSessionExpirationPolicy.onExpirationUpdated}, for a positive timeout.
+     */
+    @SuppressWarnings("unchecked")
+    private void write(RedisConnection connection, Touch touch) {
+        byte[] sessionKey = key(touch.sessionId);
+        byte[] expiresKey = key("expires:" + touch.sessionId);
+        byte[] bucketMember = ((RedisSerializer<Object>) redis.getValueSerializer()).serialize("expires:" + touch.sessionId);
+        long bucket = roundUpToNextMinute(touch.expiresAt(touch.accessed));
+        long storedBucket = roundUpToNextMinute(touch.expiresAt(touch.stored));
+        long bucketSeconds = touch.timeoutSeconds + BUCKET_GRACE_SECONDS;
+
+        connection.hSet(sessionKey, LAST_ACCESSED_TIME, ((RedisSerializer<Object>) redis.getHashValueSerializer()).serialize(touch.accessed));
+        if (storedBucket != bucket) connection.sRem(bucketKey(storedBucket), bucketMember);
+        connection.sAdd(bucketKey(bucket), bucketMember);
+        connection.expire(bucketKey(bucket), bucketSeconds);
+        connection.append(expiresKey, EMPTY);
+        connection.expire(expiresKey, touch.timeoutSeconds);
+        connection.expire(sessionKey, bucketSeconds);
+    }
+
+    private byte[] key(String sessionKey) {
+        return (namespace + "sessions:" + sessionKey).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] bucketKey(long expiration) {
+        return (namespace + "expirations:" + expiration).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long roundUpToNextMinute(long millis) {
+        long minute = TimeUnit.MINUTES.toMillis(1);
+        return (millis / minute + 1) * minute;
+    }
+
+    private static final class Touch {
+        final String sessionId;
+        final long stored;
+        final long accessed;
+        final long timeoutSeconds;
+
+        Touch(String sessionId, long stored, long accessed, long timeoutSeconds) {
+            this.sessionId = sessionId;
+            this.stored = stored;
+            this.accessed = accessed;
+            this.timeoutSeconds = timeoutSeconds;
+        }
+
+        long expiresAt(long accessTime) {
+            return accessTime + TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        }
+
+        static Touch latest(Touch a, Touch b) {
+            Touch later = a.accessed >= b.accessed ? a : b;
+            return new Touch(later.sessionId, Math.max(a.stored, b.stored), later.accessed, later.timeoutSeconds);
+        }
+    }
+
+    /**
+     * A session of the Redis repository whose access time is held back until {@link #save} decides.
+     */
+    public static final class TouchedSession implements Session {
+        private final Session delegate;
+        private String storedId;
+        private Instant stored;
+        private Instant accessed;
+        private Instant queued;
+        private boolean changed;
+
+        TouchedSession(Session delegate) {
+            this.delegate = delegate;
+            this.storedId = delegate.getId();
+            this.stored = delegate.getLastAccessedTime();
+        }
+
+        @Override
+        public String getId() {
+            return delegate.getId();
+        }
+
+        @Override
+        public String changeSessionId() {
+            changed = true;
+            return delegate.changeSessionId();
+        }
+
+        @Override
+        public <T> T getAttribute(String attributeName) {
+            return delegate.getAttribute(attributeName);
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            return delegate.getAttributeNames();
+        }
+
+        @Override
+        public void setAttribute(String attributeName, Object attributeValue) {
+            changed = true;
+            delegate.setAttribute(attributeName, attributeValue);
+        }
+
+        @Override
+        public void removeAttribute(String attributeName) {
+            changed = true;
+            delegate.removeAttribute(attributeName);
+        }
+
+        @Override
+        public Instant getCreationTime() {
+            return delegate.getCreationTime();
+        }
+
+        @Override
+        public void setLastAccessedTime(Instant lastAccessedTime) {
+            accessed = lastAccessedTime;
+        }
+
+        @Override
+        public Instant getLastAccessedTime() {
+            return accessed != null ? accessed : delegate.getLastAccessedTime();
+        }
+
+        @Override
+        public void setMaxInactiveInterval(Duration interval) {
+            changed = true;
+            delegate.setMaxInactiveInterval(interval);
+        }
+
+        @Override
+        public Duration getMaxInactiveInterval() {
+            return delegate.getMaxInactiveInterval();
+        }
+
+        @Override
+        public boolean isExpired() {
+            Duration timeout = getMaxInactiveInterval();
+            return !timeout.isNegative() && !Instant.now().minus(timeout).isBefore(getLastAccessedTime());
+        }
+    }
+}
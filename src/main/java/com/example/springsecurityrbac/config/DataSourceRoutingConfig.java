@@ -0,0 +1,98 @@
+package com.example.springsecurityrbac.config;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.alibaba.druid.spring.boot.autoconfigure.DruidDataSourceBuilder;
+import com.example.springsecurityrbac.service.UserDetailsCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.Advisor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read replicas, {@code rbac.datasource.routing.enabled=true}. Boot's Druid data source backs
+ * off for the beans here, so the primary is built the way it would have been, from
+ * {@code spring.datasource.*}. Replica {@code n} gets the primary's credentials and
+ * {@code spring.datasource.druid.*} pool settings, overridden by anything set under
+ * {@code rbac.datasource.replicas[n]}, which needs at least a {@code url}.
+ * <p>
+ * {@code rbac.datasource.routing.balance} is {@code round-robin} or {@code least-active}.
+ * Reads stay on the primary for {@code read-your-writes-millis} after a commit on this node,
+ * and after writes on other nodes, which are seen through the user cache invalidations they send.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "rbac.datasource.routing", name = "enabled")
+public class DataSourceRoutingConfig {
+    @Autowired
+    private Environment environment;
+    @Autowired
+    @Qualifier("rbacMessageListenerContainer")
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Value("${rbac.datasource.routing.balance:round-robin}")
+    private String balance;
+    @Value("${rbac.datasource.routing.read-your-writes-millis:1000}")
+    private long readYourWritesMillis;
+
+    @Bean(initMethod = "init")
+    @ConfigurationProperties("spring.datasource.druid")
+    public DruidDataSource primaryDataSource() {
+        return DruidDataSourceBuilder.create().build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(DruidDataSource primaryDataSource,
+                                                                 DataSourceProperties properties) throws SQLException {
+        if (!"round-robin".equals(balance) && !"least-active".equals(balance)) {
+            throw new IllegalStateException("rbac.datasource.routing.balance must be round-robin or least-active, not " + balance);
+        }
+        Binder binder = Binder.get(environment);
+        Map<String, DruidDataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; binder.bind("rbac.datasource.replicas[" + i + "].url", String.class).isBound(); i++) {
+            DruidDataSource replica = new DruidDataSource();
+            replica.setUsername(properties.determineUsername());
+            replica.setPassword(properties.determinePassword());
+            binder.bind("spring.datasource.druid", Bindable.ofInstance(replica));
+            binder.bind("rbac.datasource.replicas[" + i + "]", Bindable.ofInstance(replica));
+            replica.setName("replica-" + i);
+            replicas.put(replica.getName(), replica);
+            replica.init();
+        }
+        if (replicas.isEmpty()) log.warn("data source routing without rbac.datasource.replicas[0].url: every read goes to the primary");
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primaryDataSource, replicas,
+                "least-active".equals(balance), readYourWritesMillis);
+        listenerContainer.addMessageListener((message, pattern) -> routing.wrote(), new ChannelTopic(UserDetailsCache.CHANNEL));
+        return routing;
+    }
+
+    @Bean
+    @Primary
+    public LazyConnectionDataSourceProxy dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor replicaReadAdvisor() {
+        return new ReplicaReadInterceptor().advisor();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.springsecurityrbac.config;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection pool meters of every Druid data source, tagged with the bean name, and of the
+ * replicas of a {@link ReadWriteRoutingDataSource}, tagged with the replica name.
+ * Druid already keeps these counters, the meters only read them on scrape.
+ */
+@Component
+public class DruidPoolMetrics implements MeterBinder {
+    @Autowired
+    private Map<String, DataSource> dataSources;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        dataSources.forEach((name, dataSource) -> {
+            if (dataSource instanceof DruidDataSource) bind(registry, name, (DruidDataSource) dataSource);
+            if (dataSource instanceof ReadWriteRoutingDataSource) {
+                ((ReadWriteRoutingDataSource) dataSource).getReplicas().forEach((replica, pool) -> bind(registry, replica, pool));
+            }
+        });
+    }
+
+    private void bind(MeterRegistry registry, String name, DruidDataSource pool) {
+        Gauge.builder("druid.connections.active", pool, DruidDataSource::getActiveCount)
+                .tag("pool", name).description("connections borrowed from the pool").register(registry);
+        Gauge.builder("druid.connections.idle", pool, DruidDataSource::getPoolingCount)
+                .tag("pool", name).description("connections idle in the pool").register(registry);
+        Gauge.builder("druid.connections.max", pool, DruidDataSource::getMaxActive)
+                .tag("pool", name).register(registry);
+        Gauge.builder("druid.connections.pending", pool, DruidDataSource::getNotEmptyWaitThreadCount)
+                .tag("pool", name).description("threads waiting for a connection").register(registry);
+        FunctionCounter.builder("druid.connections.wait", pool, DruidDataSource::getNotEmptyWaitCount)
+                .tag("pool", name).description("borrows that had to wait for a connection").register(registry);
+        FunctionCounter.builder("druid.connections.wait.time", pool,
+                p -> p.getNotEmptyWaitNanos() / (double) TimeUnit.SECONDS.toNanos(1))
+                .tag("pool", name).baseUnit("seconds").register(registry);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.service.LoginThrottle;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers a throttled login form post with 429 and {@code Retry-After} before
+ * {@link UsernamePasswordAuthenticationFilter} gets to load the user.
+ */
+public class LoginThrottleFilter extends OncePerRequestFilter {
+    private final LoginThrottle loginThrottle;
+    private final RequestMatcher loginRequest = new AntPathRequestMatcher("/login", "POST");
+
+    public LoginThrottleFilter(LoginThrottle loginThrottle) {
+        this.loginThrottle = loginThrottle;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (loginRequest.matches(request)) {
+            String username = request.getParameter(UsernamePasswordAuthenticationFilter.SPRING_SECURITY_FORM_USERNAME_KEY);
+            long retryAfter = loginThrottle.attempt(username, request.getRemoteAddr());
+            if (retryAfter > 0) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(TimeUnit.MILLISECONDS.toSeconds(retryAfter + 999)));
+                response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many login attempts");
+                return;
+            }
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -1,31 +1,109 @@
 package com.example.springsecurityrbac.config;
 
+import com.example.springsecurityrbac.service.LoginThrottle;
+import com.example.springsecurityrbac.service.RbacVersionService;
+import com.example.springsecurityrbac.service.SecurityUserService;
+import com.example.springsecurityrbac.service.UrlPermissionService;
+import org.springframework.aop.Advisor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Role;
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.vote.AbstractAccessDecisionManager;
+import org.springframework.security.access.vote.AffirmativeBased;
+import org.springframework.security.config.annotation.ObjectPostProcessor;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
-import org.springframework.security.crypto.password.NoOpPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.access.intercept.FilterSecurityInterceptor;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.context.SecurityContextPersistenceFilter;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.csrf.CsrfFilter;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @EnableWebSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @EnableGlobalMethodSecurity(prePostEnabled = true)
 public class MyWebSecurityConfig extends WebSecurityConfigurerAdapter {
+    @Autowired
+    private SecurityUserService securityUserService;
+    @Autowired(required = false)
+    private RbacVersionService rbacVersionService;
+    @Autowired(required = false)
+    private UrlPermissionService urlPermissionService;
+    @Autowired(required = false)
+    private SignedTokenSecurityContextRepository signedTokenRepository;
+    @Autowired(required = false)
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Override
+    protected void configure(AuthenticationManagerBuilder auth) {
+        PasswordUpgradingAuthenticationProvider provider =
+                new PasswordUpgradingAuthenticationProvider(passwordEncoder, securityUserService);
+        provider.setUserDetailsService(securityUserService);
+        auth.authenticationProvider(provider);
+    }
 
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http
                 .authorizeRequests()
+                .antMatchers("/actuator/health").permitAll()
+                .antMatchers("/actuator/**").authenticated()
+                .withObjectPostProcessor(new ObjectPostProcessor<FilterSecurityInterceptor>() {
+                    @Override
+                    public <O extends FilterSecurityInterceptor> O postProcess(O interceptor) {
+                        if (urlPermissionService != null) addUrlPermissions(interceptor);
+                        return interceptor;
+                    }
+                })
                 .and()
                 .formLogin()
                 .loginPage("/login").failureForwardUrl("/login-error")
 //                .successForwardUrl("/index")
                 .permitAll();
+        if (rbacVersionService != null) {
+            http.addFilterAfter(new PermissionVersionFilter(rbacVersionService, securityUserService),
+                    SecurityContextPersistenceFilter.class);
+        }
+        if (loginThrottle != null) {
+            http.addFilterBefore(new LoginThrottleFilter(loginThrottle), UsernamePasswordAuthenticationFilter.class);
+        }
+        if (signedTokenRepository != null) {
+            http
+                    .securityContext().securityContextRepository(signedTokenRepository)
+                    .and()
+                    .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                    .and()
+                    .csrf().csrfTokenRepository(CookieCsrfTokenRepository.withHttpOnlyFalse())
+                    .requireCsrfProtectionMatcher(request -> CsrfFilter.DEFAULT_CSRF_MATCHER.matches(request)
+                            && !SignedTokenSecurityContextRepository.hasBearerToken(request));
+        }
     }
 
-    @Bean
-    public PasswordEncoder passwordEncoder(){
-        return NoOpPasswordEncoder.getInstance();
+    private void addUrlPermissions(FilterSecurityInterceptor interceptor) {
+        interceptor.setSecurityMetadataSource(
+                new UrlPermissionMetadataSource(urlPermissionService, interceptor.getSecurityMetadataSource()));
+        List<AccessDecisionVoter<?>> voters =
+                new ArrayList<>(((AbstractAccessDecisionManager) interceptor.getAccessDecisionManager()).getDecisionVoters());
+        voters.add(new PermissionVoter());
+        interceptor.setAccessDecisionManager(new AffirmativeBased(voters));
     }
 
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor requiresPermissionAdvisor() {
+        return new RequiresPermissionInterceptor().advisor();
+    }
 }
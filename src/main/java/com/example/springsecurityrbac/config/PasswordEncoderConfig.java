@@ -0,0 +1,40 @@
+package com.example.springsecurityrbac.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Password hashing shared by the servlet and the reactive security configuration. The bcrypt
+ * strength is a fixed setting, so every node of a cluster hashes, and upgrades stored hashes,
+ * at the same cost; {@code rbac.password.calibrate=true} measures one for {@code target-millis}
+ * on this machine instead, to be pinned once known.
+ */
+@Slf4j
+@Configuration
+public class PasswordEncoderConfig {
+    @Value("${rbac.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+    @Value("${rbac.password.calibrate:false}")
+    private boolean calibrate;
+    @Value("${rbac.password.target-millis:100}")
+    private long targetMillis;
+    @Value("${rbac.password.pool-size:0}")
+    private int poolSize;
+    @Value("${rbac.password.queue-capacity:64}")
+    private int queueCapacity;
+    @Value("${rbac.password.timeout-millis:5000}")
+    private long timeoutMillis;
+
+    @Bean
+    public BoundedPasswordEncoder passwordEncoder(){
+        int strength = bcryptStrength;
+        if (calibrate) {
+            strength = BoundedPasswordEncoder.calibrate(targetMillis);
+            log.warn("bcrypt strength {} was calibrated on this node, set rbac.password.bcrypt-strength={} on every node", strength, strength);
+        }
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(strength, threads, queueCapacity, timeoutMillis);
+    }
+}
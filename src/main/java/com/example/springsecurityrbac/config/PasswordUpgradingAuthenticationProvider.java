@@ -0,0 +1,40 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.service.UserDetailsPasswordService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * {@link DaoAuthenticationProvider} that re-encodes the password of a successful login
+ * when {@link BoundedPasswordEncoder#upgradeEncoding(String)} asks for it. When the hashing
+ * pool is saturated the login still succeeds and the upgrade waits for the next one.
+ */
+@Slf4j
+public class PasswordUpgradingAuthenticationProvider extends DaoAuthenticationProvider {
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final UserDetailsPasswordService userDetailsPasswordService;
+
+    public PasswordUpgradingAuthenticationProvider(BoundedPasswordEncoder passwordEncoder,
+                                                   UserDetailsPasswordService userDetailsPasswordService) {
+        this.passwordEncoder = passwordEncoder;
+        this.userDetailsPasswordService = userDetailsPasswordService;
+        setPasswordEncoder(passwordEncoder);
+    }
+
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication, UserDetails user) {
+        if (authentication.getCredentials() != null && passwordEncoder.upgradeEncoding(user.getPassword())) {
+            try {
+                String encoded = passwordEncoder.encode(authentication.getCredentials().toString());
+                user = userDetailsPasswordService.updatePassword(user, encoded);
+                log.debug("upgraded password encoding of {}", user.getUsername());
+            } catch (AuthenticationServiceException e) {
+                log.debug("password upgrade of {} postponed: {}", user.getUsername(), e.getMessage());
+            }
+        }
+        return super.createSuccessAuthentication(user, authentication, user);
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.springsecurityrbac.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Segment trie over Ant-style URL patterns. A segment is a literal, {@code *} or
+ * {@code {name}} (any one segment), and a trailing {@code **} matches the rest of the path,
+ * including nothing. Lookup walks the path once, keeping the trie nodes the path so far
+ * matches, so the cost depends on the path depth and on how many patterns share a prefix,
+ * never on backtracking.
+ * <p>
+ * Of several matching patterns the most specific wins, in the order of
+ * {@link org.springframework.util.AntPathMatcher#getPatternComparator}: a pattern without
+ * {@code **} beats one with it, then fewer wildcards ({@code **} counting twice), then the
+ * longer pattern, then fewer {@code *}. Ties go to the pattern added first. {@code *} and
+ * {@code {name}} are the same segment to the trie, patterns that differ only there share
+ * their values and the precedence of the first one added.
+ * <p>
+ * Values registered with an HTTP method take precedence over method-less ones on the same
+ * pattern, never over a more specific pattern. The trie is not modified after
+ * {@link Builder#build()}.
+ */
+public final class PathTrie<T> {
+    private final Node<T> root;
+    private final int size;
+
+    private PathTrie(Node<T> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Values of the most specific pattern matching the path, {@code null} when none does.
+     */
+    public List<T> match(String method, String path) {
+        String[] segments = segments(path);
+        List<Node<T>> nodes = Collections.singletonList(root);
+        Rules<T> rest = null;
+        for (int depth = 0; ; depth++) {
+            for (Node<T> node : nodes) rest = Rules.moreSpecific(rest, node.rest, method);
+            if (depth == segments.length) break;
+            List<Node<T>> next = new ArrayList<>(nodes.size() + 1);
+            for (Node<T> node : nodes) {
+                Node<T> literal = node.literals.get(segments[depth]);
+                if (literal != null) next.add(literal);
+                if (node.wildcard != null) next.add(node.wildcard);
+            }
+            if (next.isEmpty()) return Rules.get(rest, method);
+            nodes = next;
+        }
+        Rules<T> exact = null;
+        for (Node<T> node : nodes) exact = Rules.moreSpecific(exact, node.exact, method);
+        return Rules.get(exact != null ? exact : rest, method);
+    }
+
+    static String[] segments(String path) {
+        List<String> segments = new ArrayList<>(8);
+        int start = 0;
+        int length = path.length();
+        while (start < length) {
+            int end = path.indexOf('/', start);
+            if (end < 0) end = length;
+            if (end > start) segments.add(path.substring(start, end));
+            start = end + 1;
+        }
+        return segments.toArray(new String[0]);
+    }
+
+    private static final class Node<T> {
+        Map<String, Node<T>> literals = Collections.emptyMap();
+        Node<T> wildcard;
+        Rules<T> exact;
+        Rules<T> rest;
+
+        Node<T> literal(String segment) {
+            if (literals.isEmpty()) literals = new HashMap<>();
+            return literals.computeIfAbsent(segment, s -> new Node<>());
+        }
+    }
+
+    private static final class Rules<T> {
+        final Map<String, List<T>> byMethod = new HashMap<>(4);
+        List<T> any;
+        final int wildcards;
+        final int length;
+        final int singleWildcards;
+        final int order;
+
+        Rules(int wildcards, int length, int singleWildcards, int order) {
+            this.wildcards = wildcards;
+            this.length = length;
+            this.singleWildcards = singleWildcards;
+            this.order = order;
+        }
+
+        static <T> List<T> get(Rules<T> rules, String method) {
+            if (rules == null) return null;
+            List<T> values = method == null ? null : rules.byMethod.get(method);
+            return values != null ? values : rules.any;
+        }
+
+        /**
+         * The more specific of the two among those with values for the method. Both are
+         * either with or without {@code **}, which is decided by the caller.
+         */
+        static <T> Rules<T> moreSpecific(Rules<T> current, Rules<T> candidate, String method) {
+            if (get(candidate, method) == null) return current;
+            if (current == null) return candidate;
+            int compare = current.wildcards != candidate.wildcards ? candidate.wildcards - current.wildcards
+                    : current.length != candidate.length ? current.length - candidate.length
+                    : current.singleWildcards != candidate.singleWildcards ? candidate.singleWildcards - current.singleWildcards
+                    : candidate.order - current.order;
+            return compare > 0 ? current : candidate;
+        }
+
+        void add(String method, T value) {
+            List<T> values = method == null ? any : byMethod.get(method);
+            if (values == null) {
+                values = new ArrayList<>(2);
+                if (method == null) any = values;
+                else byMethod.put(method, values);
+            }
+            values.add(value);
+        }
+    }
+
+    public static final class Builder<T> {
+        private final Node<T> root = new Node<>();
+        private int size;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a value under a pattern, {@code method} {@code null} for every method.
+         * Returns {@code false}, without adding, for patterns the trie cannot express:
+         * wildcards inside a segment, regex variables, or {@code **} before the last segment.
+         */
+        public boolean add(String pattern, String method, T value) {
+            String[] segments = segments(pattern);
+            for (int i = 0; i < segments.length; i++) {
+                String segment = segments[i];
+                if ("**".equals(segment) ? i != segments.length - 1 : !isWildcard(segment) && !isLiteral(segment)) {
+                    return false;
+                }
+            }
+            Node<T> node = root;
+            int wildcards = 0;
+            int length = 0;
+            int singleWildcards = 0;
+            for (String segment : segments) {
+                if ("**".equals(segment)) {
+                    if (node.rest == null) node.rest = new Rules<>(wildcards + 2, length + 3, singleWildcards, size);
+                    node.rest.add(method, value);
+                    size++;
+                    return true;
+                }
+                if (isWildcard(segment)) {
+                    if (node.wildcard == null) node.wildcard = new Node<>();
+                    node = node.wildcard;
+                    wildcards++;
+                    if ("*".equals(segment)) singleWildcards++;
+                    length += 2;
+                } else {
+                    node = node.literal(segment);
+                    length += 1 + segment.length();
+                }
+            }
+            if (node.exact == null) node.exact = new Rules<>(wildcards, length, singleWildcards, size);
+            node.exact.add(method, value);
+            size++;
+            return true;
+        }
+
+        public PathTrie<T> build() {
+            return new PathTrie<>(root, size);
+        }
+
+        private static boolean isWildcard(String segment) {
+            return "*".equals(segment)
+                    || segment.length() > 2 && segment.charAt(0) == '{' && segment.indexOf('}') == segment.length() - 1
+                    && segment.indexOf(':') < 0;
+        }
+
+        private static boolean isLiteral(String segment) {
+            return segment.indexOf('*') < 0 && segment.indexOf('?') < 0 && segment.indexOf('{') < 0;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.springsecurityrbac.config;
+
+import org.springframework.security.access.ConfigAttribute;
+
+/**
+ * A permission required by a URL rule, with its {@code PermissionRegistry} index
+ * resolved when the rules are compiled.
+ */
+public final class PermissionAttribute implements ConfigAttribute {
+    private static final long serialVersionUID = 1L;
+
+    private final String code;
+    private final int index;
+
+    public PermissionAttribute(String code, int index) {
+        this.code = code;
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String getAttribute() {
+        return code;
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.service.PermissionAuthorities;
+import com.example.springsecurityrbac.service.PermissionRegistry;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The compiled form of one {@link RequiresPermission}. Codes are turned into
+ * {@link PermissionRegistry} indexes on first use and kept, registry indexes never change;
+ * a code the registry does not know yet is looked up again on the next call.
+ */
+public final class PermissionCheck {
+    private final String[] allOf;
+    private final String[] anyOf;
+    private volatile Resolved resolved;
+
+    private PermissionCheck(String[] allOf, String[] anyOf) {
+        this.allOf = allOf;
+        this.anyOf = anyOf;
+    }
+
+    public static PermissionCheck of(RequiresPermission annotation) {
+        Set<String> allOf = new LinkedHashSet<>(Arrays.asList(annotation.value()));
+        allOf.addAll(Arrays.asList(annotation.allOf()));
+        return new PermissionCheck(allOf.toArray(new String[0]),
+                new LinkedHashSet<>(Arrays.asList(annotation.anyOf())).toArray(new String[0]));
+    }
+
+    public boolean test(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) return false;
+        PermissionAuthorities authorities = PermissionAuthorities.of(authentication);
+        if (authorities == null) return testCodes(authentication.getAuthorities());
+        Resolved r = resolve();
+        return authorities.hasAll(r.allOf) && (r.anyOf.length == 0 || authorities.hasAny(r.anyOf));
+    }
+
+    private Resolved resolve() {
+        Resolved r = resolved;
+        if (r != null) return r;
+        PermissionRegistry registry = PermissionRegistry.current();
+        int[] all = indexes(registry, allOf);
+        int[] any = indexes(registry, anyOf);
+        r = new Resolved(all, any);
+        if (registry != null && Arrays.stream(all).noneMatch(i -> i < 0) && Arrays.stream(any).noneMatch(i -> i < 0)) {
+            resolved = r;
+        }
+        return r;
+    }
+
+    private static int[] indexes(PermissionRegistry registry, String[] codes) {
+        int[] indexes = new int[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            indexes[i] = registry == null ? -1 : registry.indexOf(codes[i]);
+        }
+        return indexes;
+    }
+
+    private boolean testCodes(Collection<? extends GrantedAuthority> granted) {
+        Set<String> codes = new LinkedHashSet<>();
+        for (GrantedAuthority authority : granted) {
+            codes.add(authority.getAuthority());
+        }
+        if (!codes.containsAll(Arrays.asList(allOf))) return false;
+        return anyOf.length == 0 || Arrays.stream(anyOf).anyMatch(codes::contains);
+    }
+
+    private static final class Resolved {
+        final int[] allOf;
+        final int[] anyOf;
+
+        Resolved(int[] allOf, int[] anyOf) {
+            this.allOf = allOf;
+            this.anyOf = anyOf;
+        }
+    }
+}
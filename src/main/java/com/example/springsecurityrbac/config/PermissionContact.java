@@ -2,4 +2,6 @@ package com.example.springsecurityrbac.config;
 
 public interface PermissionContact {
     String USER_VIEW = "USER_VIEW";
+    String ROLE_ASSIGN = "ROLE_ASSIGN";
+    String RBAC_TRANSFER = "RBAC_TRANSFER";
 }
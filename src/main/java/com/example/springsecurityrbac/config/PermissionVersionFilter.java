@@ -0,0 +1,73 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.model.User;
+import com.example.springsecurityrbac.service.RbacVersionService;
+import com.example.springsecurityrbac.service.VersionStamp;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Reloads the authorities of a logged-in user when the RBAC version stamped on the
+ * session principal is behind the current one. The new authentication replaces the old
+ * one in the security context and is saved back to the session with it.
+ */
+@Slf4j
+public class PermissionVersionFilter extends OncePerRequestFilter {
+    private final RbacVersionService rbacVersionService;
+    private final UserDetailsService userDetailsService;
+
+    public PermissionVersionFilter(RbacVersionService rbacVersionService, UserDetailsService userDetailsService) {
+        this.rbacVersionService = rbacVersionService;
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        refresh(SecurityContextHolder.getContext(), rbacVersionService, userDetailsService);
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * Replaces a stale authentication in the context, answers whether it did. Blocks on the
+     * version lookup and on the reload.
+     */
+    static boolean refresh(SecurityContext context, RbacVersionService rbacVersionService, UserDetailsService userDetailsService) {
+        Authentication authentication = context.getAuthentication();
+        if (!(authentication instanceof UsernamePasswordAuthenticationToken) || !(authentication.getPrincipal() instanceof User)) {
+            return false;
+        }
+        User user = (User) authentication.getPrincipal();
+        VersionStamp current = rbacVersionService.current(user.getId());
+        if (current.getGlobal() == user.getRbacVersion() && current.getUser() == user.getUserVersion()) return false;
+        context.setAuthentication(reload(user, authentication, userDetailsService));
+        return true;
+    }
+
+    private static Authentication reload(User user, Authentication authentication, UserDetailsService userDetailsService) {
+        try {
+            UserDetails fresh = userDetailsService.loadUserByUsername(user.getUsername());
+            if (!fresh.isAccountNonLocked() || !fresh.isEnabled()) return null;
+            UsernamePasswordAuthenticationToken token =
+                    new UsernamePasswordAuthenticationToken(fresh, authentication.getCredentials(), fresh.getAuthorities());
+            token.setDetails(authentication.getDetails());
+            log.debug("reloaded authorities of {}", user.getUsername());
+            return token;
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.service.RbacVersionService;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.web.server.context.ServerSecurityContextRepository;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * {@link PermissionVersionFilter} for WebFlux. The version lookup and the reload run on the
+ * blocking scheduler; a replaced authentication is written back to the web session, the
+ * context itself is shared with the rest of the chain and already holds it.
+ */
+public class PermissionVersionWebFilter implements WebFilter {
+    private final RbacVersionService rbacVersionService;
+    private final UserDetailsService userDetailsService;
+    private final ServerSecurityContextRepository securityContextRepository;
+    private final Scheduler scheduler;
+
+    public PermissionVersionWebFilter(RbacVersionService rbacVersionService, UserDetailsService userDetailsService,
+                                      ServerSecurityContextRepository securityContextRepository, Scheduler scheduler) {
+        this.rbacVersionService = rbacVersionService;
+        this.userDetailsService = userDetailsService;
+        this.securityContextRepository = securityContextRepository;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return ReactiveSecurityContextHolder.getContext()
+                .filter(context -> context.getAuthentication() != null)
+                .flatMap(context -> Mono.fromCallable(() -> PermissionVersionFilter.refresh(context, rbacVersionService, userDetailsService))
+                        .subscribeOn(scheduler)
+                        .filter(Boolean::booleanValue)
+                        .flatMap(refreshed -> securityContextRepository.save(exchange, context)))
+                .then(Mono.defer(() -> chain.filter(exchange)));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.service.PermissionAuthorities;
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/**
+ * Votes on {@link PermissionAttribute}s: granted when the user holds any of them,
+ * abstains when there are none.
+ */
+public class PermissionVoter implements AccessDecisionVoter<Object> {
+
+    @Override
+    public boolean supports(ConfigAttribute attribute) {
+        return attribute instanceof PermissionAttribute;
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return true;
+    }
+
+    @Override
+    public int vote(Authentication authentication, Object object, Collection<ConfigAttribute> attributes) {
+        if (authentication == null) return ACCESS_DENIED;
+        PermissionAuthorities authorities = PermissionAuthorities.of(authentication);
+        int result = ACCESS_ABSTAIN;
+        for (ConfigAttribute attribute : attributes) {
+            if (!(attribute instanceof PermissionAttribute)) continue;
+            result = ACCESS_DENIED;
+            PermissionAttribute permission = (PermissionAttribute) attribute;
+            if (authorities != null ? authorities.has(permission.getIndex())
+                    : hasCode(authentication.getAuthorities(), permission.getAttribute())) {
+                return ACCESS_GRANTED;
+            }
+        }
+        return result;
+    }
+
+    private static boolean hasCode(Collection<? extends GrantedAuthority> authorities, String code) {
+        for (GrantedAuthority authority : authorities) {
+            if (code.equals(authority.getAuthority())) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.model.User;
+import com.example.springsecurityrbac.service.PermissionAuthorities;
+import com.example.springsecurityrbac.service.PermissionRegistry;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Binary form of a {@link User} principal without its password: record version, id,
+ * username, locked flag, RBAC and user version stamps and the permission ids as ascending
+ * varint deltas. Permission ids, unlike registry indexes, mean the same on every node.
+ */
+final class PrincipalRecord {
+    private static final int VERSION = 1;
+
+    private PrincipalRecord() {
+    }
+
+    /**
+     * Whether the authorities of the user can be written as permission ids.
+     */
+    static boolean supports(User user) {
+        Collection<? extends GrantedAuthority> authorities = user.getAuthorities();
+        return authorities == null || authorities instanceof PermissionAuthorities;
+    }
+
+    static void write(DataOutputStream out, User user, PermissionRegistry permissionRegistry) throws IOException {
+        out.writeByte(VERSION);
+        out.writeInt(user.getId());
+        out.writeUTF(user.getUsername());
+        out.writeBoolean(Boolean.TRUE.equals(user.getLocked()));
+        out.writeLong(user.getRbacVersion());
+        out.writeLong(user.getUserVersion());
+        int[] ids = permissionIds((PermissionAuthorities) user.getAuthorities(), permissionRegistry);
+        writeVarInt(out, ids.length);
+        int previous = 0;
+        for (int id : ids) {
+            writeVarInt(out, id - previous);
+            previous = id;
+        }
+    }
+
+    static User read(DataInputStream in, PermissionRegistry permissionRegistry) throws IOException {
+        int recordVersion = in.readUnsignedByte();
+        if (recordVersion != VERSION) {
+            throw new IOException("unknown principal record version " + recordVersion);
+        }
+        User user = new User();
+        user.setId(in.readInt());
+        user.setUsername(in.readUTF());
+        user.setLocked(in.readBoolean());
+        user.setRbacVersion(in.readLong());
+        user.setUserVersion(in.readLong());
+        int count = readVarInt(in);
+        if (count > 0) {
+            PermissionAuthorities.Builder authorities = PermissionAuthorities.builder(permissionRegistry);
+            int id = 0;
+            for (int i = 0; i < count; i++) {
+                id += readVarInt(in);
+                authorities.add(permissionRegistry.resolveId(id));
+            }
+            user.setAuthorities(authorities.build());
+        }
+        return user;
+    }
+
+    private static int[] permissionIds(PermissionAuthorities authorities, PermissionRegistry permissionRegistry) {
+        if (authorities == null) return new int[0];
+        return Arrays.stream(authorities.indexes()).map(permissionRegistry::permissionId).sorted().toArray();
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("malformed varint");
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.service.UrlPermissionService;
+import org.springframework.core.MethodClassKey;
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.ReactiveAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The rules of {@link MyWebSecurityConfig} for WebFlux: a request matching a
+ * {@code url_permission} rule needs one of its permissions ({@link PermissionVoter}), and a
+ * handler method covered by {@link RequiresPermission} needs what the annotation asks for,
+ * checked here because there is no thread-bound security context for the method interceptor.
+ * Anything else is open, as it is in the servlet chain.
+ */
+public class RbacAuthorizationManager implements ReactiveAuthorizationManager<AuthorizationContext> {
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final UrlPermissionService urlPermissionService;
+    private final RequestMappingHandlerMapping handlerMapping;
+    private final RequiresPermissionInterceptor requiresPermission = new RequiresPermissionInterceptor();
+    private final PermissionVoter permissionVoter = new PermissionVoter();
+    private final Map<MethodClassKey, Optional<PermissionCheck>> checks = new ConcurrentHashMap<>();
+
+    /**
+     * @param urlPermissionService {@code null} when url rules are disabled
+     */
+    public RbacAuthorizationManager(UrlPermissionService urlPermissionService, RequestMappingHandlerMapping handlerMapping) {
+        this.urlPermissionService = urlPermissionService;
+        this.handlerMapping = handlerMapping;
+    }
+
+    @Override
+    public Mono<AuthorizationDecision> check(Mono<Authentication> authentication, AuthorizationContext context) {
+        ServerWebExchange exchange = context.getExchange();
+        List<ConfigAttribute> attributes = urlPermissionService == null ? null : urlPermissionService.attributesOf(
+                exchange.getRequest().getMethodValue(), exchange.getRequest().getPath().pathWithinApplication().value());
+        Mono<PermissionCheck> check = handlerMapping.getHandler(exchange)
+                .ofType(HandlerMethod.class)
+                .flatMap(handler -> Mono.justOrEmpty(checkOf(handler)));
+        return authentication
+                .filter(Authentication::isAuthenticated)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(current -> {
+                    Authentication user = current.orElse(null);
+                    if (attributes != null && permissionVoter.vote(user, exchange, attributes) != AccessDecisionVoter.ACCESS_GRANTED) {
+                        return Mono.just(DENIED);
+                    }
+                    return check.map(c -> new AuthorizationDecision(c.test(user)))
+                            .defaultIfEmpty(new AuthorizationDecision(true));
+                });
+    }
+
+    private Optional<PermissionCheck> checkOf(HandlerMethod handler) {
+        return checks.computeIfAbsent(new MethodClassKey(handler.getMethod(), handler.getBeanType()),
+                key -> Optional.ofNullable(requiresPermission.checkOf(handler.getMethod(), handler.getBeanType())));
+    }
+}
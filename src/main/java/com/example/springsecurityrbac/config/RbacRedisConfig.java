@@ -0,0 +1,31 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.service.PermissionRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+@Configuration
+public class RbacRedisConfig {
+
+    @Bean
+    public RedisMessageListenerContainer rbacMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "rbac.session.compact", name = "enabled", matchIfMissing = true)
+    public RedisSerializer<Object> springSessionDefaultRedisSerializer(PermissionRegistry permissionRegistry,
+                                                                        @Value("${rbac.session.compact.compress-threshold:512}") int compressThreshold,
+                                                                        ObjectProvider<MeterRegistry> meterRegistry) {
+        return new SessionRedisSerializer(permissionRegistry, compressThreshold, meterRegistry.getIfAvailable());
+    }
+}
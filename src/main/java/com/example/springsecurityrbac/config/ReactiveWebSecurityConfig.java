@@ -0,0 +1,157 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.service.RbacVersionService;
+import com.example.springsecurityrbac.service.SecurityUserService;
+import com.example.springsecurityrbac.service.UrlPermissionService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.RedirectServerAuthenticationFailureHandler;
+import org.springframework.security.web.server.context.ServerSecurityContextRepository;
+import org.springframework.security.web.server.context.WebSessionServerSecurityContextRepository;
+import org.springframework.session.config.annotation.web.server.EnableSpringWebSession;
+import org.springframework.session.data.redis.ReactiveRedisOperationsSessionRepository;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Security of the reactive deployment, {@code spring.main.web-application-type=reactive}:
+ * Netty and WebFlux with the rules of {@link MyWebSecurityConfig}. The mappers stay blocking,
+ * so user lookups, logins and version checks run on a fixed scheduler sized like the
+ * connection pool (or on virtual threads, {@code rbac.threads.virtual=true}) and the event loop
+ * only waits on sockets. Sessions live in Redis under the same keys and in the same format as
+ * the servlet ones. The JSON administration endpoints call the blocking services straight from
+ * the handler and are only mapped in the servlet mode.
+ * <p>
+ * The mode is chosen with {@code --spring.main.web-application-type=reactive}, or the system
+ * property or environment variable of the same name. {@code rbac.reactive.blocking-pool-size}
+ * defaults to {@code spring.datasource.druid.max-active}.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableWebFluxSecurity
+@EnableSpringWebSession
+public class ReactiveWebSecurityConfig {
+    @Autowired
+    private SecurityUserService securityUserService;
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+    @Autowired(required = false)
+    private RbacVersionService rbacVersionService;
+    @Autowired(required = false)
+    private UrlPermissionService urlPermissionService;
+
+    @Value("${rbac.reactive.blocking-pool-size:0}")
+    private int blockingPoolSize;
+    @Value("${spring.datasource.druid.max-active:8}")
+    private int maxActive;
+    @Value("${rbac.threads.virtual:false}")
+    private boolean virtualThreads;
+
+    private final ServerSecurityContextRepository securityContextRepository = new WebSessionServerSecurityContextRepository();
+
+    @Bean
+    public SecurityWebFilterChain springSecurityWebFilterChain(ServerHttpSecurity http, @Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping handlerMapping,
+                                                               ReactiveAuthenticationManager authenticationManager,
+                                                               Scheduler rbacBlockingScheduler) {
+        http
+                .authorizeExchange()
+                .pathMatchers("/actuator/health").permitAll()
+                .pathMatchers("/actuator/**").authenticated()
+                .anyExchange().access(new RbacAuthorizationManager(urlPermissionService, handlerMapping))
+                .and()
+                .securityContextRepository(securityContextRepository)
+                .formLogin()
+                .loginPage("/login")
+                .authenticationManager(authenticationManager)
+                .authenticationFailureHandler(new RedirectServerAuthenticationFailureHandler("/login-error"));
+        if (rbacVersionService != null) {
+            http.addFilterAt(new PermissionVersionWebFilter(rbacVersionService, securityUserService, securityContextRepository,
+                    rbacBlockingScheduler), SecurityWebFiltersOrder.SECURITY_CONTEXT_SERVER_WEB_EXCHANGE);
+        }
+        return http.build();
+    }
+
+    /**
+     * Logins through the same provider as the servlet chain, password upgrades included.
+     * Credentials are erased before the authentication reaches the session.
+     */
+    @Bean
+    public ReactiveAuthenticationManager reactiveAuthenticationManager(Scheduler rbacBlockingScheduler) {
+        PasswordUpgradingAuthenticationProvider provider = new PasswordUpgradingAuthenticationProvider(passwordEncoder, securityUserService);
+        provider.setUserDetailsService(securityUserService);
+        return authentication -> Mono.fromCallable(() -> provider.authenticate(authentication))
+                .subscribeOn(rbacBlockingScheduler)
+                .doOnNext(result -> {
+                    if (result instanceof CredentialsContainer) ((CredentialsContainer) result).eraseCredentials();
+                });
+    }
+
+    @Bean
+    public ReactiveUserDetailsService reactiveUserDetailsService(Scheduler rbacBlockingScheduler) {
+        return username -> Mono.fromCallable(() -> securityUserService.loadUserByUsername(username))
+                .subscribeOn(rbacBlockingScheduler)
+                .onErrorResume(UsernameNotFoundException.class, e -> Mono.empty());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler rbacBlockingScheduler() {
+        if (virtualThreads) return Schedulers.fromExecutorService(VirtualThreadConfig.newVirtualThreadExecutor("rbac-blocking-"));
+        int threads = blockingPoolSize > 0 ? blockingPoolSize : maxActive;
+        AtomicInteger sequence = new AtomicInteger();
+        return Schedulers.fromExecutorService(Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "rbac-blocking-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * Replaces Spring Session's reactive repository, which always writes attributes with JDK
+     * serialization, so the compact session format applies here as well.
+     */
+    @Bean
+    public ReactiveRedisOperationsSessionRepository sessionRepository(ReactiveRedisConnectionFactory connectionFactory,
+                                                                      @Qualifier("springSessionDefaultRedisSerializer")
+                                                                      ObjectProvider<RedisSerializer<Object>> sessionSerializer) {
+        RedisSerializer<Object> values = sessionSerializer.getIfAvailable();
+        if (values == null) values = new JdkSerializationRedisSerializer(getClass().getClassLoader());
+        RedisSerializationContext<String, Object> context = RedisSerializationContext.<String, Object>newSerializationContext(values)
+                .key(new StringRedisSerializer())
+                .hashKey(new StringRedisSerializer())
+                .build();
+        return new ReactiveRedisOperationsSessionRepository(new ReactiveRedisTemplate<>(connectionFactory, context));
+    }
+
+    /**
+     * Tomcat is on the classpath for the servlet mode and would be picked first.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
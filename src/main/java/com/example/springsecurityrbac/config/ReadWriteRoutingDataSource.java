@@ -0,0 +1,119 @@
+package com.example.springsecurityrbac.config;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.example.springsecurityrbac.dao.ReplicaRead;
+import com.example.springsecurityrbac.service.RbacChangeEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out connections of the primary or of a replica. Read-only transactions, and
+ * {@link ReplicaRead} calls outside a transaction, read from a replica picked round robin or
+ * by the fewest borrowed connections; everything else goes to the primary, and so does every
+ * read for {@code readYourWritesMillis} after the last write this node saw (see {@link #wrote()}).
+ * A replica that fails to hand out a connection is passed over for the primary.
+ * <p>
+ * The key is decided when the connection is taken, and a transaction manager takes it before
+ * the transaction is marked read-only, so this only works behind a
+ * {@link LazyConnectionDataSourceProxy}, which defers that to the first statement.
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final Map<String, DruidDataSource> replicas;
+    private final String[] replicaKeys;
+    private final boolean leastActive;
+    private final long readYourWritesMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile long lastWrite;
+
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DruidDataSource> replicas,
+                                      boolean leastActive, long readYourWritesMillis) {
+        this.primary = primary;
+        this.replicas = Collections.unmodifiableMap(new LinkedHashMap<>(replicas));
+        this.replicaKeys = replicas.keySet().toArray(new String[0]);
+        this.leastActive = leastActive;
+        this.readYourWritesMillis = readYourWritesMillis;
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    public Map<String, DruidDataSource> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Starts the read-your-writes window: reads go to the primary until the replicas have had
+     * {@code readYourWritesMillis} to catch up.
+     */
+    public void wrote() {
+        lastWrite = System.currentTimeMillis();
+    }
+
+    /**
+     * Ahead of every other listener, which may read the change back in a read-only transaction.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public void onRbacChange(RbacChangeEvent event) {
+        wrote();
+    }
+
+    public void close() {
+        replicas.values().forEach(DruidDataSource::close);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        if (target == primary) return primary.getConnection();
+        try {
+            return target.getConnection();
+        } catch (SQLException e) {
+            log.warn("replica {} unavailable, reading from the primary: {}", ((DruidDataSource) target).getName(), e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicaKeys.length == 0 || System.currentTimeMillis() - lastWrite < readYourWritesMillis) return PRIMARY;
+        boolean read = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || ReplicaReadInterceptor.isActive() && !TransactionSynchronizationManager.isActualTransactionActive();
+        return read ? replicaKey() : PRIMARY;
+    }
+
+    private String replicaKey() {
+        int start = next.getAndIncrement() & Integer.MAX_VALUE;
+        if (!leastActive) return replicaKeys[start % replicaKeys.length];
+        String best = null;
+        int fewest = Integer.MAX_VALUE;
+        for (int i = 0; i < replicaKeys.length; i++) {
+            String key = replicaKeys[(start + i) % replicaKeys.length];
+            int active = replicas.get(key).getActiveCount();
+            if (active < fewest) {
+                best = key;
+                fewest = active;
+            }
+        }
+        return best;
+    }
+}
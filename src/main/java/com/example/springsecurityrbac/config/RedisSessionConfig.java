@@ -0,0 +1,53 @@
+package com.example.springsecurityrbac.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.session.RedisSessionProperties;
+import org.springframework.boot.autoconfigure.session.SessionProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.session.data.redis.RedisOperationsSessionRepository;
+import org.springframework.session.data.redis.config.annotation.web.http.RedisHttpSessionConfiguration;
+
+import java.time.Duration;
+
+/**
+ * Boot's Redis session setup with {@link CoalescingSessionRepository} in front of the
+ * repository. Boot backs off as soon as another session repository is defined, so the
+ * {@code spring.session.*} properties it would have applied are applied here.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "rbac.session.touch", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(RedisSessionProperties.class)
+public class RedisSessionConfig extends RedisHttpSessionConfiguration {
+    @Value("${rbac.session.touch.window-millis:5000}")
+    private long windowMillis;
+    @Value("${rbac.session.touch.write-through-seconds:60}")
+    private int writeThroughSeconds;
+
+    private String namespace;
+
+    @Autowired
+    public void customize(SessionProperties sessionProperties, RedisSessionProperties redisSessionProperties) {
+        Duration timeout = sessionProperties.getTimeout();
+        if (timeout != null) setMaxInactiveIntervalInSeconds((int) timeout.getSeconds());
+        namespace = redisSessionProperties.getNamespace();
+        setRedisNamespace(namespace);
+        setRedisFlushMode(redisSessionProperties.getFlushMode());
+        setCleanupCron(redisSessionProperties.getCleanupCron());
+    }
+
+    @Bean(destroyMethod = "flush")
+    @Primary
+    public CoalescingSessionRepository coalescingSessionRepository(RedisOperationsSessionRepository sessionRepository,
+                                                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        return new CoalescingSessionRepository(sessionRepository, namespace, windowMillis, writeThroughSeconds, meterRegistry.getIfAvailable());
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.dao.ReplicaRead;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.StaticMethodMatcherPointcutAdvisor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * Marks the thread while a {@link ReplicaRead} method runs, for
+ * {@link ReadWriteRoutingDataSource} to pick a replica. Mappers are JDK proxies, so the
+ * annotation is looked up on the interface method and type as well as on the target.
+ */
+public class ReplicaReadInterceptor implements MethodInterceptor {
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+    public StaticMethodMatcherPointcutAdvisor advisor() {
+        StaticMethodMatcherPointcutAdvisor advisor = new StaticMethodMatcherPointcutAdvisor(this) {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return annotated(method, targetClass);
+            }
+        };
+        advisor.setOrder(1);
+        return advisor;
+    }
+
+    static boolean isActive() {
+        return ACTIVE.get() != null;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (ACTIVE.get() != null) return invocation.proceed();
+        ACTIVE.set(Boolean.TRUE);
+        try {
+            return invocation.proceed();
+        } finally {
+            ACTIVE.remove();
+        }
+    }
+
+    private static boolean annotated(Method method, Class<?> targetClass) {
+        if (method.getDeclaringClass() == Object.class) return false;
+        if (AnnotatedElementUtils.hasAnnotation(method, ReplicaRead.class)
+                || AnnotatedElementUtils.hasAnnotation(method.getDeclaringClass(), ReplicaRead.class)) {
+            return true;
+        }
+        Method specific = AopUtils.getMostSpecificMethod(method, targetClass);
+        return specific != method && AnnotatedElementUtils.hasAnnotation(specific, ReplicaRead.class)
+                || AnnotatedElementUtils.hasAnnotation(targetClass, ReplicaRead.class);
+    }
+}
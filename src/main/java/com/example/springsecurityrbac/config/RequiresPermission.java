@@ -0,0 +1,26 @@
+package com.example.springsecurityrbac.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Permission codes required to call a method, checked by {@link RequiresPermissionInterceptor}
+ * without SpEL. {@link #value()} and {@link #allOf()} must all be held, of {@link #anyOf()}
+ * at least one. On a type it applies to every method that is not annotated itself.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface RequiresPermission {
+
+    String[] value() default {};
+
+    String[] allOf() default {};
+
+    String[] anyOf() default {};
+}
@@ -0,0 +1,71 @@
+package com.example.springsecurityrbac.config;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.StaticMethodMatcherPointcutAdvisor;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Enforces {@link RequiresPermission}. The pointcut is matched against every bean method
+ * while proxies are created, which is where each annotation is compiled into a
+ * {@link PermissionCheck}; a call costs a map lookup and the bit tests. Checks are kept per
+ * method and target class, as a method inherited by several classes can fall back to a
+ * different type-level annotation in each.
+ */
+public class RequiresPermissionInterceptor implements MethodInterceptor {
+    private final Map<MethodClassKey, PermissionCheck> checks = new ConcurrentHashMap<>();
+
+    public StaticMethodMatcherPointcutAdvisor advisor() {
+        StaticMethodMatcherPointcutAdvisor advisor = new StaticMethodMatcherPointcutAdvisor(this) {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return checkOf(method, targetClass) != null;
+            }
+        };
+        advisor.setOrder(0);
+        return advisor;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        Object target = invocation.getThis();
+        PermissionCheck check = checkOf(method, target == null ? method.getDeclaringClass() : AopUtils.getTargetClass(target));
+        if (check != null) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication == null) {
+                throw new AuthenticationCredentialsNotFoundException("An Authentication object was not found in the SecurityContext");
+            }
+            if (!check.test(authentication)) throw new AccessDeniedException("Access is denied");
+        }
+        return invocation.proceed();
+    }
+
+    PermissionCheck checkOf(Method method, Class<?> targetClass) {
+        MethodClassKey key = new MethodClassKey(method, targetClass);
+        PermissionCheck check = checks.get(key);
+        if (check != null || method.getDeclaringClass() == Object.class) return check;
+        Method specific = AopUtils.getMostSpecificMethod(method, targetClass);
+        RequiresPermission annotation = AnnotatedElementUtils.findMergedAnnotation(specific, RequiresPermission.class);
+        if (annotation == null && specific != method) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(method, RequiresPermission.class);
+        }
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(targetClass, RequiresPermission.class);
+        }
+        if (annotation == null) return null;
+        check = PermissionCheck.of(annotation);
+        checks.put(key, check);
+        return check;
+    }
+}
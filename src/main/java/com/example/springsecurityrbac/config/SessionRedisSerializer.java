@@ -0,0 +1,199 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.model.User;
+import com.example.springsecurityrbac.service.PermissionRegistry;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Session attribute serializer for Spring Session on Redis.
+ * <p>
+ * Values are written as {@code 'R', header, body}: the header holds the kind of body and
+ * a compression flag. A {@link SecurityContext} of a {@link User} login becomes a compact
+ * {@link PrincipalRecord} (id, username, locked flag, RBAC version stamp, permission ids) without
+ * the password, timestamps become plain longs and ints, everything else stays JDK-serialized. Bodies
+ * above the threshold are deflated. Values written by the JDK serializer (stream magic
+ * {@code 0xACED}) are still read, so sessions created before the switch survive it.
+ * With a {@link MeterRegistry} the stored size of every value written and read is recorded
+ * as {@code rbac.session.attribute.size}.
+ */
+public class SessionRedisSerializer implements RedisSerializer<Object> {
+    private static final byte MAGIC = 'R';
+    private static final int COMPRESSED = 0x80;
+    private static final int KIND_CONTEXT = 1;
+    private static final int KIND_JDK = 2;
+    private static final int KIND_LONG = 3;
+    private static final int KIND_INT = 4;
+
+    private final JdkSerializationRedisSerializer jdk = new JdkSerializationRedisSerializer();
+    private final PermissionRegistry permissionRegistry;
+    private final int compressThreshold;
+    private final DistributionSummary writeSize;
+    private final DistributionSummary readSize;
+
+    public SessionRedisSerializer(PermissionRegistry permissionRegistry, int compressThreshold) {
+        this(permissionRegistry, compressThreshold, null);
+    }
+
+    public SessionRedisSerializer(PermissionRegistry permissionRegistry, int compressThreshold, MeterRegistry meterRegistry) {
+        this.permissionRegistry = permissionRegistry;
+        this.compressThreshold = compressThreshold;
+        this.writeSize = meterRegistry == null ? null : size(meterRegistry, "write");
+        this.readSize = meterRegistry == null ? null : size(meterRegistry, "read");
+    }
+
+    private static DistributionSummary size(MeterRegistry meterRegistry, String operation) {
+        return DistributionSummary.builder("rbac.session.attribute.size")
+                .tag("operation", operation).baseUnit("bytes")
+                .description("stored size of session attribute values")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) return new byte[0];
+        byte[] bytes = write(value);
+        if (writeSize != null) writeSize.record(bytes.length);
+        return bytes;
+    }
+
+    private byte[] write(Object value) {
+        try {
+            if (value instanceof Long) return frame(KIND_LONG, longBytes((Long) value));
+            if (value instanceof Integer) return frame(KIND_INT, intBytes((Integer) value));
+            byte[] record = contextRecord(value);
+            if (record != null) return frame(KIND_CONTEXT, record);
+            return frame(KIND_JDK, jdk.serialize(value));
+        } catch (IOException e) {
+            throw new SerializationException("cannot serialize session attribute", e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) return null;
+        if (readSize != null) readSize.record(bytes.length);
+        if (bytes[0] != MAGIC) return jdk.deserialize(bytes);
+        try {
+            int header = bytes[1] & 0xFF;
+            byte[] body = Arrays.copyOfRange(bytes, 2, bytes.length);
+            if ((header & COMPRESSED) != 0) body = inflate(body);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+            switch (header & ~COMPRESSED) {
+                case KIND_LONG:
+                    return in.readLong();
+                case KIND_INT:
+                    return in.readInt();
+                case KIND_CONTEXT:
+                    return readContext(in);
+                case KIND_JDK:
+                    return jdk.deserialize(body);
+                default:
+                    throw new SerializationException("unknown session value kind " + header);
+            }
+        } catch (IOException | DataFormatException e) {
+            throw new SerializationException("cannot deserialize session attribute", e);
+        }
+    }
+
+    private byte[] contextRecord(Object value) throws IOException {
+        if (!(value instanceof SecurityContext)) return null;
+        Object authentication = ((SecurityContext) value).getAuthentication();
+        if (authentication == null || authentication.getClass() != UsernamePasswordAuthenticationToken.class) return null;
+        UsernamePasswordAuthenticationToken token = (UsernamePasswordAuthenticationToken) authentication;
+        if (!token.isAuthenticated() || !(token.getPrincipal() instanceof User)) return null;
+        User user = (User) token.getPrincipal();
+        if (!PrincipalRecord.supports(user)) return null;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        PrincipalRecord.write(out, user, permissionRegistry);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private SecurityContext readContext(DataInputStream in) throws IOException {
+        User user = PrincipalRecord.read(in, permissionRegistry);
+        SecurityContextImpl context = new SecurityContextImpl();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        return context;
+    }
+
+    private byte[] frame(int kind, byte[] body) {
+        int header = kind;
+        if (compressThreshold >= 0 && body.length > compressThreshold) {
+            byte[] deflated = deflate(body);
+            if (deflated.length < body.length) {
+                body = deflated;
+                header |= COMPRESSED;
+            }
+        }
+        byte[] framed = new byte[body.length + 2];
+        framed[0] = MAGIC;
+        framed[1] = (byte) header;
+        System.arraycopy(body, 0, framed, 2, body.length);
+        return framed;
+    }
+
+    private static byte[] deflate(byte[] body) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 2);
+            byte[] buffer = new byte[512];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] body) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(body);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length * 2);
+            byte[] buffer = new byte[512];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && inflater.needsInput()) throw new DataFormatException("truncated session value");
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] longBytes(long value) {
+        byte[] bytes = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        return bytes;
+    }
+
+    private static byte[] intBytes(int value) {
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.model.User;
+import com.example.springsecurityrbac.service.PermissionRegistry;
+import lombok.Value;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compact HMAC-SHA256 signed token carrying a {@link PrincipalRecord}. Layout, base64url
+ * without padding: format, key id, token id, login, issued and expiry second, the principal
+ * record, then the first 16 bytes of the MAC over all of it. A renewed token keeps the id and
+ * the login second of the one it replaces, so the id stands for the login and revoking it
+ * covers every renewal, and the login second bounds how long renewals can go on. Tokens of
+ * the first format, which had no login second, are not read.
+ * <p>
+ * Keys are configured as {@code id:base64-secret} pairs, ids 0 to 255. The first key signs,
+ * all of them verify, so a new key is rolled out first in second place, then moved to the
+ * front, and the old one is removed once the tokens it signed have expired.
+ */
+public class SignedTokenCodec {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int FORMAT = 2;
+    private static final int MAC_LENGTH = 16;
+    private static final int MIN_SECRET_LENGTH = 32;
+
+    private final PermissionRegistry permissionRegistry;
+    private final Map<Integer, SecretKeySpec> keys = new HashMap<>();
+    private final int signingKey;
+    private final SecureRandom random = new SecureRandom();
+
+    public SignedTokenCodec(String keys, PermissionRegistry permissionRegistry) {
+        this.permissionRegistry = permissionRegistry;
+        int first = -1;
+        for (String entry : keys.split(",")) {
+            if (entry.trim().isEmpty()) continue;
+            int colon = entry.indexOf(':');
+            if (colon < 0) throw new IllegalArgumentException("token key without id, expected id:base64-secret");
+            int id = Integer.parseInt(entry.substring(0, colon).trim());
+            byte[] secret = Base64.getDecoder().decode(entry.substring(colon + 1).trim());
+            if (id < 0 || id > 255) throw new IllegalArgumentException("token key id " + id + " out of 0..255");
+            if (secret.length < MIN_SECRET_LENGTH) {
+                throw new IllegalArgumentException("token key " + id + " has " + secret.length + " bytes, at least " + MIN_SECRET_LENGTH + " needed");
+            }
+            if (this.keys.put(id, new SecretKeySpec(secret, ALGORITHM)) != null) {
+                throw new IllegalArgumentException("token key id " + id + " given twice");
+            }
+            if (first < 0) first = id;
+        }
+        if (first < 0) throw new IllegalArgumentException("rbac.token.keys is empty");
+        this.signingKey = first;
+    }
+
+    /**
+     * A token for a new login.
+     */
+    public Token issue(User user, long ttlMillis) {
+        long now = System.currentTimeMillis();
+        return issue(user, random.nextLong(), now, now + ttlMillis);
+    }
+
+    /**
+     * A token for the login of {@code tokenId} made at {@code authenticatedAt}, valid until
+     * {@code expiresAt} (milliseconds, kept to the second).
+     */
+    public Token issue(User user, long tokenId, long authenticatedAt, long expiresAt) {
+        long loginSecond = TimeUnit.MILLISECONDS.toSeconds(authenticatedAt);
+        long issuedAt = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        long expirySecond = TimeUnit.MILLISECONDS.toSeconds(expiresAt);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(FORMAT);
+            out.writeByte(signingKey);
+            out.writeLong(tokenId);
+            out.writeInt((int) loginSecond);
+            out.writeInt((int) issuedAt);
+            out.writeInt((int) expirySecond);
+            PrincipalRecord.write(out, user, permissionRegistry);
+            out.write(mac(keys.get(signingKey), bytes.toByteArray()));
+            out.flush();
+            String value = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+            return new Token(value, tokenId, TimeUnit.SECONDS.toMillis(loginSecond), TimeUnit.SECONDS.toMillis(issuedAt),
+                    TimeUnit.SECONDS.toMillis(expirySecond), user);
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot write token", e);
+        }
+    }
+
+    /**
+     * The token of a value, {@code null} when it is malformed, signed by an unknown key,
+     * tampered with or expired.
+     */
+    public Token read(String value) {
+        if (value == null || value.isEmpty()) return null;
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (bytes.length < 2 + MAC_LENGTH || bytes[0] != FORMAT) return null;
+        SecretKeySpec key = keys.get(bytes[1] & 0xFF);
+        if (key == null) return null;
+        byte[] signed = Arrays.copyOf(bytes, bytes.length - MAC_LENGTH);
+        byte[] mac = Arrays.copyOfRange(bytes, bytes.length - MAC_LENGTH, bytes.length);
+        if (!MessageDigest.isEqual(mac, mac(key, signed))) return null;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(signed, 2, signed.length - 2));
+            long tokenId = in.readLong();
+            long authenticatedAt = TimeUnit.SECONDS.toMillis(in.readInt() & 0xFFFFFFFFL);
+            long issuedAt = TimeUnit.SECONDS.toMillis(in.readInt() & 0xFFFFFFFFL);
+            long expiresAt = TimeUnit.SECONDS.toMillis(in.readInt() & 0xFFFFFFFFL);
+            if (expiresAt <= System.currentTimeMillis()) return null;
+            User user = PrincipalRecord.read(in, permissionRegistry);
+            return new Token(value, tokenId, authenticatedAt, issuedAt, expiresAt, user);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static byte[] mac(SecretKeySpec key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return Arrays.copyOf(mac.doFinal(data), MAC_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        }
+    }
+
+    @Value
+    public static class Token {
+        String value;
+        long id;
+        long authenticatedAt;
+        long issuedAt;
+        long expiresAt;
+        User user;
+    }
+}
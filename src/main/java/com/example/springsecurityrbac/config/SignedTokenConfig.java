@@ -0,0 +1,37 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.service.PermissionRegistry;
+import com.example.springsecurityrbac.service.TokenRevocationList;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Stateless login: the security context travels in a signed token, the HTTP session is not used.
+ * Servlet mode only. {@code rbac.token.keys} takes the keys of {@link SignedTokenCodec}, secrets
+ * of at least 32 bytes; {@code max-age-seconds} bounds the renewals after a login and must not
+ * be below {@code ttl-seconds}. Logged out tokens stay in the {@link TokenRevocationList} until
+ * they expire.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "rbac.token", name = "enabled")
+public class SignedTokenConfig {
+    @Value("${rbac.token.keys}")
+    private String keys;
+    @Value("${rbac.token.ttl-seconds:1800}")
+    private long ttlSeconds;
+    @Value("${rbac.token.max-age-seconds:43200}")
+    private long maxAgeSeconds;
+    @Value("${rbac.token.cookie-name:RBAC_TOKEN}")
+    private String cookieName;
+
+    @Bean
+    public SignedTokenSecurityContextRepository signedTokenSecurityContextRepository(
+            PermissionRegistry permissionRegistry, TokenRevocationList revocationList) {
+        return new SignedTokenSecurityContextRepository(
+                new SignedTokenCodec(keys, permissionRegistry), revocationList, ttlSeconds, maxAgeSeconds, cookieName);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.model.User;
+import com.example.springsecurityrbac.service.TokenRevocationList;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SaveContextOnUpdateOrErrorResponseWrapper;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Security context kept in a {@link SignedTokenCodec signed token} instead of the session.
+ * The token is taken from {@code Authorization: Bearer} or the cookie, verified and checked
+ * against the local {@link TokenRevocationList}, so rebuilding the authentication costs
+ * neither Redis nor the database. When the authentication changed during the request (login,
+ * reload by {@link PermissionVersionFilter}) or the token is past half of its lifetime, a new
+ * token with the same id goes out in the cookie and the {@value #HEADER} header. Renewals never
+ * reach beyond {@code maxAgeSeconds} after the login, so a token in use, stolen or not, still
+ * ends there and its user has to log in again. A cleared context (logout) revokes the id and
+ * removes the cookie.
+ */
+public class SignedTokenSecurityContextRepository implements SecurityContextRepository {
+    public static final String HEADER = "X-Auth-Token";
+    private static final String BEARER = "Bearer ";
+    private static final String LOADED_TOKEN = SignedTokenSecurityContextRepository.class.getName() + ".TOKEN";
+
+    private final SignedTokenCodec codec;
+    private final TokenRevocationList revocationList;
+    private final long ttlMillis;
+    private final long maxAgeMillis;
+    private final String cookieName;
+    private final AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+
+    public SignedTokenSecurityContextRepository(SignedTokenCodec codec, TokenRevocationList revocationList,
+                                                long ttlSeconds, long maxAgeSeconds, String cookieName) {
+        if (maxAgeSeconds < ttlSeconds) {
+            throw new IllegalArgumentException("token max age " + maxAgeSeconds + "s is shorter than its ttl " + ttlSeconds + "s");
+        }
+        this.codec = codec;
+        this.revocationList = revocationList;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.maxAgeMillis = TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+        this.cookieName = cookieName;
+    }
+
+    /**
+     * Whether the request carries a token, tells API calls (no CSRF token needed) from browser ones.
+     */
+    public static boolean hasBearerToken(HttpServletRequest request) {
+        String authorization = request.getHeader("Authorization");
+        return authorization != null && authorization.startsWith(BEARER);
+    }
+
+    @Override
+    public SecurityContext loadContext(HttpRequestResponseHolder holder) {
+        HttpServletRequest request = holder.getRequest();
+        SignedTokenCodec.Token token = verifiedToken(request);
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        if (token != null) {
+            request.setAttribute(LOADED_TOKEN, token);
+            User user = token.getUser();
+            context.setAuthentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        }
+        holder.setResponse(new SaveToTokenResponseWrapper(holder.getResponse(), request, context.getAuthentication()));
+        return context;
+    }
+
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        SaveToTokenResponseWrapper wrapper = WebUtils.getNativeResponse(response, SaveToTokenResponseWrapper.class);
+        if (wrapper == null) {
+            throw new IllegalStateException("Cannot invoke saveContext on response " + response
+                    + ". You must use the HttpRequestResponseHolder.response after invoking loadContext");
+        }
+        if (!wrapper.isContextSaved()) wrapper.saveContext(context);
+    }
+
+    @Override
+    public boolean containsContext(HttpServletRequest request) {
+        return verifiedToken(request) != null;
+    }
+
+    private SignedTokenCodec.Token verifiedToken(HttpServletRequest request) {
+        String value = null;
+        String authorization = request.getHeader("Authorization");
+        if (authorization != null && authorization.startsWith(BEARER)) {
+            value = authorization.substring(BEARER.length()).trim();
+        } else {
+            Cookie cookie = WebUtils.getCookie(request, cookieName);
+            if (cookie != null) value = cookie.getValue();
+        }
+        SignedTokenCodec.Token token = codec.read(value);
+        return token == null || revocationList.isRevoked(token.getId()) ? null : token;
+    }
+
+    private void writeCookie(HttpServletRequest request, HttpServletResponse response, String value, int maxAge) {
+        Cookie cookie = new Cookie(cookieName, value);
+        cookie.setPath(StringUtils.hasLength(request.getContextPath()) ? request.getContextPath() : "/");
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setMaxAge(maxAge);
+        response.addCookie(cookie);
+    }
+
+    private final class SaveToTokenResponseWrapper extends SaveContextOnUpdateOrErrorResponseWrapper {
+        private final HttpServletRequest request;
+        private final Authentication authBeforeExecution;
+
+        SaveToTokenResponseWrapper(HttpServletResponse response, HttpServletRequest request, Authentication authBeforeExecution) {
+            super(response, true);
+            this.request = request;
+            this.authBeforeExecution = authBeforeExecution;
+        }
+
+        @Override
+        protected void saveContext(SecurityContext context) {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            SignedTokenCodec.Token loaded = (SignedTokenCodec.Token) request.getAttribute(LOADED_TOKEN);
+            Authentication authentication = context.getAuthentication();
+            if (authentication == null || trustResolver.isAnonymous(authentication)) {
+                if (loaded != null) {
+                    // a renewal issued meanwhile by a concurrent request expires at most one ttl from now
+                    revocationList.revoke(loaded.getId(), System.currentTimeMillis() + ttlMillis);
+                    writeCookie(request, response, "", 0);
+                }
+                return;
+            }
+            long now = System.currentTimeMillis();
+            boolean fresh = loaded != null && loaded.getExpiresAt() - now > ttlMillis / 2;
+            if (authentication == authBeforeExecution && fresh) return;
+            if (!(authentication.getPrincipal() instanceof User)) return;
+            User user = (User) authentication.getPrincipal();
+            if (!PrincipalRecord.supports(user)) return;
+            SignedTokenCodec.Token token;
+            if (loaded != null && loaded.getUser().getId().equals(user.getId())) {
+                long expiresAt = Math.min(now + ttlMillis, loaded.getAuthenticatedAt() + maxAgeMillis);
+                // past the max age the loaded token is as good as a renewal would be
+                if (authentication == authBeforeExecution
+                        && TimeUnit.MILLISECONDS.toSeconds(expiresAt) <= TimeUnit.MILLISECONDS.toSeconds(loaded.getExpiresAt())) {
+                    return;
+                }
+                token = codec.issue(user, loaded.getId(), loaded.getAuthenticatedAt(), expiresAt);
+            } else {
+                token = codec.issue(user, ttlMillis);
+            }
+            request.setAttribute(LOADED_TOKEN, token);
+            writeCookie(request, response, token.getValue(), (int) TimeUnit.MILLISECONDS.toSeconds(token.getExpiresAt() - now));
+            response.setHeader(HEADER, token.getValue());
+        }
+    }
+}
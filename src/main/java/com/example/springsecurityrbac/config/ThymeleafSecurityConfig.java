@@ -0,0 +1,18 @@
+package com.example.springsecurityrbac.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.thymeleaf.extras.springsecurity5.dialect.SpringSecurityDialect;
+
+/**
+ * The {@code sec:} dialect for the templates. Boot 2.0 only registers the Spring Security 4
+ * flavour of it, which does not know about WebFlux.
+ */
+@Configuration
+public class ThymeleafSecurityConfig {
+
+    @Bean
+    public SpringSecurityDialect securityDialect() {
+        return new SpringSecurityDialect();
+    }
+}
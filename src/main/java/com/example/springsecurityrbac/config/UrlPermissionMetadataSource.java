@@ -0,0 +1,39 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.service.UrlPermissionService;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.web.FilterInvocation;
+import org.springframework.security.web.access.intercept.FilterInvocationSecurityMetadataSource;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Looks a request up in the {@code url_permission} rules first and falls back to the
+ * rules configured in {@link MyWebSecurityConfig}.
+ */
+public class UrlPermissionMetadataSource implements FilterInvocationSecurityMetadataSource {
+    private final UrlPermissionService urlPermissionService;
+    private final FilterInvocationSecurityMetadataSource delegate;
+
+    public UrlPermissionMetadataSource(UrlPermissionService urlPermissionService, FilterInvocationSecurityMetadataSource delegate) {
+        this.urlPermissionService = urlPermissionService;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Collection<ConfigAttribute> getAttributes(Object object) {
+        List<ConfigAttribute> attributes = urlPermissionService.attributesOf(((FilterInvocation) object).getRequest());
+        return attributes != null ? attributes : delegate.getAttributes(object);
+    }
+
+    @Override
+    public Collection<ConfigAttribute> getAllConfigAttributes() {
+        return delegate.getAllConfigAttributes();
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return FilterInvocation.class.isAssignableFrom(clazz);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.springsecurityrbac.config;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.util.ServerInfo;
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Servlet requests on virtual threads, {@code rbac.threads.virtual=true} on JDK 21 or later.
+ * Tomcat hands every request to a new virtual thread instead of its worker pool, so a login
+ * waiting on JDBC or Redis parks rather than holding one of {@code server.tomcat.max-threads}.
+ * Requests in flight are then bounded by {@code server.tomcat.max-connections}, and everything
+ * touching the database by the Druid pool.
+ * <p>
+ * Tomcat 8.5, the version of Boot 2.0, processes a request inside {@code synchronized} on the
+ * socket, which pins the virtual thread to its carrier for the whole request; the {@code jdk21}
+ * Maven profile brings Tomcat 9, which uses a lock there. The JDK API is called reflectively,
+ * the sources stay on Java 8, and the JVM needs
+ * {@code --add-opens java.base/java.lang=ALL-UNNAMED}.
+ * <p>
+ * With the thread limit gone the Druid pool is the bottleneck: size
+ * {@code spring.datasource.druid.max-active} for what the database can take rather than for
+ * the request concurrency, and set {@code max-wait} so requests that cannot get a connection
+ * in time fail instead of piling up as parked virtual threads.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "rbac.threads.virtual", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class VirtualThreadConfig {
+    @Autowired
+    private ObjectProvider<DruidDataSource> dataSources;
+
+    /**
+     * The web server, and with it this configuration, starts before the data source exists.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkPool() {
+        DruidDataSource dataSource = dataSources.getIfAvailable();
+        if (dataSource != null && dataSource.getMaxWait() <= 0) {
+            log.warn("virtual request threads with spring.datasource.druid.max-wait unset: requests queue for one of {} connections without a limit",
+                    dataSource.getMaxActive());
+        }
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService requestExecutor() {
+        return newVirtualThreadExecutor("http-vt-");
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadConnector() {
+        if (ServerInfo.getServerNumber().startsWith("8.")) {
+            throw new IllegalStateException("virtual request threads would be pinned by Tomcat " + ServerInfo.getServerNumber()
+                    + ", build with the jdk21 profile for Tomcat 9");
+        }
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            if (!(connector.getProtocolHandler() instanceof AbstractProtocol)) {
+                throw new IllegalStateException("no executor can be set on " + connector.getProtocolHandler());
+            }
+            ((AbstractProtocol<?>) connector.getProtocolHandler()).setExecutor(requestExecutor());
+        });
+    }
+
+    /**
+     * An executor starting one virtual thread per task, named {@code prefix} and a counter.
+     *
+     * @throws IllegalStateException below JDK 21
+     */
+    public static ExecutorService newVirtualThreadExecutor(String prefix) {
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Object ofVirtual = Thread.class.getMethod("ofVirtual").invoke(null);
+            ofVirtual = builder.getMethod("name", String.class, long.class).invoke(ofVirtual, prefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builder.getMethod("factory").invoke(ofVirtual);
+            Method executor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) executor.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("virtual threads need JDK 21 or later, running on "
+                    + System.getProperty("java.version"), e);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.springsecurityrbac.controller;
 
-import org.springframework.security.access.prepost.PreAuthorize;
+import com.example.springsecurityrbac.config.PermissionContact;
+import com.example.springsecurityrbac.config.RequiresPermission;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -18,7 +19,7 @@ public class MainController {
         return "index";
     }
 
-    @PreAuthorize("hasAuthority(T(com.example.springsecurityrbac.config.PermissionContact).USER_VIEW)")
+    @RequiresPermission(PermissionContact.USER_VIEW)
     @RequestMapping("/user/index")
     public String userIndex() {
         return "user/index";
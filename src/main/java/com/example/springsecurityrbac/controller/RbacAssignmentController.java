@@ -0,0 +1,57 @@
+package com.example.springsecurityrbac.controller;
+
+import com.example.springsecurityrbac.config.PermissionContact;
+import com.example.springsecurityrbac.config.RequiresPermission;
+import com.example.springsecurityrbac.service.RbacAssignmentService;
+import com.example.springsecurityrbac.service.UnknownRoleException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Bulk assignment endpoints, the request body is a JSON array of user or permission ids.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/rbac/roles/{roleId}")
+@RequiresPermission(PermissionContact.ROLE_ASSIGN)
+public class RbacAssignmentController {
+    @Autowired
+    private RbacAssignmentService rbacAssignmentService;
+
+    @PostMapping("/users")
+    public RbacAssignmentService.Result assignUsers(@PathVariable int roleId, @RequestBody List<Integer> userIds) {
+        return rbacAssignmentService.assignUsers(roleId, userIds);
+    }
+
+    @DeleteMapping("/users")
+    public RbacAssignmentService.Result revokeUsers(@PathVariable int roleId, @RequestBody List<Integer> userIds) {
+        return rbacAssignmentService.revokeUsers(roleId, userIds);
+    }
+
+    @PostMapping("/permissions")
+    public RbacAssignmentService.Result assignPermissions(@PathVariable int roleId, @RequestBody List<Integer> permissionIds) {
+        return rbacAssignmentService.assignPermissions(roleId, permissionIds);
+    }
+
+    @DeleteMapping("/permissions")
+    public RbacAssignmentService.Result revokePermissions(@PathVariable int roleId, @RequestBody List<Integer> permissionIds) {
+        return rbacAssignmentService.revokePermissions(roleId, permissionIds);
+    }
+
+    @ExceptionHandler(UnknownRoleException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public String unknownRole(UnknownRoleException e) {
+        return e.getMessage();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.springsecurityrbac.controller;
+
+import com.example.springsecurityrbac.config.PermissionContact;
+import com.example.springsecurityrbac.config.RequiresPermission;
+import com.example.springsecurityrbac.service.RbacTransferService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+/**
+ * NDJSON dump and restore of the RBAC tables, see {@link RbacTransferService}.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/rbac")
+@RequiresPermission(PermissionContact.RBAC_TRANSFER)
+public class RbacTransferController {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    @Autowired
+    private RbacTransferService rbacTransferService;
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export() {
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=rbac.ndjson")
+                .body(rbacTransferService::export);
+    }
+
+    @PostMapping("/import")
+    public RbacTransferService.Result importFrom(HttpServletRequest request) throws IOException {
+        return rbacTransferService.importFrom(request.getInputStream());
+    }
+}
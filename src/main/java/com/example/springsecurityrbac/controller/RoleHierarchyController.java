@@ -0,0 +1,59 @@
+package com.example.springsecurityrbac.controller;
+
+import com.example.springsecurityrbac.config.PermissionContact;
+import com.example.springsecurityrbac.config.RequiresPermission;
+import com.example.springsecurityrbac.service.RoleHierarchyService;
+import com.example.springsecurityrbac.service.UnknownRoleException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Parents of a role, a role inherits every permission of its parents and their ancestors.
+ * Adding or removing an edge answers whether anything changed.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/rbac/roles/{roleId}/parents")
+@RequiresPermission(PermissionContact.ROLE_ASSIGN)
+public class RoleHierarchyController {
+    @Autowired
+    private RoleHierarchyService roleHierarchyService;
+
+    @GetMapping
+    public List<Integer> parents(@PathVariable int roleId) {
+        return roleHierarchyService.parentsOf(roleId);
+    }
+
+    @PostMapping("/{parentId}")
+    public boolean addParent(@PathVariable int roleId, @PathVariable int parentId) {
+        return roleHierarchyService.addParent(roleId, parentId);
+    }
+
+    @DeleteMapping("/{parentId}")
+    public boolean removeParent(@PathVariable int roleId, @PathVariable int parentId) {
+        return roleHierarchyService.removeParent(roleId, parentId);
+    }
+
+    @ExceptionHandler(UnknownRoleException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public String unknownRole(UnknownRoleException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public String cycle(IllegalStateException e) {
+        return e.getMessage();
+    }
+}
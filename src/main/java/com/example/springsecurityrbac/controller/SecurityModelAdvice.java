@@ -0,0 +1,34 @@
+package com.example.springsecurityrbac.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.reactive.result.view.CsrfRequestDataValueProcessor;
+import org.springframework.security.web.server.csrf.CsrfToken;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.server.ServerWebExchange;
+import org.thymeleaf.extras.springsecurity5.util.SpringSecurityContextUtils;
+import reactor.core.publisher.Mono;
+
+/**
+ * What the templates read from the servlet request in the servlet mode: the csrf token, which
+ * in WebFlux is a {@link Mono} until something subscribes to it, for the hidden {@code _csrf}
+ * fields, and the security context for the {@code sec:} attributes.
+ */
+@ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class SecurityModelAdvice {
+
+    @ModelAttribute
+    public Mono<CsrfToken> csrfToken(ServerWebExchange exchange) {
+        Mono<CsrfToken> csrfToken = exchange.getAttribute(CsrfToken.class.getName());
+        if (csrfToken == null) return Mono.empty();
+        return csrfToken.doOnSuccess(token -> exchange.getAttributes().put(CsrfRequestDataValueProcessor.DEFAULT_CSRF_ATTR_NAME, token));
+    }
+
+    @ModelAttribute(SpringSecurityContextUtils.SECURITY_CONTEXT_MODEL_ATTRIBUTE_NAME)
+    public Mono<SecurityContext> securityContext() {
+        return ReactiveSecurityContextHolder.getContext();
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.springsecurityrbac.controller;
+
+import com.example.springsecurityrbac.config.PermissionContact;
+import com.example.springsecurityrbac.config.RequiresPermission;
+import com.example.springsecurityrbac.service.UserQueryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Users within the caller's data scope, the next page starts after the last id returned.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/rbac/users")
+@RequiresPermission(PermissionContact.USER_VIEW)
+public class UserController {
+    private static final int MAX_PAGE_SIZE = 500;
+
+    @Autowired
+    private UserQueryService userQueryService;
+
+    @GetMapping
+    public List<UserQueryService.UserSummary> list(@RequestParam(defaultValue = "0") int afterId,
+                                                   @RequestParam(defaultValue = "50") int size) {
+        return userQueryService.list(afterId, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.springsecurityrbac.dao;
+
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+
+/**
+ * Mappers bound to one Spring-managed batch executor session. A mapper interface is only
+ * known to MyBatis once its mapper bean was created, which may be after the service asking
+ * for the batch variant, so it is registered here when missing.
+ */
+public final class BatchMappers {
+    private final SqlSessionTemplate batch;
+
+    public BatchMappers(SqlSessionFactory sqlSessionFactory) {
+        this.batch = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+    }
+
+    public <T> T get(Class<T> type) {
+        Configuration configuration = batch.getConfiguration();
+        synchronized (configuration) {
+            if (!configuration.hasMapper(type)) configuration.addMapper(type);
+        }
+        return batch.getMapper(type);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.springsecurityrbac.dao;
+
+import org.mybatis.dynamic.sql.SqlColumn;
+
+/**
+ * Columns of a table that a data scope is checked against: the user owning a row and the
+ * department it belongs to.
+ */
+public final class DataScopeColumns {
+    public static final DataScopeColumns USER = of(UserDynamicSqlSupport.id, UserDynamicSqlSupport.deptId);
+
+    private final SqlColumn<Integer> owner;
+    private final SqlColumn<Integer> department;
+
+    private DataScopeColumns(SqlColumn<Integer> owner, SqlColumn<Integer> department) {
+        this.owner = owner;
+        this.department = department;
+    }
+
+    public static DataScopeColumns of(SqlColumn<Integer> owner, SqlColumn<Integer> department) {
+        return new DataScopeColumns(owner, department);
+    }
+
+    public SqlColumn<Integer> getOwner() {
+        return owner;
+    }
+
+    public SqlColumn<Integer> getDepartment() {
+        return department;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.springsecurityrbac.dao;
+
+import org.mybatis.dynamic.sql.VisitableCondition;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.mybatis.dynamic.sql.SqlBuilder.isBetween;
+import static org.mybatis.dynamic.sql.SqlBuilder.isIn;
+
+/**
+ * Where conditions for a sorted chunk of ids. A chunk of dense ids becomes a {@code between}
+ * range scan with two parameters instead of an {@code in} list with one parameter per id.
+ */
+public final class IdConditions {
+
+    private IdConditions() {
+    }
+
+    /**
+     * Matches at least the given ids. A range also matches ids outside the chunk, filter the
+     * rows with {@link #contains(List, Integer)}.
+     */
+    public static VisitableCondition<Integer> covering(List<Integer> sortedIds) {
+        int first = sortedIds.get(0);
+        int last = sortedIds.get(sortedIds.size() - 1);
+        if ((long) last - first < 2L * sortedIds.size()) return isBetween(first).and(last);
+        return isIn(sortedIds);
+    }
+
+    /**
+     * Matches exactly the given ids, a range only when they are contiguous.
+     */
+    public static VisitableCondition<Integer> exactly(List<Integer> sortedIds) {
+        int first = sortedIds.get(0);
+        int last = sortedIds.get(sortedIds.size() - 1);
+        if ((long) last - first + 1 == sortedIds.size()) return isBetween(first).and(last);
+        return isIn(sortedIds);
+    }
+
+    public static boolean contains(List<Integer> sortedIds, Integer id) {
+        return Collections.binarySearch(sortedIds, id) >= 0;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.springsecurityrbac.dao;
+
+import org.mybatis.dynamic.sql.insert.render.InsertStatementProvider;
+
+/**
+ * An insert rendered once by the dynamic SQL DSL. Inserts only reference the record's
+ * properties ({@code #{record.xxx}}), so binding is pairing the SQL string with a record.
+ * Every bound statement has the same SQL, which lets a batch executor reuse one
+ * prepared statement for all of them.
+ */
+public final class InsertStatementTemplate<T> {
+    private final String insertStatement;
+
+    private InsertStatementTemplate(String insertStatement) {
+        this.insertStatement = insertStatement;
+    }
+
+    public static <T> InsertStatementTemplate<T> of(InsertStatementProvider<T> rendered) {
+        return new InsertStatementTemplate<>(rendered.getInsertStatement());
+    }
+
+    public InsertStatementProvider<T> bind(T record) {
+        return new BoundStatement<>(insertStatement, record);
+    }
+
+    public String getInsertStatement() {
+        return insertStatement;
+    }
+
+    private static final class BoundStatement<T> implements InsertStatementProvider<T> {
+        private final String insertStatement;
+        private final T record;
+
+        BoundStatement(String insertStatement, T record) {
+            this.insertStatement = insertStatement;
+            this.record = record;
+        }
+
+        @Override
+        public T getRecord() {
+            return record;
+        }
+
+        @Override
+        public String getInsertStatement() {
+            return insertStatement;
+        }
+    }
+}
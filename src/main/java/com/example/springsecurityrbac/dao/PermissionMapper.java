@@ -9,11 +9,13 @@ import javax.annotation.Generated;
 import org.apache.ibatis.annotations.DeleteProvider;
 import org.apache.ibatis.annotations.InsertProvider;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Result;
 import org.apache.ibatis.annotations.ResultMap;
 import org.apache.ibatis.annotations.Results;
 import org.apache.ibatis.annotations.SelectProvider;
 import org.apache.ibatis.annotations.UpdateProvider;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.type.JdbcType;
 import org.mybatis.dynamic.sql.SqlBuilder;
 import org.mybatis.dynamic.sql.delete.DeleteDSL;
@@ -58,6 +60,11 @@ public interface PermissionMapper {
     })
     List<Permission> selectMany(SelectStatementProvider selectStatement);
 
+    @SelectProvider(type=SqlProviderAdapter.class, method="select")
+    @ResultMap("PermissionResult")
+    @Options(fetchSize = 1000)
+    Cursor<Permission> selectCursor(SelectStatementProvider selectStatement);
+
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     @UpdateProvider(type=SqlProviderAdapter.class, method="update")
     int update(UpdateStatementProvider updateStatement);
@@ -109,19 +116,24 @@ public interface PermissionMapper {
                 .from(permission);
     }
 
+    default QueryExpressionDSL<MyBatis3SelectModelAdapter<Cursor<Permission>>> cursorByExample() {
+        return SelectDSL.selectWithMapper(this::selectCursor, id, permissionName, permissionCode)
+                .from(permission);
+    }
+
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     default QueryExpressionDSL<MyBatis3SelectModelAdapter<List<Permission>>> selectDistinctByExample() {
         return SelectDSL.selectDistinctWithMapper(this::selectMany, id, permissionName, permissionCode)
                 .from(permission);
     }
 
-    @Generated("org.mybatis.generator.api.MyBatisGenerator")
+    @ReplicaRead
+    default List<Permission> selectByUserId(Integer userId) {
+        return selectMany(StatementTemplates.PERMISSIONS_BY_USER_ID.bind(userId));
+    }
+
     default Permission selectByPrimaryKey(Integer id_) {
-        return SelectDSL.selectWithMapper(this::selectOne, id, permissionName, permissionCode)
-                .from(permission)
-                .where(id, isEqualTo(id_))
-                .build()
-                .execute();
+        return selectOne(StatementTemplates.PERMISSION_BY_PRIMARY_KEY.bind(id_));
     }
 
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
@@ -0,0 +1,194 @@
+package com.example.springsecurityrbac.dao;
+
+import com.example.springsecurityrbac.model.User;
+import com.example.springsecurityrbac.model.UserRole;
+import com.example.springsecurityrbac.service.RbacChangeEvent;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.mybatis.dynamic.sql.delete.render.DeleteStatementProvider;
+import org.mybatis.dynamic.sql.insert.render.InsertStatementProvider;
+import org.mybatis.dynamic.sql.update.render.UpdateStatementProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns writes through the RBAC mappers into one {@link RbacChangeEvent} per transaction,
+ * published after commit (or right away outside a transaction). Inside {@link #collect(Supplier)}
+ * the events of all committed transactions are merged and published once at the end.
+ * <p>
+ * A user_role write other than an insert cannot be narrowed down to its users and affects
+ * all of them, unless it runs inside {@link #forUsers(Collection, Supplier)}.
+ */
+@Component
+@Intercepts(@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}))
+public class RbacChangeInterceptor implements Interceptor {
+    private static final Pattern WHERE_PRIMARY_KEY = Pattern.compile("where id = #\\{parameters\\.(\\w+)[^}]*}$");
+    private static final Map<String, String> TABLES = new HashMap<>();
+    private static final ThreadLocal<RbacChangeEvent> COLLECTED = new ThreadLocal<>();
+    private static final ThreadLocal<Collection<Integer>> USERS = new ThreadLocal<>();
+
+    static {
+        TABLES.put(UserMapper.class.getName(), "user");
+        TABLES.put(UserRoleMapper.class.getName(), "user_role");
+        TABLES.put(RoleMapper.class.getName(), "role");
+        TABLES.put(RolePermissionMapper.class.getName(), "role_permission");
+        TABLES.put(PermissionMapper.class.getName(), "permission");
+        TABLES.put(UrlPermissionMapper.class.getName(), "url_permission");
+        TABLES.put(RoleParentMapper.class.getName(), "role_parent");
+        TABLES.put(RoleClosureMapper.class.getName(), "role_closure");
+    }
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Runs work that commits several transactions, such as a chunked bulk operation, and
+     * publishes what they changed as one event when it returns or fails.
+     */
+    public <T> T collect(Supplier<T> work) {
+        if (COLLECTED.get() != null) return work.get();
+        RbacChangeEvent collected = new RbacChangeEvent(this);
+        COLLECTED.set(collected);
+        try {
+            return work.get();
+        } finally {
+            COLLECTED.remove();
+            if (!collected.getTables().isEmpty()) eventPublisher.publishEvent(collected);
+        }
+    }
+
+    /**
+     * Runs a user_role write that only touches rows of the given users.
+     */
+    public <T> T forUsers(Collection<Integer> userIds, Supplier<T> write) {
+        USERS.set(userIds);
+        try {
+            return write.get();
+        } finally {
+            USERS.remove();
+        }
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+        String id = ms.getId();
+        String table = TABLES.get(id.substring(0, id.lastIndexOf('.')));
+        if (table != null) {
+            record(table, invocation.getArgs()[1]);
+        }
+        return result;
+    }
+
+    private void record(String table, Object parameter) {
+        RbacChangeEvent event = currentEvent();
+        event.table(table);
+        switch (table) {
+            case "user":
+                if (parameter instanceof InsertStatementProvider) {
+                    event.newUsername(((User) ((InsertStatementProvider<?>) parameter).getRecord()).getUsername());
+                } else {
+                    event.user(primaryKey(parameter));
+                }
+                break;
+            case "user_role":
+                if (parameter instanceof InsertStatementProvider) {
+                    event.user(((UserRole) ((InsertStatementProvider<?>) parameter).getRecord()).getUserId());
+                } else if (USERS.get() != null) {
+                    USERS.get().forEach(event::user);
+                } else {
+                    event.allUsers();
+                }
+                break;
+            case "role":
+            case "url_permission":
+                break;
+            default:
+                event.allUsers();
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(event);
+        }
+    }
+
+    private void publish(RbacChangeEvent event) {
+        RbacChangeEvent collected = COLLECTED.get();
+        if (collected != null) {
+            collected.merge(event);
+        } else {
+            eventPublisher.publishEvent(event);
+        }
+    }
+
+    private RbacChangeEvent currentEvent() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new RbacChangeEvent(this);
+        }
+        RbacChangeEvent event = (RbacChangeEvent) TransactionSynchronizationManager.getResource(this);
+        if (event == null) {
+            RbacChangeEvent created = new RbacChangeEvent(this);
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    publish(created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(RbacChangeInterceptor.this);
+                }
+            });
+            event = created;
+        }
+        return event;
+    }
+
+    /**
+     * The id bound by a generated {@code ...ByPrimaryKey} update or delete, {@code null} for
+     * any other statement shape.
+     */
+    private static Integer primaryKey(Object parameter) {
+        String sql;
+        Map<String, Object> parameters;
+        if (parameter instanceof UpdateStatementProvider) {
+            sql = ((UpdateStatementProvider) parameter).getUpdateStatement();
+            parameters = ((UpdateStatementProvider) parameter).getParameters();
+        } else if (parameter instanceof DeleteStatementProvider) {
+            sql = ((DeleteStatementProvider) parameter).getDeleteStatement();
+            parameters = ((DeleteStatementProvider) parameter).getParameters();
+        } else {
+            return null;
+        }
+        Matcher matcher = WHERE_PRIMARY_KEY.matcher(sql);
+        if (!matcher.find()) return null;
+        Object id = parameters.get(matcher.group(1));
+        return id instanceof Integer ? (Integer) id : null;
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.springsecurityrbac.dao;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Reads that may be answered by a replica when {@code rbac.datasource.routing.enabled=true}.
+ * Only honoured outside a transaction, a read-write transaction stays on the primary.
+ * On a type it applies to every method.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReplicaRead {
+}
@@ -0,0 +1,27 @@
+package com.example.springsecurityrbac.dao;
+
+import java.sql.JDBCType;
+import org.mybatis.dynamic.sql.SqlColumn;
+import org.mybatis.dynamic.sql.SqlTable;
+
+public final class RoleClosureDynamicSqlSupport {
+    public static final RoleClosure roleClosure = new RoleClosure();
+
+    public static final SqlColumn<Integer> descendantId = roleClosure.descendantId;
+
+    public static final SqlColumn<Integer> ancestorId = roleClosure.ancestorId;
+
+    public static final SqlColumn<Long> pathCount = roleClosure.pathCount;
+
+    public static final class RoleClosure extends SqlTable {
+        public final SqlColumn<Integer> descendantId = column("descendant_id", JDBCType.INTEGER);
+
+        public final SqlColumn<Integer> ancestorId = column("ancestor_id", JDBCType.INTEGER);
+
+        public final SqlColumn<Long> pathCount = column("path_count", JDBCType.BIGINT);
+
+        public RoleClosure() {
+            super("role_closure");
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.springsecurityrbac.dao;
+
+import static com.example.springsecurityrbac.dao.RoleClosureDynamicSqlSupport.*;
+import static org.mybatis.dynamic.sql.SqlBuilder.*;
+
+import com.example.springsecurityrbac.model.RoleClosure;
+import java.util.List;
+import org.apache.ibatis.annotations.DeleteProvider;
+import org.apache.ibatis.annotations.InsertProvider;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.ResultMap;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.SelectProvider;
+import org.apache.ibatis.annotations.UpdateProvider;
+import org.apache.ibatis.type.JdbcType;
+import org.mybatis.dynamic.sql.delete.DeleteDSL;
+import org.mybatis.dynamic.sql.delete.MyBatis3DeleteModelAdapter;
+import org.mybatis.dynamic.sql.delete.render.DeleteStatementProvider;
+import org.mybatis.dynamic.sql.insert.render.InsertStatementProvider;
+import org.mybatis.dynamic.sql.select.MyBatis3SelectModelAdapter;
+import org.mybatis.dynamic.sql.select.QueryExpressionDSL;
+import org.mybatis.dynamic.sql.select.SelectDSL;
+import org.mybatis.dynamic.sql.select.render.SelectStatementProvider;
+import org.mybatis.dynamic.sql.update.UpdateDSL;
+import org.mybatis.dynamic.sql.update.render.UpdateStatementProvider;
+import org.mybatis.dynamic.sql.util.SqlProviderAdapter;
+
+/**
+ * role_closure is derived from role_parent and only written by the role hierarchy service.
+ */
+@Mapper
+public interface RoleClosureMapper {
+    @DeleteProvider(type=SqlProviderAdapter.class, method="delete")
+    int delete(DeleteStatementProvider deleteStatement);
+
+    @InsertProvider(type=SqlProviderAdapter.class, method="insert")
+    int insert(InsertStatementProvider<RoleClosure> insertStatement);
+
+    @SelectProvider(type=SqlProviderAdapter.class, method="select")
+    @ResultMap("RoleClosureResult")
+    RoleClosure selectOne(SelectStatementProvider selectStatement);
+
+    @SelectProvider(type=SqlProviderAdapter.class, method="select")
+    @Results(id="RoleClosureResult", value = {
+        @Result(column="descendant_id", property="descendantId", jdbcType=JdbcType.INTEGER, id=true),
+        @Result(column="ancestor_id", property="ancestorId", jdbcType=JdbcType.INTEGER, id=true),
+        @Result(column="path_count", property="pathCount", jdbcType=JdbcType.BIGINT)
+    })
+    List<RoleClosure> selectMany(SelectStatementProvider selectStatement);
+
+    @UpdateProvider(type=SqlProviderAdapter.class, method="update")
+    int update(UpdateStatementProvider updateStatement);
+
+    /**
+     * Every row of every descendant of {@code roleId}, the role included.
+     */
+    @Select("select c.descendant_id, c.ancestor_id, c.path_count from role_closure d"
+            + " join role_closure c on c.descendant_id = d.descendant_id"
+            + " where d.ancestor_id = #{roleId}")
+    @ResultMap("RoleClosureResult")
+    List<RoleClosure> selectByDescendantsOf(int roleId);
+
+    /**
+     * Locks the role hierarchy for the rest of the transaction, on every node.
+     */
+    @Select("select name from rbac_lock where name = 'role_hierarchy' for update")
+    String lockHierarchy();
+
+    @Select("select r.id from role r where not exists"
+            + " (select 1 from role_closure c where c.descendant_id = r.id and c.ancestor_id = r.id)")
+    List<Integer> selectRolesWithoutSelf();
+
+    /**
+     * Roles deleted while they still have their own closure row.
+     */
+    @Select("select c.descendant_id from role_closure c where c.ancestor_id = c.descendant_id"
+            + " and not exists (select 1 from role r where r.id = c.descendant_id)")
+    List<Integer> selectDeletedRoles();
+
+    default DeleteDSL<MyBatis3DeleteModelAdapter<Integer>> deleteByExample() {
+        return DeleteDSL.deleteFromWithMapper(this::delete, roleClosure);
+    }
+
+    default int deleteByPrimaryKey(Integer descendantId_, Integer ancestorId_) {
+        return DeleteDSL.deleteFromWithMapper(this::delete, roleClosure)
+                .where(descendantId, isEqualTo(descendantId_))
+                .and(ancestorId, isEqualTo(ancestorId_))
+                .build()
+                .execute();
+    }
+
+    default QueryExpressionDSL<MyBatis3SelectModelAdapter<List<RoleClosure>>> selectByExample() {
+        return SelectDSL.selectWithMapper(this::selectMany, descendantId, ancestorId, pathCount)
+                .from(roleClosure);
+    }
+
+    default RoleClosure selectByPrimaryKey(Integer descendantId_, Integer ancestorId_) {
+        return SelectDSL.selectWithMapper(this::selectOne, descendantId, ancestorId, pathCount)
+                .from(roleClosure)
+                .where(descendantId, isEqualTo(descendantId_))
+                .and(ancestorId, isEqualTo(ancestorId_))
+                .build()
+                .execute();
+    }
+
+    default int updatePathCount(Integer descendantId_, Integer ancestorId_, Long pathCount_) {
+        return UpdateDSL.updateWithMapper(this::update, roleClosure)
+                .set(pathCount).equalTo(pathCount_)
+                .where(descendantId, isEqualTo(descendantId_))
+                .and(ancestorId, isEqualTo(ancestorId_))
+                .build()
+                .execute();
+    }
+}
@@ -9,11 +9,13 @@ import javax.annotation.Generated;
 import org.apache.ibatis.annotations.DeleteProvider;
 import org.apache.ibatis.annotations.InsertProvider;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Result;
 import org.apache.ibatis.annotations.ResultMap;
 import org.apache.ibatis.annotations.Results;
 import org.apache.ibatis.annotations.SelectProvider;
 import org.apache.ibatis.annotations.UpdateProvider;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.type.JdbcType;
 import org.mybatis.dynamic.sql.SqlBuilder;
 import org.mybatis.dynamic.sql.delete.DeleteDSL;
@@ -57,6 +59,11 @@ public interface RoleMapper {
     })
     List<Role> selectMany(SelectStatementProvider selectStatement);
 
+    @SelectProvider(type=SqlProviderAdapter.class, method="select")
+    @ResultMap("RoleResult")
+    @Options(fetchSize = 1000)
+    Cursor<Role> selectCursor(SelectStatementProvider selectStatement);
+
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     @UpdateProvider(type=SqlProviderAdapter.class, method="update")
     int update(UpdateStatementProvider updateStatement);
@@ -106,19 +113,19 @@ public interface RoleMapper {
                 .from(role);
     }
 
+    default QueryExpressionDSL<MyBatis3SelectModelAdapter<Cursor<Role>>> cursorByExample() {
+        return SelectDSL.selectWithMapper(this::selectCursor, id, roleName)
+                .from(role);
+    }
+
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     default QueryExpressionDSL<MyBatis3SelectModelAdapter<List<Role>>> selectDistinctByExample() {
         return SelectDSL.selectDistinctWithMapper(this::selectMany, id, roleName)
                 .from(role);
     }
 
-    @Generated("org.mybatis.generator.api.MyBatisGenerator")
     default Role selectByPrimaryKey(Integer id_) {
-        return SelectDSL.selectWithMapper(this::selectOne, id, roleName)
-                .from(role)
-                .where(id, isEqualTo(id_))
-                .build()
-                .execute();
+        return selectOne(StatementTemplates.ROLE_BY_PRIMARY_KEY.bind(id_));
     }
 
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
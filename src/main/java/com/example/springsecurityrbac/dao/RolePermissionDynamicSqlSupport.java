@@ -18,6 +18,9 @@ public final class RolePermissionDynamicSqlSupport {
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     public static final SqlColumn<Integer> permissionId = rolePermission.permissionId;
 
+    @Generated("org.mybatis.generator.api.MyBatisGenerator")
+    public static final SqlColumn<Byte> dataScope = rolePermission.dataScope;
+
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     public static final class RolePermission extends SqlTable {
         public final SqlColumn<Integer> id = column("id", JDBCType.INTEGER);
@@ -26,6 +29,8 @@ public final class RolePermissionDynamicSqlSupport {
 
         public final SqlColumn<Integer> permissionId = column("permission_id", JDBCType.INTEGER);
 
+        public final SqlColumn<Byte> dataScope = column("data_scope", JDBCType.TINYINT);
+
         public RolePermission() {
             super("role_permission");
         }
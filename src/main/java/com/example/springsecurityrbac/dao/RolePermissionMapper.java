@@ -9,11 +9,13 @@ import javax.annotation.Generated;
 import org.apache.ibatis.annotations.DeleteProvider;
 import org.apache.ibatis.annotations.InsertProvider;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Result;
 import org.apache.ibatis.annotations.ResultMap;
 import org.apache.ibatis.annotations.Results;
 import org.apache.ibatis.annotations.SelectProvider;
 import org.apache.ibatis.annotations.UpdateProvider;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.type.JdbcType;
 import org.mybatis.dynamic.sql.SqlBuilder;
 import org.mybatis.dynamic.sql.delete.DeleteDSL;
@@ -54,10 +56,16 @@ public interface RolePermissionMapper {
     @Results(id="RolePermissionResult", value = {
         @Result(column="id", property="id", jdbcType=JdbcType.INTEGER, id=true),
         @Result(column="role_id", property="roleId", jdbcType=JdbcType.INTEGER),
-        @Result(column="permission_id", property="permissionId", jdbcType=JdbcType.INTEGER)
+        @Result(column="permission_id", property="permissionId", jdbcType=JdbcType.INTEGER),
+        @Result(column="data_scope", property="dataScope", jdbcType=JdbcType.TINYINT)
     })
     List<RolePermission> selectMany(SelectStatementProvider selectStatement);
 
+    @SelectProvider(type=SqlProviderAdapter.class, method="select")
+    @ResultMap("RolePermissionResult")
+    @Options(fetchSize = 1000)
+    Cursor<RolePermission> selectCursor(SelectStatementProvider selectStatement);
+
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     @UpdateProvider(type=SqlProviderAdapter.class, method="update")
     int update(UpdateStatementProvider updateStatement);
@@ -88,6 +96,7 @@ public interface RolePermissionMapper {
                 .map(id).toProperty("id")
                 .map(roleId).toProperty("roleId")
                 .map(permissionId).toProperty("permissionId")
+                .map(dataScope).toProperty("dataScope")
                 .build()
                 .render(RenderingStrategy.MYBATIS3));
     }
@@ -99,25 +108,31 @@ public interface RolePermissionMapper {
                 .map(id).toPropertyWhenPresent("id", record::getId)
                 .map(roleId).toPropertyWhenPresent("roleId", record::getRoleId)
                 .map(permissionId).toPropertyWhenPresent("permissionId", record::getPermissionId)
+                .map(dataScope).toPropertyWhenPresent("dataScope", record::getDataScope)
                 .build()
                 .render(RenderingStrategy.MYBATIS3));
     }
 
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     default QueryExpressionDSL<MyBatis3SelectModelAdapter<List<RolePermission>>> selectByExample() {
-        return SelectDSL.selectWithMapper(this::selectMany, id, roleId, permissionId)
+        return SelectDSL.selectWithMapper(this::selectMany, id, roleId, permissionId, dataScope)
+                .from(rolePermission);
+    }
+
+    default QueryExpressionDSL<MyBatis3SelectModelAdapter<Cursor<RolePermission>>> cursorByExample() {
+        return SelectDSL.selectWithMapper(this::selectCursor, id, roleId, permissionId, dataScope)
                 .from(rolePermission);
     }
 
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     default QueryExpressionDSL<MyBatis3SelectModelAdapter<List<RolePermission>>> selectDistinctByExample() {
-        return SelectDSL.selectDistinctWithMapper(this::selectMany, id, roleId, permissionId)
+        return SelectDSL.selectDistinctWithMapper(this::selectMany, id, roleId, permissionId, dataScope)
                 .from(rolePermission);
     }
 
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     default RolePermission selectByPrimaryKey(Integer id_) {
-        return SelectDSL.selectWithMapper(this::selectOne, id, roleId, permissionId)
+        return SelectDSL.selectWithMapper(this::selectOne, id, roleId, permissionId, dataScope)
                 .from(rolePermission)
                 .where(id, isEqualTo(id_))
                 .build()
@@ -129,7 +144,8 @@ public interface RolePermissionMapper {
         return UpdateDSL.updateWithMapper(this::update, rolePermission)
                 .set(id).equalTo(record::getId)
                 .set(roleId).equalTo(record::getRoleId)
-                .set(permissionId).equalTo(record::getPermissionId);
+                .set(permissionId).equalTo(record::getPermissionId)
+                .set(dataScope).equalTo(record::getDataScope);
     }
 
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
@@ -137,7 +153,8 @@ public interface RolePermissionMapper {
         return UpdateDSL.updateWithMapper(this::update, rolePermission)
                 .set(id).equalToWhenPresent(record::getId)
                 .set(roleId).equalToWhenPresent(record::getRoleId)
-                .set(permissionId).equalToWhenPresent(record::getPermissionId);
+                .set(permissionId).equalToWhenPresent(record::getPermissionId)
+                .set(dataScope).equalToWhenPresent(record::getDataScope);
     }
 
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
@@ -145,6 +162,7 @@ public interface RolePermissionMapper {
         return UpdateDSL.updateWithMapper(this::update, rolePermission)
                 .set(roleId).equalTo(record::getRoleId)
                 .set(permissionId).equalTo(record::getPermissionId)
+                .set(dataScope).equalTo(record::getDataScope)
                 .where(id, isEqualTo(record::getId))
                 .build()
                 .execute();
@@ -155,6 +173,7 @@ public interface RolePermissionMapper {
         return UpdateDSL.updateWithMapper(this::update, rolePermission)
                 .set(roleId).equalToWhenPresent(record::getRoleId)
                 .set(permissionId).equalToWhenPresent(record::getPermissionId)
+                .set(dataScope).equalToWhenPresent(record::getDataScope)
                 .where(id, isEqualTo(record::getId))
                 .build()
                 .execute();
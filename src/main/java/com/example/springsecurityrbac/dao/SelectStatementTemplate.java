@@ -0,0 +1,81 @@
+package com.example.springsecurityrbac.dao;
+
+import org.mybatis.dynamic.sql.select.render.SelectStatementProvider;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A select rendered once by the dynamic SQL DSL. The SQL string is kept, only the
+ * parameters are bound per call, in the order the DSL rendered them ({@code p1, p2, ...}).
+ */
+public final class SelectStatementTemplate {
+    private final String selectStatement;
+    private final String[] parameterNames;
+
+    private SelectStatementTemplate(String selectStatement, String[] parameterNames) {
+        this.selectStatement = selectStatement;
+        this.parameterNames = parameterNames;
+    }
+
+    /**
+     * Captures a rendered statement, the values it was rendered with are only placeholders.
+     */
+    public static SelectStatementTemplate of(SelectStatementProvider rendered) {
+        String[] names = rendered.getParameters().keySet().stream()
+                .sorted(Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder()))
+                .toArray(String[]::new);
+        return new SelectStatementTemplate(rendered.getSelectStatement(), names);
+    }
+
+    /**
+     * This statement with a {@code limit} appended, bound after the other parameters. The DSL
+     * cannot render one itself.
+     */
+    public SelectStatementTemplate limit() {
+        String[] names = Arrays.copyOf(parameterNames, parameterNames.length + 1);
+        names[parameterNames.length] = "limit";
+        return new SelectStatementTemplate(selectStatement + " limit #{parameters.limit,jdbcType=INTEGER}", names);
+    }
+
+    public SelectStatementProvider bind(Object... values) {
+        if (values.length != parameterNames.length) {
+            throw new IllegalArgumentException("expected " + parameterNames.length + " parameters, got " + values.length);
+        }
+        if (values.length == 1) {
+            return new BoundStatement(selectStatement, Collections.singletonMap(parameterNames[0], values[0]));
+        }
+        Map<String, Object> parameters = new HashMap<>(values.length * 2);
+        for (int i = 0; i < values.length; i++) {
+            parameters.put(parameterNames[i], values[i]);
+        }
+        return new BoundStatement(selectStatement, parameters);
+    }
+
+    public String getSelectStatement() {
+        return selectStatement;
+    }
+
+    private static final class BoundStatement implements SelectStatementProvider {
+        private final String selectStatement;
+        private final Map<String, Object> parameters;
+
+        BoundStatement(String selectStatement, Map<String, Object> parameters) {
+            this.selectStatement = selectStatement;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public Map<String, Object> getParameters() {
+            return parameters;
+        }
+
+        @Override
+        public String getSelectStatement() {
+            return selectStatement;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.springsecurityrbac.dao;
+
+import com.example.springsecurityrbac.model.Permission;
+import com.example.springsecurityrbac.model.Role;
+import com.example.springsecurityrbac.model.RoleClosure;
+import com.example.springsecurityrbac.model.RoleParent;
+import com.example.springsecurityrbac.model.RolePermission;
+import com.example.springsecurityrbac.model.UrlPermission;
+import com.example.springsecurityrbac.model.User;
+import com.example.springsecurityrbac.model.UserRole;
+import org.mybatis.dynamic.sql.render.RenderingStrategy;
+
+import static org.mybatis.dynamic.sql.SqlBuilder.equalTo;
+import static org.mybatis.dynamic.sql.SqlBuilder.insert;
+import static org.mybatis.dynamic.sql.SqlBuilder.isEqualTo;
+import static org.mybatis.dynamic.sql.SqlBuilder.select;
+
+/**
+ * Pre-rendered query shapes of the login path and the {@code selectByPrimaryKey} helpers,
+ * and the inserts of the bulk assignment API, the role hierarchy and the RBAC import
+ * (the latter keep the ids). Permissions of a user are joined through role_closure, so
+ * inherited roles resolve in the same query, and so do the data scopes a user holds for one
+ * permission.
+ */
+public final class StatementTemplates {
+
+    public static final SelectStatementTemplate USER_BY_USERNAME = SelectStatementTemplate.of(
+            select(UserDynamicSqlSupport.id, UserDynamicSqlSupport.username, UserDynamicSqlSupport.password, UserDynamicSqlSupport.locked)
+                    .from(UserDynamicSqlSupport.user)
+                    .where(UserDynamicSqlSupport.username, isEqualTo(""))
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final SelectStatementTemplate PERMISSIONS_BY_USER_ID = SelectStatementTemplate.of(
+            select(PermissionDynamicSqlSupport.id, PermissionDynamicSqlSupport.permissionCode, PermissionDynamicSqlSupport.permissionName)
+                    .from(PermissionDynamicSqlSupport.permission)
+                    .join(RolePermissionDynamicSqlSupport.rolePermission).on(RolePermissionDynamicSqlSupport.permissionId, equalTo(PermissionDynamicSqlSupport.id))
+                    .join(RoleClosureDynamicSqlSupport.roleClosure).on(RoleClosureDynamicSqlSupport.ancestorId, equalTo(RolePermissionDynamicSqlSupport.roleId))
+                    .join(UserRoleDynamicSqlSupport.userRole).on(UserRoleDynamicSqlSupport.roleId, equalTo(RoleClosureDynamicSqlSupport.descendantId))
+                    .where(UserRoleDynamicSqlSupport.userId, isEqualTo(0))
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final SelectStatementTemplate DATA_SCOPES_BY_USER_ID = SelectStatementTemplate.of(
+            select(RolePermissionDynamicSqlSupport.id, RolePermissionDynamicSqlSupport.dataScope)
+                    .from(RolePermissionDynamicSqlSupport.rolePermission)
+                    .join(PermissionDynamicSqlSupport.permission).on(PermissionDynamicSqlSupport.id, equalTo(RolePermissionDynamicSqlSupport.permissionId))
+                    .join(RoleClosureDynamicSqlSupport.roleClosure).on(RoleClosureDynamicSqlSupport.ancestorId, equalTo(RolePermissionDynamicSqlSupport.roleId))
+                    .join(UserRoleDynamicSqlSupport.userRole).on(UserRoleDynamicSqlSupport.roleId, equalTo(RoleClosureDynamicSqlSupport.descendantId))
+                    .where(UserRoleDynamicSqlSupport.userId, isEqualTo(0))
+                    .and(PermissionDynamicSqlSupport.permissionCode, isEqualTo(""))
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final SelectStatementTemplate USER_DEPT_BY_PRIMARY_KEY = SelectStatementTemplate.of(
+            select(UserDynamicSqlSupport.id, UserDynamicSqlSupport.deptId)
+                    .from(UserDynamicSqlSupport.user)
+                    .where(UserDynamicSqlSupport.id, isEqualTo(0))
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final SelectStatementTemplate PASSWORD_BY_USER_ID = SelectStatementTemplate.of(
+            select(UserDynamicSqlSupport.id, UserDynamicSqlSupport.password)
+                    .from(UserDynamicSqlSupport.user)
+                    .where(UserDynamicSqlSupport.id, isEqualTo(0))
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final SelectStatementTemplate USER_BY_PRIMARY_KEY = SelectStatementTemplate.of(
+            select(UserDynamicSqlSupport.id, UserDynamicSqlSupport.username, UserDynamicSqlSupport.password, UserDynamicSqlSupport.locked)
+                    .from(UserDynamicSqlSupport.user)
+                    .where(UserDynamicSqlSupport.id, isEqualTo(0))
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final SelectStatementTemplate ROLE_BY_PRIMARY_KEY = SelectStatementTemplate.of(
+            select(RoleDynamicSqlSupport.id, RoleDynamicSqlSupport.roleName)
+                    .from(RoleDynamicSqlSupport.role)
+                    .where(RoleDynamicSqlSupport.id, isEqualTo(0))
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final SelectStatementTemplate PERMISSION_BY_PRIMARY_KEY = SelectStatementTemplate.of(
+            select(PermissionDynamicSqlSupport.id, PermissionDynamicSqlSupport.permissionName, PermissionDynamicSqlSupport.permissionCode)
+                    .from(PermissionDynamicSqlSupport.permission)
+                    .where(PermissionDynamicSqlSupport.id, isEqualTo(0))
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final InsertStatementTemplate<UserRole> USER_ROLE_INSERT = InsertStatementTemplate.of(
+            insert(new UserRole())
+                    .into(UserRoleDynamicSqlSupport.userRole)
+                    .map(UserRoleDynamicSqlSupport.userId).toProperty("userId")
+                    .map(UserRoleDynamicSqlSupport.roleId).toProperty("roleId")
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final InsertStatementTemplate<RolePermission> ROLE_PERMISSION_INSERT = InsertStatementTemplate.of(
+            insert(new RolePermission())
+                    .into(RolePermissionDynamicSqlSupport.rolePermission)
+                    .map(RolePermissionDynamicSqlSupport.roleId).toProperty("roleId")
+                    .map(RolePermissionDynamicSqlSupport.permissionId).toProperty("permissionId")
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final InsertStatementTemplate<RoleParent> ROLE_PARENT_INSERT = InsertStatementTemplate.of(
+            insert(new RoleParent())
+                    .into(RoleParentDynamicSqlSupport.roleParent)
+                    .map(RoleParentDynamicSqlSupport.roleId).toProperty("roleId")
+                    .map(RoleParentDynamicSqlSupport.parentId).toProperty("parentId")
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final InsertStatementTemplate<RoleClosure> ROLE_CLOSURE_INSERT = InsertStatementTemplate.of(
+            insert(new RoleClosure())
+                    .into(RoleClosureDynamicSqlSupport.roleClosure)
+                    .map(RoleClosureDynamicSqlSupport.descendantId).toProperty("descendantId")
+                    .map(RoleClosureDynamicSqlSupport.ancestorId).toProperty("ancestorId")
+                    .map(RoleClosureDynamicSqlSupport.pathCount).toProperty("pathCount")
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final InsertStatementTemplate<Permission> PERMISSION_IMPORT = InsertStatementTemplate.of(
+            insert(new Permission())
+                    .into(PermissionDynamicSqlSupport.permission)
+                    .map(PermissionDynamicSqlSupport.id).toProperty("id")
+                    .map(PermissionDynamicSqlSupport.permissionName).toProperty("permissionName")
+                    .map(PermissionDynamicSqlSupport.permissionCode).toProperty("permissionCode")
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final InsertStatementTemplate<Role> ROLE_IMPORT = InsertStatementTemplate.of(
+            insert(new Role())
+                    .into(RoleDynamicSqlSupport.role)
+                    .map(RoleDynamicSqlSupport.id).toProperty("id")
+                    .map(RoleDynamicSqlSupport.roleName).toProperty("roleName")
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final InsertStatementTemplate<RoleParent> ROLE_PARENT_IMPORT = InsertStatementTemplate.of(
+            insert(new RoleParent())
+                    .into(RoleParentDynamicSqlSupport.roleParent)
+                    .map(RoleParentDynamicSqlSupport.id).toProperty("id")
+                    .map(RoleParentDynamicSqlSupport.roleId).toProperty("roleId")
+                    .map(RoleParentDynamicSqlSupport.parentId).toProperty("parentId")
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final InsertStatementTemplate<User> USER_IMPORT = InsertStatementTemplate.of(
+            insert(new User())
+                    .into(UserDynamicSqlSupport.user)
+                    .map(UserDynamicSqlSupport.id).toProperty("id")
+                    .map(UserDynamicSqlSupport.username).toProperty("username")
+                    .map(UserDynamicSqlSupport.password).toProperty("password")
+                    .map(UserDynamicSqlSupport.locked).toProperty("locked")
+                    .map(UserDynamicSqlSupport.deptId).toProperty("deptId")
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final InsertStatementTemplate<UserRole> USER_ROLE_IMPORT = InsertStatementTemplate.of(
+            insert(new UserRole())
+                    .into(UserRoleDynamicSqlSupport.userRole)
+                    .map(UserRoleDynamicSqlSupport.id).toProperty("id")
+                    .map(UserRoleDynamicSqlSupport.userId).toProperty("userId")
+                    .map(UserRoleDynamicSqlSupport.roleId).toProperty("roleId")
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final InsertStatementTemplate<RolePermission> ROLE_PERMISSION_IMPORT = InsertStatementTemplate.of(
+            insert(new RolePermission())
+                    .into(RolePermissionDynamicSqlSupport.rolePermission)
+                    .map(RolePermissionDynamicSqlSupport.id).toProperty("id")
+                    .map(RolePermissionDynamicSqlSupport.roleId).toProperty("roleId")
+                    .map(RolePermissionDynamicSqlSupport.permissionId).toProperty("permissionId")
+                    .map(RolePermissionDynamicSqlSupport.dataScope).toProperty("dataScope")
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    public static final InsertStatementTemplate<UrlPermission> URL_PERMISSION_IMPORT = InsertStatementTemplate.of(
+            insert(new UrlPermission())
+                    .into(UrlPermissionDynamicSqlSupport.urlPermission)
+                    .map(UrlPermissionDynamicSqlSupport.id).toProperty("id")
+                    .map(UrlPermissionDynamicSqlSupport.urlPattern).toProperty("urlPattern")
+                    .map(UrlPermissionDynamicSqlSupport.httpMethod).toProperty("httpMethod")
+                    .map(UrlPermissionDynamicSqlSupport.permissionId).toProperty("permissionId")
+                    .build().render(RenderingStrategy.MYBATIS3));
+
+    private StatementTemplates() {
+    }
+}
@@ -21,6 +21,9 @@ public final class UserDynamicSqlSupport {
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     public static final SqlColumn<Boolean> locked = user.locked;
 
+    @Generated("org.mybatis.generator.api.MyBatisGenerator")
+    public static final SqlColumn<Integer> deptId = user.deptId;
+
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     public static final class User extends SqlTable {
         public final SqlColumn<Integer> id = column("id", JDBCType.INTEGER);
@@ -31,6 +34,8 @@ public final class UserDynamicSqlSupport {
 
         public final SqlColumn<Boolean> locked = column("locked", JDBCType.BIT);
 
+        public final SqlColumn<Integer> deptId = column("dept_id", JDBCType.INTEGER);
+
         public User() {
             super("user");
         }
@@ -9,11 +9,14 @@ import javax.annotation.Generated;
 import org.apache.ibatis.annotations.DeleteProvider;
 import org.apache.ibatis.annotations.InsertProvider;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Result;
 import org.apache.ibatis.annotations.ResultMap;
 import org.apache.ibatis.annotations.Results;
 import org.apache.ibatis.annotations.SelectProvider;
 import org.apache.ibatis.annotations.UpdateProvider;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.type.JdbcType;
 import org.mybatis.dynamic.sql.SqlBuilder;
 import org.mybatis.dynamic.sql.delete.DeleteDSL;
@@ -55,10 +58,16 @@ public interface UserMapper {
         @Result(column="id", property="id", jdbcType=JdbcType.INTEGER, id=true),
         @Result(column="username", property="username", jdbcType=JdbcType.VARCHAR),
         @Result(column="password", property="password", jdbcType=JdbcType.VARCHAR),
-        @Result(column="locked", property="locked", jdbcType=JdbcType.BIT)
+        @Result(column="locked", property="locked", jdbcType=JdbcType.BIT),
+        @Result(column="dept_id", property="deptId", jdbcType=JdbcType.INTEGER)
     })
     List<User> selectMany(SelectStatementProvider selectStatement);
 
+    @SelectProvider(type=SqlProviderAdapter.class, method="select")
+    @ResultMap("UserResult")
+    @Options(fetchSize = 1000)
+    Cursor<User> selectCursor(SelectStatementProvider selectStatement);
+
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     @UpdateProvider(type=SqlProviderAdapter.class, method="update")
     int update(UpdateStatementProvider updateStatement);
@@ -90,6 +99,7 @@ public interface UserMapper {
                 .map(username).toProperty("username")
                 .map(password).toProperty("password")
                 .map(locked).toProperty("locked")
+                .map(deptId).toProperty("deptId")
                 .build()
                 .render(RenderingStrategy.MYBATIS3));
     }
@@ -102,29 +112,49 @@ public interface UserMapper {
                 .map(username).toPropertyWhenPresent("username", record::getUsername)
                 .map(password).toPropertyWhenPresent("password", record::getPassword)
                 .map(locked).toPropertyWhenPresent("locked", record::getLocked)
+                .map(deptId).toPropertyWhenPresent("deptId", record::getDeptId)
                 .build()
                 .render(RenderingStrategy.MYBATIS3));
     }
 
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     default QueryExpressionDSL<MyBatis3SelectModelAdapter<List<User>>> selectByExample() {
-        return SelectDSL.selectWithMapper(this::selectMany, id, username, password, locked)
+        return SelectDSL.selectWithMapper(this::selectMany, id, username, password, locked, deptId)
+                .from(user);
+    }
+
+    default QueryExpressionDSL<MyBatis3SelectModelAdapter<Cursor<User>>> cursorByExample() {
+        return SelectDSL.selectWithMapper(this::selectCursor, id, username, password, locked, deptId)
                 .from(user);
     }
 
+    default MyBatis3SelectModelAdapter<Cursor<User>> cursorOfUsernames() {
+        return SelectDSL.selectWithMapper(this::selectCursor, username)
+                .from(user)
+                .build();
+    }
+
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     default QueryExpressionDSL<MyBatis3SelectModelAdapter<List<User>>> selectDistinctByExample() {
-        return SelectDSL.selectDistinctWithMapper(this::selectMany, id, username, password, locked)
+        return SelectDSL.selectDistinctWithMapper(this::selectMany, id, username, password, locked, deptId)
                 .from(user);
     }
 
-    @Generated("org.mybatis.generator.api.MyBatisGenerator")
+    @ReplicaRead
+    User selectWithPermissionsByUsername(@Param("username") String username);
+
+    @ReplicaRead
+    default User selectByUsername(String username_) {
+        return selectOne(StatementTemplates.USER_BY_USERNAME.bind(username_));
+    }
+
+    @ReplicaRead
+    default User selectPasswordByPrimaryKey(Integer id_) {
+        return selectOne(StatementTemplates.PASSWORD_BY_USER_ID.bind(id_));
+    }
+
     default User selectByPrimaryKey(Integer id_) {
-        return SelectDSL.selectWithMapper(this::selectOne, id, username, password, locked)
-                .from(user)
-                .where(id, isEqualTo(id_))
-                .build()
-                .execute();
+        return selectOne(StatementTemplates.USER_BY_PRIMARY_KEY.bind(id_));
     }
 
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
@@ -133,7 +163,8 @@ public interface UserMapper {
                 .set(id).equalTo(record::getId)
                 .set(username).equalTo(record::getUsername)
                 .set(password).equalTo(record::getPassword)
-                .set(locked).equalTo(record::getLocked);
+                .set(locked).equalTo(record::getLocked)
+                .set(deptId).equalTo(record::getDeptId);
     }
 
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
@@ -142,7 +173,8 @@ public interface UserMapper {
                 .set(id).equalToWhenPresent(record::getId)
                 .set(username).equalToWhenPresent(record::getUsername)
                 .set(password).equalToWhenPresent(record::getPassword)
-                .set(locked).equalToWhenPresent(record::getLocked);
+                .set(locked).equalToWhenPresent(record::getLocked)
+                .set(deptId).equalToWhenPresent(record::getDeptId);
     }
 
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
@@ -151,6 +183,7 @@ public interface UserMapper {
                 .set(username).equalTo(record::getUsername)
                 .set(password).equalTo(record::getPassword)
                 .set(locked).equalTo(record::getLocked)
+                .set(deptId).equalTo(record::getDeptId)
                 .where(id, isEqualTo(record::getId))
                 .build()
                 .execute();
@@ -162,6 +195,7 @@ public interface UserMapper {
                 .set(username).equalToWhenPresent(record::getUsername)
                 .set(password).equalToWhenPresent(record::getPassword)
                 .set(locked).equalToWhenPresent(record::getLocked)
+                .set(deptId).equalToWhenPresent(record::getDeptId)
                 .where(id, isEqualTo(record::getId))
                 .build()
                 .execute();
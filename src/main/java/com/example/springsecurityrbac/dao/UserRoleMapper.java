@@ -9,11 +9,13 @@ import javax.annotation.Generated;
 import org.apache.ibatis.annotations.DeleteProvider;
 import org.apache.ibatis.annotations.InsertProvider;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Result;
 import org.apache.ibatis.annotations.ResultMap;
 import org.apache.ibatis.annotations.Results;
 import org.apache.ibatis.annotations.SelectProvider;
 import org.apache.ibatis.annotations.UpdateProvider;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.type.JdbcType;
 import org.mybatis.dynamic.sql.SqlBuilder;
 import org.mybatis.dynamic.sql.delete.DeleteDSL;
@@ -58,6 +60,11 @@ public interface UserRoleMapper {
     })
     List<UserRole> selectMany(SelectStatementProvider selectStatement);
 
+    @SelectProvider(type=SqlProviderAdapter.class, method="select")
+    @ResultMap("UserRoleResult")
+    @Options(fetchSize = 1000)
+    Cursor<UserRole> selectCursor(SelectStatementProvider selectStatement);
+
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     @UpdateProvider(type=SqlProviderAdapter.class, method="update")
     int update(UpdateStatementProvider updateStatement);
@@ -109,6 +116,11 @@ public interface UserRoleMapper {
                 .from(userRole);
     }
 
+    default QueryExpressionDSL<MyBatis3SelectModelAdapter<Cursor<UserRole>>> cursorByExample() {
+        return SelectDSL.selectWithMapper(this::selectCursor, id, userId, roleId)
+                .from(userRole);
+    }
+
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     default QueryExpressionDSL<MyBatis3SelectModelAdapter<List<UserRole>>> selectDistinctByExample() {
         return SelectDSL.selectDistinctWithMapper(this::selectMany, id, userId, roleId)
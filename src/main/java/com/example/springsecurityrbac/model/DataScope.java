@@ -0,0 +1,28 @@
+package com.example.springsecurityrbac.model;
+
+/**
+ * Rows a permission reaches, stored in {@code role_permission.data_scope}. A user holding a
+ * permission through several roles gets the widest scope.
+ */
+public enum DataScope {
+    OWN(1),
+    DEPARTMENT(2),
+    ALL(3);
+
+    private final int code;
+
+    DataScope(int code) {
+        this.code = code;
+    }
+
+    /**
+     * {@code null} is a grant without restriction.
+     */
+    public static DataScope of(Byte code) {
+        if (code == null) return ALL;
+        for (DataScope scope : values()) {
+            if (scope.code == code) return scope;
+        }
+        throw new IllegalArgumentException("unknown data scope " + code);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.springsecurityrbac.model;
+
+import lombok.Data;
+
+/**
+ * One row of the transitive closure of {@code role_parent}: the descendant role inherits the
+ * permissions of the ancestor role over {@code pathCount} distinct paths.
+ */
+@Data
+public class RoleClosure {
+    private Integer descendantId;
+    private Integer ancestorId;
+    private Long pathCount;
+
+    public static RoleClosure of(int descendantId, int ancestorId, long pathCount) {
+        RoleClosure closure = new RoleClosure();
+        closure.setDescendantId(descendantId);
+        closure.setAncestorId(ancestorId);
+        closure.setPathCount(pathCount);
+        return closure;
+    }
+}
@@ -12,6 +12,9 @@ public class RolePermission {
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     private Integer permissionId;
 
+    @Generated("org.mybatis.generator.api.MyBatisGenerator")
+    private Byte dataScope;
+
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     public Integer getId() {
         return id;
@@ -41,4 +44,14 @@ public class RolePermission {
     public void setPermissionId(Integer permissionId) {
         this.permissionId = permissionId;
     }
+
+    @Generated("org.mybatis.generator.api.MyBatisGenerator")
+    public Byte getDataScope() {
+        return dataScope;
+    }
+
+    @Generated("org.mybatis.generator.api.MyBatisGenerator")
+    public void setDataScope(Byte dataScope) {
+        this.dataScope = dataScope;
+    }
 }
\ No newline at end of file
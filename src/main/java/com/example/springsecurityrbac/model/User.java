@@ -3,11 +3,11 @@ package com.example.springsecurityrbac.model;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import javax.annotation.Generated;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 public class User implements UserDetails {
@@ -23,8 +23,20 @@ public class User implements UserDetails {
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     private Boolean locked;
 
+    @Generated("org.mybatis.generator.api.MyBatisGenerator")
+    private Integer deptId;
+
+    @Getter@Setter
+    private Set<? extends GrantedAuthority> permissions;
+
+    @Getter@Setter
+    private transient List<Permission> grantedPermissions;
+
+    @Getter@Setter
+    private long rbacVersion;
+
     @Getter@Setter
-    private Set<SimpleGrantedAuthority> permissions;
+    private long userVersion;
 
     @Generated("org.mybatis.generator.api.MyBatisGenerator")
     public Integer getId() {
@@ -71,7 +83,7 @@ public class User implements UserDetails {
         return permissions;
     }
 
-    public void setAuthorities(Set<SimpleGrantedAuthority> permissions){
+    public void setAuthorities(Set<? extends GrantedAuthority> permissions){
         this.permissions = permissions;
     }
 
@@ -94,4 +106,14 @@ public class User implements UserDetails {
     public void setLocked(Boolean locked) {
         this.locked = locked;
     }
+
+    @Generated("org.mybatis.generator.api.MyBatisGenerator")
+    public Integer getDeptId() {
+        return deptId;
+    }
+
+    @Generated("org.mybatis.generator.api.MyBatisGenerator")
+    public void setDeptId(Integer deptId) {
+        this.deptId = deptId;
+    }
 }
\ No newline at end of file
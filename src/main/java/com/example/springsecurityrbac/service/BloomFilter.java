@@ -0,0 +1,84 @@
+package com.example.springsecurityrbac.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter of strings over an {@link AtomicLongArray}, so that concurrent inserts and
+ * lookups need no lock. Sized for an expected number of insertions and false-positive rate;
+ * the probes are derived from one 64-bit hash of the UTF-8 bytes by double hashing.
+ */
+final class BloomFilter {
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final LongAdder insertions = new LongAdder();
+
+    BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long wordCount = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (LN2 * LN2) / Long.SIZE);
+        if (wordCount > Integer.MAX_VALUE) throw new IllegalArgumentException("bloom filter of " + wordCount + " words");
+        this.words = new AtomicLongArray((int) Math.max(1, wordCount));
+        this.bits = (long) words.length() * Long.SIZE;
+        this.hashes = (int) Math.max(1, Math.round((double) bits / n * LN2));
+    }
+
+    void put(String value) {
+        long h1 = hash(value);
+        long h2 = fmix64(h1 + 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+        insertions.increment();
+    }
+
+    boolean mightContain(String value) {
+        long h1 = hash(value);
+        long h2 = fmix64(h1 + 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    long insertions() {
+        return insertions.sum();
+    }
+
+    long bytes() {
+        return bits / Byte.SIZE;
+    }
+
+    private static long hash(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long h = bytes.length * 0xC6A4A7935BD1E995L;
+        int i = 0;
+        for (; i + 8 <= bytes.length; i += 8) {
+            long k = 0;
+            for (int b = 7; b >= 0; b--) k = k << 8 | (bytes[i + b] & 0xFF);
+            h = Long.rotateLeft(h ^ fmix64(k), 27) * 5 + 0x52DCE729;
+        }
+        long k = 0;
+        for (int b = bytes.length - 1; b >= i; b--) k = k << 8 | (bytes[b] & 0xFF);
+        return fmix64(h ^ fmix64(k));
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB93FE53B2A7CL;
+        k ^= k >>> 33;
+        return k;
+    }
+}
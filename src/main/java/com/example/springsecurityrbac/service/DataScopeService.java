@@ -0,0 +1,114 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.dao.DataScopeColumns;
+import com.example.springsecurityrbac.dao.RolePermissionMapper;
+import com.example.springsecurityrbac.dao.StatementTemplates;
+import com.example.springsecurityrbac.dao.UserMapper;
+import com.example.springsecurityrbac.model.DataScope;
+import com.example.springsecurityrbac.model.RolePermission;
+import com.example.springsecurityrbac.model.User;
+import org.mybatis.dynamic.sql.select.QueryExpressionDSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+import static org.mybatis.dynamic.sql.SqlBuilder.isEqualTo;
+import static org.mybatis.dynamic.sql.SqlBuilder.isNotNull;
+
+/**
+ * Pushes the data scope of the current user down into a query as its first where criterion,
+ * so rows out of scope are never read: {@link DataScope#OWN} compares the owner column with the
+ * user id, {@link DataScope#DEPARTMENT} the department column with the user's department (a user
+ * without one only sees their own rows), {@link DataScope#ALL} leaves the query unrestricted.
+ * <p>
+ * The scope is looked up per call with one indexed query over the user's roles, their ancestors
+ * and the grants of the permission, so it follows role changes without a new login.
+ */
+@Service
+public class DataScopeService {
+    @Autowired
+    private RolePermissionMapper rolePermissionMapper;
+    @Autowired
+    private UserMapper userMapper;
+
+    public <R> QueryExpressionDSL<R>.QueryExpressionWhereBuilder restrict(QueryExpressionDSL<R> query, String permissionCode,
+                                                                          DataScopeColumns columns) {
+        return restrict(query, grantOf(permissionCode), columns);
+    }
+
+    public <R> QueryExpressionDSL<R>.QueryExpressionWhereBuilder restrict(QueryExpressionDSL<R> query, Grant grant,
+                                                                          DataScopeColumns columns) {
+        switch (grant.getScope()) {
+            case OWN:
+                return query.where(columns.getOwner(), isEqualTo(grant.getUserId()));
+            case DEPARTMENT:
+                return query.where(columns.getDepartment(), isEqualTo(grant.getDeptId()));
+            default:
+                return query.where(columns.getOwner(), isNotNull());
+        }
+    }
+
+    /**
+     * Values {@link #restrict} binds for a grant, in the order they are rendered. A statement
+     * rendered once with a placeholder grant of the same scope takes them.
+     */
+    public static Object[] restrictionValues(Grant grant) {
+        switch (grant.getScope()) {
+            case OWN:
+                return new Object[]{grant.getUserId()};
+            case DEPARTMENT:
+                return new Object[]{grant.getDeptId()};
+            default:
+                return new Object[0];
+        }
+    }
+
+    /**
+     * Widest scope the current user holds the permission with.
+     *
+     * @throws AccessDeniedException if none of the user's roles grants it
+     */
+    public Grant grantOf(String permissionCode) {
+        return grantOf(currentUserId(), permissionCode);
+    }
+
+    /**
+     * Widest scope the user holds the permission with.
+     *
+     * @throws AccessDeniedException if none of the user's roles grants it
+     */
+    public Grant grantOf(int userId, String permissionCode) {
+        List<RolePermission> grants = rolePermissionMapper.selectMany(StatementTemplates.DATA_SCOPES_BY_USER_ID.bind(userId, permissionCode));
+        if (grants.isEmpty()) throw new AccessDeniedException("Access is denied");
+        DataScope scope = DataScope.OWN;
+        for (RolePermission grant : grants) {
+            DataScope granted = DataScope.of(grant.getDataScope());
+            if (granted.compareTo(scope) > 0) scope = granted;
+        }
+        if (scope != DataScope.DEPARTMENT) return new Grant(scope, userId, null);
+        User user = userMapper.selectOne(StatementTemplates.USER_DEPT_BY_PRIMARY_KEY.bind(userId));
+        if (user == null || user.getDeptId() == null) return new Grant(DataScope.OWN, userId, null);
+        return new Grant(scope, userId, user.getDeptId());
+    }
+
+    private static int currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            throw new AuthenticationCredentialsNotFoundException("An Authentication object was not found in the SecurityContext");
+        }
+        if (!(authentication.getPrincipal() instanceof User)) throw new AccessDeniedException("Access is denied");
+        return ((User) authentication.getPrincipal()).getId();
+    }
+
+    @lombok.Value
+    public static class Grant {
+        DataScope scope;
+        int userId;
+        Integer deptId;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.springsecurityrbac.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of {@link SecurityUserService#loadUserByUsername(String)}. All meters are
+ * registered up front, recording takes {@link System#nanoTime()} deltas and allocates nothing.
+ */
+@Component
+public class LoginMetrics {
+    private static final String LOAD = "rbac.login.load";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer total;
+    private Timer userLookup;
+    private Timer permissionLoad;
+    private Timer authorityBuild;
+    private Counter cacheHit;
+    private Counter cacheMiss;
+    private Counter notFound;
+
+    @PostConstruct
+    public void init() {
+        total = phase("total");
+        userLookup = phase("user-lookup");
+        permissionLoad = phase("permission-load");
+        authorityBuild = phase("authority-build");
+        cacheHit = Counter.builder("rbac.login.cache").tag("result", "hit").register(meterRegistry);
+        cacheMiss = Counter.builder("rbac.login.cache").tag("result", "miss").register(meterRegistry);
+        notFound = Counter.builder("rbac.login.not-found").register(meterRegistry);
+    }
+
+    private Timer phase(String phase) {
+        return Timer.builder(LOAD).tag("phase", phase)
+                .description("time spent in loadUserByUsername, by phase")
+                .register(meterRegistry);
+    }
+
+    public void total(long nanos) {
+        total.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void userLookup(long nanos) {
+        userLookup.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void permissionLoad(long nanos) {
+        permissionLoad.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void authorityBuild(long nanos) {
+        authorityBuild.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void cache(boolean hit) {
+        (hit ? cacheHit : cacheMiss).increment();
+    }
+
+    public void notFound() {
+        notFound.increment();
+    }
+}
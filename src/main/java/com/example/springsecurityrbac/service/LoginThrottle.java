@@ -0,0 +1,255 @@
+package com.example.springsecurityrbac.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Login attempt limits per username and per client address, checked before the user is
+ * loaded. Attempts are counted in sliding windows approximated from two fixed ones (the
+ * previous window's count weighted by the part of it still inside the sliding one), and
+ * bad passwords beyond {@code free-failures} block the username for an exponentially
+ * growing back-off; a successful login resets it. The back-off is kept per username and
+ * client address, so wrong passwords sent from one address do not lock the account out
+ * everywhere else; the username window stays as the coarse cap across addresses.
+ * <p>
+ * The counters live in a bounded local cache that drops idle keys, one packed
+ * {@link AtomicLong} per key updated without locks. With {@code rbac.login.throttle.shared=true}
+ * they are kept in Redis instead, so the limits hold across nodes, at one pipelined round trip
+ * per attempt.
+ * <p>
+ * The client address is the request's remote address; behind a proxy it takes
+ * {@code server.use-forward-headers=true}. Only the servlet login is throttled.
+ */
+@Service
+@ConditionalOnProperty(prefix = "rbac.login.throttle", name = "enabled", matchIfMissing = true)
+public class LoginThrottle {
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final int MAX_COUNT = 0xFFFF;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${rbac.login.throttle.window-seconds:60}")
+    private long windowSeconds;
+    @Value("${rbac.login.throttle.username-limit:10}")
+    private int usernameLimit;
+    @Value("${rbac.login.throttle.client-limit:100}")
+    private int clientLimit;
+    @Value("${rbac.login.throttle.free-failures:3}")
+    private int freeFailures;
+    @Value("${rbac.login.throttle.backoff-base-millis:1000}")
+    private long backoffBaseMillis;
+    @Value("${rbac.login.throttle.backoff-max-seconds:900}")
+    private long backoffMaxSeconds;
+    @Value("${rbac.login.throttle.maximum-size:100000}")
+    private long maximumSize;
+    @Value("${rbac.login.throttle.shared:false}")
+    private boolean shared;
+
+    private long windowMillis;
+    private long idleMillis;
+    private Cache<String, Window> windows;
+    private Counter throttledUsername;
+    private Counter throttledClient;
+    private Counter throttledBackoff;
+
+    @PostConstruct
+    public void init() {
+        windowMillis = TimeUnit.SECONDS.toMillis(windowSeconds);
+        idleMillis = Math.max(2 * windowMillis, TimeUnit.SECONDS.toMillis(backoffMaxSeconds));
+        windows = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(idleMillis, TimeUnit.MILLISECONDS)
+                .executor(Runnable::run)
+                .build();
+        throttledUsername = throttled("username");
+        throttledClient = throttled("client");
+        throttledBackoff = throttled("backoff");
+    }
+
+    private Counter throttled(String reason) {
+        return Counter.builder("rbac.login.throttled").tag("reason", reason)
+                .description("login attempts rejected before the user was loaded")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts a login attempt and answers how many milliseconds the client has to wait, 0 when
+     * the attempt may go on to authentication.
+     */
+    public long attempt(String username, String clientAddress) {
+        String user = userKey(username);
+        String client = "c:" + truncate(clientAddress);
+        long now = System.currentTimeMillis();
+        long blockedMillis;
+        double userAttempts;
+        double clientAttempts;
+        if (shared) {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                count(connection, user, now);
+                count(connection, client, now);
+                connection.pTtl(redisKey("blocked:", failureKey(user, client)));
+                return null;
+            });
+            userAttempts = estimate(now, toLong(results.get(0)), toLong(results.get(2)));
+            clientAttempts = estimate(now, toLong(results.get(3)), toLong(results.get(5)));
+            blockedMillis = Math.max(0, toLong(results.get(6)));
+        } else {
+            userAttempts = windows.get(user, key -> new Window()).increment(now);
+            clientAttempts = windows.get(client, key -> new Window()).increment(now);
+            Window failures = windows.getIfPresent(failureKey(user, client));
+            blockedMillis = failures == null ? 0 : Math.max(0, failures.blockedUntil - now);
+        }
+        if (blockedMillis > 0) {
+            throttledBackoff.increment();
+            return blockedMillis;
+        }
+        if (userAttempts > usernameLimit) {
+            throttledUsername.increment();
+            return windowMillis - now % windowMillis;
+        }
+        if (clientAttempts > clientLimit) {
+            throttledClient.increment();
+            return windowMillis - now % windowMillis;
+        }
+        return 0;
+    }
+
+    @EventListener
+    public void onFailure(AuthenticationFailureBadCredentialsEvent event) {
+        String failureKey = failureKey(event.getAuthentication());
+        if (shared) {
+            byte[] key = redisKey("failures:", failureKey);
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.incr(key);
+                connection.pExpire(key, idleMillis);
+                return null;
+            });
+            long backoff = backoff(toLong(results.get(0)));
+            if (backoff == 0) return;
+            redisTemplate.execute((RedisCallback<Object>) connection -> connection.set(redisKey("blocked:", failureKey),
+                    new byte[]{1}, Expiration.milliseconds(backoff), RedisStringCommands.SetOption.UPSERT));
+        } else {
+            Window window = windows.get(failureKey, key -> new Window());
+            long backoff = backoff(window.failures.incrementAndGet());
+            if (backoff > 0) window.blockedUntil = System.currentTimeMillis() + backoff;
+        }
+    }
+
+    @EventListener
+    public void onSuccess(AuthenticationSuccessEvent event) {
+        String failureKey = failureKey(event.getAuthentication());
+        if (shared) {
+            redisTemplate.delete(new String(redisKey("failures:", failureKey), StandardCharsets.UTF_8));
+        } else {
+            Window window = windows.getIfPresent(failureKey);
+            if (window != null) window.failures.set(0);
+        }
+    }
+
+    private void count(RedisConnection connection, String key, long now) {
+        long window = now / windowMillis;
+        byte[] current = redisKey("attempts:", key + ":" + window);
+        connection.incr(current);
+        connection.pExpire(current, 2 * windowMillis);
+        connection.get(redisKey("attempts:", key + ":" + (window - 1)));
+    }
+
+    private long backoff(long failures) {
+        if (failures <= freeFailures) return 0;
+        return Math.min(backoffBaseMillis << Math.min(failures - freeFailures - 1, 30),
+                TimeUnit.SECONDS.toMillis(backoffMaxSeconds));
+    }
+
+    private double estimate(long now, long current, long previous) {
+        return previous * (1 - (now % windowMillis) / (double) windowMillis) + current;
+    }
+
+    /**
+     * Failures are counted for the address the form was posted from, which the web
+     * authentication details carry from the same request the filter saw.
+     */
+    private static String failureKey(Authentication authentication) {
+        Object details = authentication.getDetails();
+        String address = details instanceof WebAuthenticationDetails ? ((WebAuthenticationDetails) details).getRemoteAddress() : null;
+        return failureKey(userKey(authentication.getName()), "c:" + truncate(address == null ? "" : address));
+    }
+
+    private static String failureKey(String userKey, String clientKey) {
+        return "f:" + userKey + "|" + clientKey;
+    }
+
+    private static String userKey(String username) {
+        return "u:" + truncate(username == null ? "" : username.trim().toLowerCase(Locale.ROOT));
+    }
+
+    private static String truncate(String value) {
+        return value.length() > MAX_KEY_LENGTH ? value.substring(0, MAX_KEY_LENGTH) : value;
+    }
+
+    private static byte[] redisKey(String kind, String key) {
+        return ("rbac:login:" + kind + key).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long toLong(Object value) {
+        if (value == null) return 0;
+        return value instanceof Long ? (Long) value : Long.parseLong(value.toString());
+    }
+
+    /**
+     * Attempts of one key: the number of the current fixed window in the upper 32 bits, its
+     * count and the previous window's count in 16 bits each, saturating.
+     */
+    private final class Window {
+        final AtomicLong state = new AtomicLong();
+        final AtomicInteger failures = new AtomicInteger();
+        volatile long blockedUntil;
+
+        double increment(long now) {
+            long window = now / windowMillis;
+            long current;
+            long previous;
+            long next;
+            long prior;
+            do {
+                prior = state.get();
+                long stateWindow = prior >>> 32;
+                current = (prior >>> 16) & MAX_COUNT;
+                previous = prior & MAX_COUNT;
+                if (stateWindow != (window & 0xFFFFFFFFL)) {
+                    previous = stateWindow == ((window - 1) & 0xFFFFFFFFL) ? current : 0;
+                    current = 0;
+                }
+                current = Math.min(current + 1, MAX_COUNT);
+                next = (window << 32) | (current << 16) | previous;
+            } while (!state.compareAndSet(prior, next));
+            return estimate(now, current, previous);
+        }
+    }
+}
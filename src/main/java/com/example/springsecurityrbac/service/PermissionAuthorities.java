@@ -0,0 +1,205 @@
+package com.example.springsecurityrbac.service;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only {@link GrantedAuthority} set backed by a {@code long[]} bitset of
+ * {@link PermissionRegistry} indexes. Iteration hands out the registry's shared
+ * authority instances, so a session holds the bits only.
+ */
+public final class PermissionAuthorities extends AbstractSet<GrantedAuthority> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long[] bits;
+    private final transient SimpleGrantedAuthority[] authorities;
+    private final int size;
+
+    PermissionAuthorities(long[] bits, SimpleGrantedAuthority[] authorities) {
+        this.bits = bits;
+        this.authorities = authorities;
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        this.size = count;
+    }
+
+    public static Builder builder(PermissionRegistry registry) {
+        return new Builder(registry);
+    }
+
+    /**
+     * The bitset of an authenticated principal, {@code null} when it was not built from
+     * {@link PermissionRegistry} bits. Authentication tokens copy their authorities into a
+     * plain list, so the bits are taken from the principal.
+     */
+    public static PermissionAuthorities of(Authentication authentication) {
+        if (authentication == null) return null;
+        Object principal = authentication.getPrincipal();
+        if (principal instanceof UserDetails) {
+            Collection<? extends GrantedAuthority> authorities = ((UserDetails) principal).getAuthorities();
+            if (authorities instanceof PermissionAuthorities) return (PermissionAuthorities) authorities;
+        }
+        return null;
+    }
+
+    public boolean has(int index) {
+        int word = index >>> 6;
+        return index >= 0 && word < bits.length && (bits[word] & (1L << index)) != 0;
+    }
+
+    public boolean hasAll(int[] indexes) {
+        for (int index : indexes) {
+            if (!has(index)) return false;
+        }
+        return true;
+    }
+
+    public boolean hasAny(int[] indexes) {
+        for (int index : indexes) {
+            if (has(index)) return true;
+        }
+        return false;
+    }
+
+    public int[] indexes() {
+        int[] indexes = new int[size];
+        int i = 0;
+        for (int index = nextSetBit(0); index >= 0; index = nextSetBit(index + 1)) {
+            indexes[i++] = index;
+        }
+        return indexes;
+    }
+
+    public long[] toBits() {
+        return bits.clone();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof GrantedAuthority)) return false;
+        PermissionRegistry registry = PermissionRegistry.current();
+        return registry != null && has(registry.indexOf(((GrantedAuthority) o).getAuthority()));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<GrantedAuthority> iterator() {
+        return new Iterator<GrantedAuthority>() {
+            private int next = nextSetBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public GrantedAuthority next() {
+                if (next < 0) throw new NoSuchElementException();
+                GrantedAuthority authority = authorities[next];
+                next = nextSetBit(next + 1);
+                return authority;
+            }
+        };
+    }
+
+    private int nextSetBit(int from) {
+        int word = from >>> 6;
+        if (word >= bits.length) return -1;
+        long current = bits[word] & (-1L << from);
+        while (true) {
+            if (current != 0) return (word << 6) + Long.numberOfTrailingZeros(current);
+            if (++word == bits.length) return -1;
+            current = bits[word];
+        }
+    }
+
+    /**
+     * Serialized by permission code, indexes are local to one registry and may differ
+     * between nodes sharing a session store.
+     */
+    private Object writeReplace() {
+        String[] codes = new String[size];
+        int i = 0;
+        for (GrantedAuthority authority : this) {
+            codes[i++] = authority.getAuthority();
+        }
+        return new SerializedForm(codes);
+    }
+
+    private static final class SerializedForm implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] codes;
+
+        SerializedForm(String[] codes) {
+            this.codes = codes;
+        }
+
+        private Object readResolve() {
+            PermissionRegistry registry = PermissionRegistry.current();
+            if (registry == null) {
+                Set<SimpleGrantedAuthority> sga = new HashSet<>();
+                Arrays.stream(codes).forEach(code -> sga.add(new SimpleGrantedAuthority(code)));
+                return sga;
+            }
+            Builder builder = builder(registry);
+            for (String code : codes) {
+                builder.add(registry.indexOf(code));
+            }
+            return builder.build();
+        }
+    }
+
+    public static final class Builder {
+        private final PermissionRegistry registry;
+        private long[] bits = new long[0];
+
+        private Builder(PermissionRegistry registry) {
+            this.registry = registry;
+        }
+
+        public Builder add(int index) {
+            if (index < 0) return this;
+            int word = index >>> 6;
+            if (word >= bits.length) bits = Arrays.copyOf(bits, word + 1);
+            bits[word] |= 1L << index;
+            return this;
+        }
+
+        public Builder or(long[] other) {
+            if (other.length > bits.length) bits = Arrays.copyOf(bits, other.length);
+            for (int i = 0; i < other.length; i++) {
+                bits[i] |= other[i];
+            }
+            return this;
+        }
+
+        public boolean isEmpty() {
+            for (long word : bits) {
+                if (word != 0) return false;
+            }
+            return true;
+        }
+
+        public PermissionAuthorities build() {
+            return new PermissionAuthorities(bits, registry.authorities());
+        }
+    }
+}
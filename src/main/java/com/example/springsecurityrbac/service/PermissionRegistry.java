@@ -0,0 +1,170 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.config.PermissionContact;
+import com.example.springsecurityrbac.dao.PermissionMapper;
+import com.example.springsecurityrbac.model.Permission;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Assigns a dense int to every permission, in ascending {@code permission.id} order.
+ * The table is append-only: a refresh keeps existing indexes and adds new permissions
+ * at the end, so bitsets built earlier stay valid.
+ */
+@Slf4j
+@Service
+public class PermissionRegistry {
+    private static final long MISS_REFRESH_INTERVAL_MILLIS = 5000;
+    private static volatile PermissionRegistry current;
+
+    @Autowired
+    private PermissionMapper permissionMapper;
+
+    private volatile Table table = new Table(new int[0], new SimpleGrantedAuthority[0],
+            new HashMap<>(), new HashMap<>(), new IdentityHashMap<>());
+    private volatile long lastRefresh;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    /**
+     * The registry of the running application, used where no bean can be injected
+     * (deserialization of session principals).
+     */
+    public static PermissionRegistry current() {
+        return current;
+    }
+
+    @PostConstruct
+    public void init() {
+        refresh();
+        current = this;
+    }
+
+    /**
+     * Reached from logins that meet a new permission id, so it may run on a virtual thread:
+     * the query is made under a lock that parks, not inside a monitor that pins the carrier.
+     */
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            load();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void load() {
+        lastRefresh = System.currentTimeMillis();
+        Table old = table;
+        List<Permission> permissions = permissionMapper.selectByExample().build().execute();
+        permissions.sort(Comparator.comparing(Permission::getId));
+
+        int size = old.ids.length;
+        int[] ids = Arrays.copyOf(old.ids, size + permissions.size());
+        SimpleGrantedAuthority[] authorities = Arrays.copyOf(old.authorities, ids.length);
+        Map<Integer, Integer> idIndex = new HashMap<>(old.idIndex);
+        Map<String, Integer> codeIndex = new HashMap<>(old.codeIndex);
+        for (Permission p : permissions) {
+            if (idIndex.containsKey(p.getId())) continue;
+            ids[size] = p.getId();
+            authorities[size] = new SimpleGrantedAuthority(p.getPermissionCode());
+            idIndex.put(p.getId(), size);
+            codeIndex.put(p.getPermissionCode(), size);
+            size++;
+        }
+        if (size == old.ids.length) return;
+
+        Map<String, Integer> contactIndex = new IdentityHashMap<>();
+        for (Field field : PermissionContact.class.getFields()) {
+            if (field.getType() != String.class || !Modifier.isStatic(field.getModifiers())) continue;
+            try {
+                String code = (String) field.get(null);
+                Integer index = codeIndex.get(code);
+                if (index != null) contactIndex.put(code, index);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        table = new Table(Arrays.copyOf(ids, size), Arrays.copyOf(authorities, size), idIndex, codeIndex, contactIndex);
+        log.debug("permission registry holds {} permissions", size);
+    }
+
+    public int size() {
+        return table.ids.length;
+    }
+
+    /**
+     * Index of a permission code, -1 when unknown. {@link PermissionContact} constants are
+     * resolved through an identity lookup prepared at refresh time.
+     */
+    public int indexOf(String code) {
+        Table t = table;
+        Integer index = t.contactIndex.get(code);
+        if (index == null) index = t.codeIndex.get(code);
+        return index == null ? -1 : index;
+    }
+
+    public int indexOfId(Integer permissionId) {
+        Integer index = table.idIndex.get(permissionId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Like {@link #indexOfId(Integer)}, refreshing once when the permission was created after
+     * the last refresh. Ids of deleted permissions trigger at most one refresh per interval.
+     */
+    public int resolveId(Integer permissionId) {
+        int index = indexOfId(permissionId);
+        if (index < 0 && System.currentTimeMillis() - lastRefresh > MISS_REFRESH_INTERVAL_MILLIS) {
+            refresh();
+            index = indexOfId(permissionId);
+        }
+        return index;
+    }
+
+    public int permissionId(int index) {
+        return table.ids[index];
+    }
+
+    /**
+     * Authority at a registry index, {@code null} for an index this registry does not hold
+     * (a literal in an expression, or an index from a node that has refreshed more recently).
+     */
+    public SimpleGrantedAuthority authority(int index) {
+        SimpleGrantedAuthority[] authorities = table.authorities;
+        return index >= 0 && index < authorities.length ? authorities[index] : null;
+    }
+
+    SimpleGrantedAuthority[] authorities() {
+        return table.authorities;
+    }
+
+    private static final class Table {
+        final int[] ids;
+        final SimpleGrantedAuthority[] authorities;
+        final Map<Integer, Integer> idIndex;
+        final Map<String, Integer> codeIndex;
+        final Map<String, Integer> contactIndex;
+
+        Table(int[] ids, SimpleGrantedAuthority[] authorities, Map<Integer, Integer> idIndex,
+              Map<String, Integer> codeIndex, Map<String, Integer> contactIndex) {
+            this.ids = ids;
+            this.authorities = authorities;
+            this.idIndex = idIndex;
+            this.codeIndex = codeIndex;
+            this.contactIndex = contactIndex;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.dao.BatchMappers;
+import com.example.springsecurityrbac.dao.IdConditions;
+import com.example.springsecurityrbac.dao.PermissionDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.PermissionMapper;
+import com.example.springsecurityrbac.dao.RbacChangeInterceptor;
+import com.example.springsecurityrbac.dao.RoleMapper;
+import com.example.springsecurityrbac.dao.RolePermissionDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.RolePermissionMapper;
+import com.example.springsecurityrbac.dao.StatementTemplates;
+import com.example.springsecurityrbac.dao.UserDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.UserMapper;
+import com.example.springsecurityrbac.dao.UserRoleDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.UserRoleMapper;
+import com.example.springsecurityrbac.model.Permission;
+import com.example.springsecurityrbac.model.RolePermission;
+import com.example.springsecurityrbac.model.User;
+import com.example.springsecurityrbac.model.UserRole;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.dynamic.sql.select.SelectDSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.mybatis.dynamic.sql.SqlBuilder.isEqualTo;
+
+/**
+ * Bulk grant and revoke of user_role and role_permission rows.
+ * <p>
+ * Ids are sorted and processed in chunks of {@code rbac.assignment.batch-size}, every chunk
+ * in its own transaction. A chunk reads the pairs that already exist and the ids that are known,
+ * then only inserts the missing pairs (one prepared statement, executed as a JDBC batch)
+ * or deletes the present ones (one {@code delete ... in (...)}). A failing chunk rolls back
+ * alone, the chunks before it stay committed.
+ * <p>
+ * The changes of all chunks are published as one {@link RbacChangeEvent} once the last chunk
+ * is done (or one failed), so a bulk call costs one cache invalidation, not one per chunk.
+ * A revoke from users invalidates just those users.
+ */
+@Slf4j
+@Service
+public class RbacAssignmentService {
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private RoleMapper roleMapper;
+    @Autowired
+    private RbacChangeInterceptor rbacChangeInterceptor;
+
+    @Value("${rbac.assignment.batch-size:1000}")
+    private int batchSize;
+
+    private TransactionTemplate chunkTransaction;
+    private UserMapper userMapper;
+    private PermissionMapper permissionMapper;
+    private UserRoleMapper userRoleMapper;
+    private RolePermissionMapper rolePermissionMapper;
+
+    @PostConstruct
+    public void init() {
+        BatchMappers batch = new BatchMappers(sqlSessionFactory);
+        userMapper = batch.get(UserMapper.class);
+        permissionMapper = batch.get(PermissionMapper.class);
+        userRoleMapper = batch.get(UserRoleMapper.class);
+        rolePermissionMapper = batch.get(RolePermissionMapper.class);
+        chunkTransaction = new TransactionTemplate(transactionManager);
+        chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public Result assignUsers(int roleId, Collection<Integer> userIds) {
+        return apply("assign role " + roleId + " to users", roleId, userIds, chunk -> {
+            Set<Integer> present = usersOf(roleId, chunk);
+            Set<Integer> known = knownUsers(chunk);
+            int inserted = 0;
+            for (Integer userId : chunk) {
+                if (present.contains(userId) || !known.contains(userId)) continue;
+                UserRole record = new UserRole();
+                record.setUserId(userId);
+                record.setRoleId(roleId);
+                userRoleMapper.insert(StatementTemplates.USER_ROLE_INSERT.bind(record));
+                inserted++;
+            }
+            return inserted;
+        });
+    }
+
+    public Result revokeUsers(int roleId, Collection<Integer> userIds) {
+        return apply("revoke role " + roleId + " from users", roleId, userIds, chunk -> {
+            Set<Integer> present = usersOf(roleId, chunk);
+            if (present.isEmpty()) return 0;
+            rbacChangeInterceptor.forUsers(present, () -> userRoleMapper.deleteByExample()
+                    .where(UserRoleDynamicSqlSupport.roleId, isEqualTo(roleId))
+                    .and(UserRoleDynamicSqlSupport.userId, IdConditions.exactly(sorted(present)))
+                    .build().execute());
+            return present.size();
+        });
+    }
+
+    public Result assignPermissions(int roleId, Collection<Integer> permissionIds) {
+        return apply("assign permissions to role " + roleId, roleId, permissionIds, chunk -> {
+            Set<Integer> present = permissionsOf(roleId, chunk);
+            Set<Integer> known = knownPermissions(chunk);
+            int inserted = 0;
+            for (Integer permissionId : chunk) {
+                if (present.contains(permissionId) || !known.contains(permissionId)) continue;
+                RolePermission record = new RolePermission();
+                record.setRoleId(roleId);
+                record.setPermissionId(permissionId);
+                rolePermissionMapper.insert(StatementTemplates.ROLE_PERMISSION_INSERT.bind(record));
+                inserted++;
+            }
+            return inserted;
+        });
+    }
+
+    public Result revokePermissions(int roleId, Collection<Integer> permissionIds) {
+        return apply("revoke permissions from role " + roleId, roleId, permissionIds, chunk -> {
+            Set<Integer> present = permissionsOf(roleId, chunk);
+            if (present.isEmpty()) return 0;
+            rolePermissionMapper.deleteByExample()
+                    .where(RolePermissionDynamicSqlSupport.roleId, isEqualTo(roleId))
+                    .and(RolePermissionDynamicSqlSupport.permissionId, IdConditions.exactly(sorted(present)))
+                    .build().execute();
+            return present.size();
+        });
+    }
+
+    private Result apply(String operation, int roleId, Collection<Integer> ids, Chunk chunk) {
+        if (roleMapper.selectByPrimaryKey(roleId) == null) throw new UnknownRoleException(roleId);
+        return rbacChangeInterceptor.collect(() -> applyChunks(operation, ids, chunk));
+    }
+
+    private Result applyChunks(String operation, Collection<Integer> ids, Chunk chunk) {
+        long start = System.currentTimeMillis();
+        List<Integer> distinct = ids.stream().filter(Objects::nonNull).distinct().sorted().collect(Collectors.toList());
+        int size = Math.max(1, batchSize);
+        int changed = 0;
+        int chunks = 0;
+        for (int from = 0; from < distinct.size(); from += size) {
+            List<Integer> part = distinct.subList(from, Math.min(from + size, distinct.size()));
+            Integer count = chunkTransaction.execute(status -> chunk.apply(part));
+            changed += count;
+            chunks++;
+            log.info("{}: {}/{} ids done, {} rows changed", operation, from + part.size(), distinct.size(), changed);
+        }
+        return new Result(distinct.size(), changed, distinct.size() - changed, chunks, System.currentTimeMillis() - start);
+    }
+
+    private Set<Integer> usersOf(int roleId, List<Integer> userIds) {
+        return userRoleMapper.selectByExample()
+                .where(UserRoleDynamicSqlSupport.roleId, isEqualTo(roleId))
+                .and(UserRoleDynamicSqlSupport.userId, IdConditions.covering(userIds))
+                .build().execute()
+                .stream().map(UserRole::getUserId).filter(id -> IdConditions.contains(userIds, id)).collect(Collectors.toSet());
+    }
+
+    private Set<Integer> permissionsOf(int roleId, List<Integer> permissionIds) {
+        return rolePermissionMapper.selectByExample()
+                .where(RolePermissionDynamicSqlSupport.roleId, isEqualTo(roleId))
+                .and(RolePermissionDynamicSqlSupport.permissionId, IdConditions.covering(permissionIds))
+                .build().execute()
+                .stream().map(RolePermission::getPermissionId).filter(id -> IdConditions.contains(permissionIds, id)).collect(Collectors.toSet());
+    }
+
+    private Set<Integer> knownUsers(List<Integer> userIds) {
+        return SelectDSL.selectWithMapper(userMapper::selectMany, UserDynamicSqlSupport.id)
+                .from(UserDynamicSqlSupport.user)
+                .where(UserDynamicSqlSupport.id, IdConditions.covering(userIds))
+                .build().execute()
+                .stream().map(User::getId).collect(Collectors.toSet());
+    }
+
+    private Set<Integer> knownPermissions(List<Integer> permissionIds) {
+        return SelectDSL.selectWithMapper(permissionMapper::selectMany, PermissionDynamicSqlSupport.id)
+                .from(PermissionDynamicSqlSupport.permission)
+                .where(PermissionDynamicSqlSupport.id, IdConditions.covering(permissionIds))
+                .build().execute()
+                .stream().map(Permission::getId).collect(Collectors.toSet());
+    }
+
+    private static List<Integer> sorted(Set<Integer> ids) {
+        return ids.stream().sorted().collect(Collectors.toList());
+    }
+
+    private interface Chunk {
+        int apply(List<Integer> ids);
+    }
+
+    /**
+     * Outcome of one bulk call: distinct ids requested, rows inserted or deleted, ids skipped
+     * because the pair already existed (or was already gone) or the id is unknown.
+     */
+    @lombok.Value
+    public static class Result {
+        int requested;
+        int changed;
+        int skipped;
+        int chunks;
+        long millis;
+    }
+}
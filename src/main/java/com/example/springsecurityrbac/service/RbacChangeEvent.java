@@ -0,0 +1,57 @@
+package com.example.springsecurityrbac.service;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Writes to the RBAC tables, collected per transaction and published after commit.
+ * {@code allUsers} is set when a write cannot be narrowed down to single users.
+ */
+@Getter
+public class RbacChangeEvent extends ApplicationEvent {
+    private final Set<String> tables = new HashSet<>();
+    private final Set<Integer> userIds = new HashSet<>();
+    private final Set<String> newUsernames = new HashSet<>();
+    private boolean allUsers;
+
+    public RbacChangeEvent(Object source) {
+        super(source);
+    }
+
+    public void table(String table) {
+        tables.add(table);
+    }
+
+    public void user(Integer userId) {
+        if (userId == null) {
+            allUsers = true;
+        } else {
+            userIds.add(userId);
+        }
+    }
+
+    public void newUsername(String username) {
+        if (username != null) newUsernames.add(username);
+    }
+
+    public void allUsers() {
+        allUsers = true;
+    }
+
+    /**
+     * Adds the changes of another transaction to this event.
+     */
+    public void merge(RbacChangeEvent other) {
+        tables.addAll(other.tables);
+        userIds.addAll(other.userIds);
+        newUsernames.addAll(other.newUsernames);
+        allUsers |= other.allUsers;
+    }
+
+    public boolean affectsUsers() {
+        return allUsers || !userIds.isEmpty();
+    }
+}
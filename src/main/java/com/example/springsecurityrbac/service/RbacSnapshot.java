@@ -0,0 +1,119 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.model.Role;
+import com.example.springsecurityrbac.model.RoleClosure;
+import com.example.springsecurityrbac.model.RolePermission;
+import com.example.springsecurityrbac.model.UserRole;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable, int-indexed copy of the role / role_permission / user_role tables.
+ * Roles and users are addressed by their slot in a sorted id array. Every role keeps
+ * its permissions, including those inherited through role_closure, as a
+ * {@link PermissionRegistry} bitset, the user->roles relation is stored as CSR
+ * (offsets + flat role slots).
+ */
+public final class RbacSnapshot {
+
+    private final PermissionRegistry registry;
+
+    private final int[] roleIds;
+    private final long[][] rolePermissionBits;
+
+    private final int[] userIds;
+    private final int[] userRoleOffsets;
+    private final int[] userRoleSlots;
+
+    private RbacSnapshot(PermissionRegistry registry, int[] roleIds, long[][] rolePermissionBits,
+                         int[] userIds, int[] userRoleOffsets, int[] userRoleSlots) {
+        this.registry = registry;
+        this.roleIds = roleIds;
+        this.rolePermissionBits = rolePermissionBits;
+        this.userIds = userIds;
+        this.userRoleOffsets = userRoleOffsets;
+        this.userRoleSlots = userRoleSlots;
+    }
+
+    public static RbacSnapshot build(PermissionRegistry registry, List<Role> roles,
+                                     List<RolePermission> rolePermissions, List<RoleClosure> roleClosure,
+                                     List<UserRole> userRoles) {
+        int[] roleIds = sortedIds(roles.stream().mapToInt(Role::getId).toArray());
+        PermissionAuthorities.Builder[] builders = new PermissionAuthorities.Builder[roleIds.length];
+        for (RolePermission rp : rolePermissions) {
+            int role = Arrays.binarySearch(roleIds, rp.getRoleId());
+            if (role < 0) continue;
+            if (builders[role] == null) builders[role] = PermissionAuthorities.builder(registry);
+            builders[role].add(registry.indexOfId(rp.getPermissionId()));
+        }
+        long[][] directBits = new long[roleIds.length][];
+        for (int i = 0; i < roleIds.length; i++) {
+            directBits[i] = builders[i] == null ? new long[0] : builders[i].build().toBits();
+        }
+        PermissionAuthorities.Builder[] inherited = new PermissionAuthorities.Builder[roleIds.length];
+        for (RoleClosure rc : roleClosure) {
+            if (rc.getAncestorId().equals(rc.getDescendantId())) continue;
+            int ancestor = Arrays.binarySearch(roleIds, rc.getAncestorId());
+            int descendant = Arrays.binarySearch(roleIds, rc.getDescendantId());
+            if (ancestor < 0 || descendant < 0 || directBits[ancestor].length == 0) continue;
+            if (inherited[descendant] == null) inherited[descendant] = PermissionAuthorities.builder(registry).or(directBits[descendant]);
+            inherited[descendant].or(directBits[ancestor]);
+        }
+        long[][] rolePermissionBits = new long[roleIds.length][];
+        for (int i = 0; i < roleIds.length; i++) {
+            rolePermissionBits[i] = inherited[i] == null ? directBits[i] : inherited[i].build().toBits();
+        }
+
+        int[] userIds = sortedIds(userRoles.stream().mapToInt(UserRole::getUserId).toArray());
+        int[] from = new int[userRoles.size()];
+        int[] to = new int[userRoles.size()];
+        int count = 0;
+        for (UserRole ur : userRoles) {
+            int role = Arrays.binarySearch(roleIds, ur.getRoleId());
+            if (role >= 0) {
+                from[count] = Arrays.binarySearch(userIds, ur.getUserId());
+                to[count++] = role;
+            }
+        }
+        int[] userRoleOffsets = new int[userIds.length + 1];
+        int[] userRoleSlots = new int[count];
+        for (int i = 0; i < count; i++) {
+            userRoleOffsets[from[i] + 1]++;
+        }
+        for (int i = 1; i < userRoleOffsets.length; i++) {
+            userRoleOffsets[i] += userRoleOffsets[i - 1];
+        }
+        int[] cursor = Arrays.copyOf(userRoleOffsets, userIds.length);
+        for (int i = 0; i < count; i++) {
+            userRoleSlots[cursor[from[i]]++] = to[i];
+        }
+
+        return new RbacSnapshot(registry, roleIds, rolePermissionBits, userIds, userRoleOffsets, userRoleSlots);
+    }
+
+    /**
+     * Resolves the effective authorities of a user, {@code null} when the user holds none.
+     */
+    public PermissionAuthorities authoritiesOf(int userId) {
+        int user = Arrays.binarySearch(userIds, userId);
+        if (user < 0) return null;
+        PermissionAuthorities.Builder builder = PermissionAuthorities.builder(registry);
+        for (int i = userRoleOffsets[user]; i < userRoleOffsets[user + 1]; i++) {
+            builder.or(rolePermissionBits[userRoleSlots[i]]);
+        }
+        return builder.isEmpty() ? null : builder.build();
+    }
+
+    public int roleCount() {
+        return roleIds.length;
+    }
+
+    public int userCount() {
+        return userIds.length;
+    }
+
+    private static int[] sortedIds(int[] ids) {
+        return Arrays.stream(ids).sorted().distinct().toArray();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.dao.RoleClosureMapper;
+import com.example.springsecurityrbac.dao.RoleMapper;
+import com.example.springsecurityrbac.dao.RolePermissionMapper;
+import com.example.springsecurityrbac.dao.UserRoleMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Holds the current {@link RbacSnapshot}. A refresh builds a complete new snapshot and
+ * publishes it with a single volatile write, readers never see a half-built copy. Refreshes
+ * run one at a time, so a slower one cannot publish over a newer snapshot, and the first
+ * readers wait for the same initial load instead of each running their own.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "rbac.snapshot", name = "enabled")
+public class RbacSnapshotService {
+    @Autowired
+    private RoleMapper roleMapper;
+    @Autowired
+    private PermissionRegistry permissionRegistry;
+    @Autowired
+    private RolePermissionMapper rolePermissionMapper;
+    @Autowired
+    private RoleClosureMapper roleClosureMapper;
+    @Autowired
+    private UserRoleMapper userRoleMapper;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private volatile RbacSnapshot snapshot;
+    private TransactionTemplate readTransaction;
+
+    @PostConstruct
+    public void init() {
+        readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+    }
+
+    public PermissionAuthorities authoritiesOf(int userId) {
+        RbacSnapshot current = snapshot;
+        if (current == null) current = firstSnapshot();
+        return current.authoritiesOf(userId);
+    }
+
+    private synchronized RbacSnapshot firstSnapshot() {
+        if (snapshot == null) refresh();
+        return snapshot;
+    }
+
+    /**
+     * Reads all tables in one read-only transaction of its own rather than through
+     * {@code @Transactional}, which the calls from within this class would bypass.
+     */
+    @Scheduled(fixedDelayString = "${rbac.snapshot.refresh-interval:60000}")
+    public synchronized void refresh() {
+        long start = System.currentTimeMillis();
+        RbacSnapshot next = readTransaction.execute(status -> {
+            permissionRegistry.refresh();
+            return RbacSnapshot.build(permissionRegistry,
+                    roleMapper.selectByExample().build().execute(),
+                    rolePermissionMapper.selectByExample().build().execute(),
+                    roleClosureMapper.selectByExample().build().execute(),
+                    userRoleMapper.selectByExample().build().execute());
+        });
+        snapshot = next;
+        log.debug("rbac snapshot refreshed in {}ms: {} users, {} roles, {} permissions",
+                System.currentTimeMillis() - start, next.userCount(), next.roleCount(), permissionRegistry.size());
+    }
+
+    /**
+     * Rebuilds before the RBAC version is bumped, so principals reloaded for the new version
+     * on this node do not pick up the old snapshot, and after the read-your-writes window of
+     * a routing data source has opened, so the rebuild does not read a lagging replica.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @EventListener
+    public void onRbacChange(RbacChangeEvent event) {
+        if (event.affectsUsers()) refresh();
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.dao.BatchMappers;
+import com.example.springsecurityrbac.dao.IdConditions;
+import com.example.springsecurityrbac.dao.InsertStatementTemplate;
+import com.example.springsecurityrbac.dao.PermissionDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.PermissionMapper;
+import com.example.springsecurityrbac.dao.RoleDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.RoleMapper;
+import com.example.springsecurityrbac.dao.RoleParentDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.RoleParentMapper;
+import com.example.springsecurityrbac.dao.RolePermissionDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.RolePermissionMapper;
+import com.example.springsecurityrbac.dao.StatementTemplates;
+import com.example.springsecurityrbac.dao.UrlPermissionDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.UrlPermissionMapper;
+import com.example.springsecurityrbac.dao.UserDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.UserMapper;
+import com.example.springsecurityrbac.dao.UserRoleDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.UserRoleMapper;
+import com.example.springsecurityrbac.model.Permission;
+import com.example.springsecurityrbac.model.Role;
+import com.example.springsecurityrbac.model.RoleParent;
+import com.example.springsecurityrbac.model.RolePermission;
+import com.example.springsecurityrbac.model.UrlPermission;
+import com.example.springsecurityrbac.model.User;
+import com.example.springsecurityrbac.model.UserRole;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.dynamic.sql.insert.render.InsertStatementProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Streaming export and import of the RBAC tables as NDJSON, one record per line keyed by
+ * its table: {@code {"user":{"id":1,"username":"liubo",...}}}.
+ * <p>
+ * Export reads every table through a MyBatis {@link Cursor} in one read-only transaction,
+ * so the dump is a consistent snapshot and only the rows of one fetch are held in memory
+ * (on MySQL with {@code useCursorFetch=true} in the url, otherwise the driver reads it all).
+ * Import parses record by record and inserts chunks of {@code rbac.transfer.batch-size}
+ * rows through a batch executor, every chunk in its own transaction. Ids are kept, rows
+ * whose id already exists are skipped, so an interrupted import can be run again.
+ * role_closure is not transferred, it is rebuilt after role_parent rows were imported.
+ */
+@Slf4j
+@Service
+public class RbacTransferService {
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private RoleMapper roleMapper;
+    @Autowired
+    private PermissionMapper permissionMapper;
+    @Autowired
+    private UserRoleMapper userRoleMapper;
+    @Autowired
+    private RolePermissionMapper rolePermissionMapper;
+    @Autowired
+    private UrlPermissionMapper urlPermissionMapper;
+    @Autowired
+    private RoleParentMapper roleParentMapper;
+    @Autowired
+    private RoleHierarchyService roleHierarchyService;
+
+    @Value("${rbac.transfer.batch-size:1000}")
+    private int batchSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .addMixIn(User.class, UserRecord.class)
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    private final Map<String, Table<?>> tables = new LinkedHashMap<>();
+    private TransactionTemplate exportTransaction;
+    private TransactionTemplate chunkTransaction;
+
+    @PostConstruct
+    public void init() {
+        BatchMappers batch = new BatchMappers(sqlSessionFactory);
+        PermissionMapper batchPermissions = batch.get(PermissionMapper.class);
+        RoleMapper batchRoles = batch.get(RoleMapper.class);
+        RoleParentMapper batchRoleParents = batch.get(RoleParentMapper.class);
+        UserMapper batchUsers = batch.get(UserMapper.class);
+        UserRoleMapper batchUserRoles = batch.get(UserRoleMapper.class);
+        RolePermissionMapper batchRolePermissions = batch.get(RolePermissionMapper.class);
+        UrlPermissionMapper batchUrlPermissions = batch.get(UrlPermissionMapper.class);
+
+        add(new Table<>("permission", Permission.class, Permission::getId, StatementTemplates.PERMISSION_IMPORT,
+                () -> permissionMapper.cursorByExample().orderBy(PermissionDynamicSqlSupport.id).build().execute(),
+                ids -> batchPermissions.selectByExample().where(PermissionDynamicSqlSupport.id, IdConditions.covering(ids)).build().execute(),
+                batchPermissions::insert));
+        add(new Table<>("role", Role.class, Role::getId, StatementTemplates.ROLE_IMPORT,
+                () -> roleMapper.cursorByExample().orderBy(RoleDynamicSqlSupport.id).build().execute(),
+                ids -> batchRoles.selectByExample().where(RoleDynamicSqlSupport.id, IdConditions.covering(ids)).build().execute(),
+                batchRoles::insert));
+        add(new Table<>("role_parent", RoleParent.class, RoleParent::getId, StatementTemplates.ROLE_PARENT_IMPORT,
+                () -> roleParentMapper.cursorByExample().orderBy(RoleParentDynamicSqlSupport.id).build().execute(),
+                ids -> batchRoleParents.selectByExample().where(RoleParentDynamicSqlSupport.id, IdConditions.covering(ids)).build().execute(),
+                batchRoleParents::insert));
+        add(new Table<>("user", User.class, User::getId, StatementTemplates.USER_IMPORT,
+                () -> userMapper.cursorByExample().orderBy(UserDynamicSqlSupport.id).build().execute(),
+                ids -> batchUsers.selectByExample().where(UserDynamicSqlSupport.id, IdConditions.covering(ids)).build().execute(),
+                batchUsers::insert));
+        add(new Table<>("user_role", UserRole.class, UserRole::getId, StatementTemplates.USER_ROLE_IMPORT,
+                () -> userRoleMapper.cursorByExample().orderBy(UserRoleDynamicSqlSupport.id).build().execute(),
+                ids -> batchUserRoles.selectByExample().where(UserRoleDynamicSqlSupport.id, IdConditions.covering(ids)).build().execute(),
+                batchUserRoles::insert));
+        add(new Table<>("role_permission", RolePermission.class, RolePermission::getId, StatementTemplates.ROLE_PERMISSION_IMPORT,
+                () -> rolePermissionMapper.cursorByExample().orderBy(RolePermissionDynamicSqlSupport.id).build().execute(),
+                ids -> batchRolePermissions.selectByExample().where(RolePermissionDynamicSqlSupport.id, IdConditions.covering(ids)).build().execute(),
+                batchRolePermissions::insert));
+        add(new Table<>("url_permission", UrlPermission.class, UrlPermission::getId, StatementTemplates.URL_PERMISSION_IMPORT,
+                () -> urlPermissionMapper.cursorByExample().orderBy(UrlPermissionDynamicSqlSupport.id).build().execute(),
+                ids -> batchUrlPermissions.selectByExample().where(UrlPermissionDynamicSqlSupport.id, IdConditions.covering(ids)).build().execute(),
+                batchUrlPermissions::insert));
+
+        exportTransaction = new TransactionTemplate(transactionManager);
+        exportTransaction.setReadOnly(true);
+        chunkTransaction = new TransactionTemplate(transactionManager);
+        chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    private void add(Table<?> table) {
+        tables.put(table.name, table);
+    }
+
+    /**
+     * Writes all tables, parents before the rows referencing them. The stream is flushed but
+     * not closed.
+     */
+    public Result export(OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        Map<String, Long> rows = new LinkedHashMap<>();
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        try {
+            exportTransaction.execute(status -> {
+                tables.values().forEach(table -> rows.put(table.name, write(generator, table)));
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.writeRaw('\n');
+        generator.flush();
+        log.info("rbac export finished in {}ms: {}", System.currentTimeMillis() - start, rows);
+        return new Result(rows, new LinkedHashMap<>(), System.currentTimeMillis() - start);
+    }
+
+    private <T> long write(JsonGenerator generator, Table<T> table) {
+        long count = 0;
+        try (Cursor<T> cursor = table.cursor.get()) {
+            for (T record : cursor) {
+                generator.writeStartObject();
+                generator.writeFieldName(table.name);
+                objectMapper.writeValue(generator, record);
+                generator.writeEndObject();
+                count++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count;
+    }
+
+    /**
+     * Reads records until the end of the stream. The stream is not closed.
+     */
+    public Result importFrom(InputStream in) throws IOException {
+        long start = System.currentTimeMillis();
+        Result result = new Result(new LinkedHashMap<>(), new LinkedHashMap<>(), 0);
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            Chunk<?> chunk = null;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String name = parser.nextFieldName();
+                Table<?> table = tables.get(name);
+                if (table == null) throw new IllegalArgumentException("unknown record type " + name + " at " + parser.getCurrentLocation());
+                parser.nextToken();
+                if (chunk == null || chunk.table != table) {
+                    if (chunk != null) flush(chunk, result);
+                    chunk = new Chunk<>(table);
+                }
+                chunk.read(parser);
+                if (parser.nextToken() != JsonToken.END_OBJECT) {
+                    throw new IllegalArgumentException("one record per line expected at " + parser.getCurrentLocation());
+                }
+                if (chunk.records.size() >= Math.max(1, batchSize)) flush(chunk, result);
+            }
+            if (chunk != null) flush(chunk, result);
+        }
+        if (result.getRows().getOrDefault("role_parent", 0L) > 0) roleHierarchyService.rebuild();
+        log.info("rbac import finished in {}ms: {} rows inserted, {} skipped",
+                System.currentTimeMillis() - start, result.getRows(), result.getSkipped());
+        return new Result(result.getRows(), result.getSkipped(), System.currentTimeMillis() - start);
+    }
+
+    private <T> void flush(Chunk<T> chunk, Result result) {
+        if (chunk.records.isEmpty()) return;
+        Table<T> table = chunk.table;
+        List<T> records = chunk.records;
+        int inserted = chunkTransaction.execute(status -> {
+            List<Integer> ids = records.stream().map(table.id).sorted().collect(Collectors.toList());
+            Set<Integer> existing = table.existing.apply(ids).stream().map(table.id).collect(Collectors.toSet());
+            int count = 0;
+            for (T record : records) {
+                if (existing.contains(table.id.apply(record))) continue;
+                table.insert.accept(table.template.bind(record));
+                count++;
+            }
+            return count;
+        });
+        result.getRows().merge(table.name, (long) inserted, Long::sum);
+        result.getSkipped().merge(table.name, (long) (records.size() - inserted), Long::sum);
+        log.info("rbac import: {} rows of {} inserted so far", result.getRows().get(table.name), table.name);
+        records.clear();
+    }
+
+    private final class Chunk<T> {
+        final Table<T> table;
+        final List<T> records = new ArrayList<>();
+
+        Chunk(Table<T> table) {
+            this.table = table;
+        }
+
+        void read(JsonParser parser) throws IOException {
+            T record = objectMapper.readValue(parser, table.type);
+            if (table.id.apply(record) == null) {
+                throw new IllegalArgumentException(table.name + " record without id at " + parser.getCurrentLocation());
+            }
+            records.add(record);
+        }
+    }
+
+    private static final class Table<T> {
+        final String name;
+        final Class<T> type;
+        final Function<T, Integer> id;
+        final InsertStatementTemplate<T> template;
+        final Supplier<Cursor<T>> cursor;
+        final Function<List<Integer>, List<T>> existing;
+        final Consumer<InsertStatementProvider<T>> insert;
+
+        Table(String name, Class<T> type, Function<T, Integer> id, InsertStatementTemplate<T> template,
+              Supplier<Cursor<T>> cursor, Function<List<Integer>, List<T>> existing,
+              Consumer<InsertStatementProvider<T>> insert) {
+            this.name = name;
+            this.type = type;
+            this.id = id;
+            this.template = template;
+            this.cursor = cursor;
+            this.existing = existing;
+            this.insert = insert;
+        }
+    }
+
+    /**
+     * Only the columns of {@code user} are exported, the login state kept on the model is not.
+     */
+    @JsonIgnoreProperties({"permissions", "grantedPermissions", "rbacVersion", "userVersion"})
+    private interface UserRecord {
+    }
+
+    /**
+     * Rows written or inserted per table, and rows skipped on import because the id exists.
+     */
+    @lombok.Value
+    public static class Result {
+        Map<String, Long> rows;
+        Map<String, Long> skipped;
+        long millis;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.springsecurityrbac.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monotonic RBAC version counters in Redis: a global one, bumped by writes that cannot be
+ * narrowed to single users (role_permission, permission, ...), and one per user, bumped
+ * by that user's user_role and user rows. Reads are cached locally for a short TTL, so
+ * the common request costs no Redis round trip at all.
+ */
+@Service
+@ConditionalOnProperty(prefix = "rbac.version", name = "enabled", matchIfMissing = true)
+public class RbacVersionService {
+    private static final byte[] GLOBAL_KEY = "rbac:version".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${rbac.version.local-ttl-millis:1000}")
+    private long localTtl;
+    @Value("${rbac.version.local-maximum-size:100000}")
+    private long maximumSize;
+
+    private Cache<Integer, VersionStamp> local;
+
+    @PostConstruct
+    public void init() {
+        local = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(localTtl, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    public VersionStamp current(int userId) {
+        VersionStamp stamp = local.getIfPresent(userId);
+        if (stamp == null) {
+            List<byte[]> values = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                    connection.mGet(GLOBAL_KEY, userKey(userId)));
+            stamp = new VersionStamp(toLong(values.get(0)), toLong(values.get(1)));
+            local.put(userId, stamp);
+        }
+        return stamp;
+    }
+
+    /**
+     * Runs after the user cache has been evicted, so a reload triggered by the new version
+     * does not pick up a stale cached user on this node.
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @EventListener
+    public void onRbacChange(RbacChangeEvent event) {
+        if (!event.affectsUsers()) return;
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            if (event.isAllUsers()) {
+                connection.incr(GLOBAL_KEY);
+            } else {
+                event.getUserIds().forEach(id -> connection.incr(userKey(id)));
+            }
+            return null;
+        });
+        if (event.isAllUsers()) {
+            local.invalidateAll();
+        } else {
+            local.invalidateAll(event.getUserIds());
+        }
+    }
+
+    private static byte[] userKey(int userId) {
+        return ("rbac:version:user:" + userId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long toLong(byte[] value) {
+        return value == null ? 0 : Long.parseLong(new String(value, StandardCharsets.UTF_8));
+    }
+}
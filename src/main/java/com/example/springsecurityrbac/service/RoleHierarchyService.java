@@ -0,0 +1,316 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.dao.BatchMappers;
+import com.example.springsecurityrbac.dao.RoleClosureDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.RoleClosureMapper;
+import com.example.springsecurityrbac.dao.RoleDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.RoleMapper;
+import com.example.springsecurityrbac.dao.RoleParentDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.RoleParentMapper;
+import com.example.springsecurityrbac.dao.StatementTemplates;
+import com.example.springsecurityrbac.model.Role;
+import com.example.springsecurityrbac.model.RoleClosure;
+import com.example.springsecurityrbac.model.RoleParent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.dynamic.sql.select.SelectDSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import static org.mybatis.dynamic.sql.SqlBuilder.isEqualTo;
+
+/**
+ * Role inheritance: a role holds the permissions of all its ancestors in role_parent.
+ * <p>
+ * role_closure keeps one row per (descendant, ancestor) pair, including the role itself,
+ * with the number of distinct paths between them. Adding the edge role -> parent adds
+ * {@code paths(a, parent) * paths(role, d)} to every pair of an ancestor {@code a} of the
+ * parent and a descendant {@code d} of the role, removing it subtracts the same amounts and
+ * drops the pairs that reach zero. Only the rows of that rectangle are read and written.
+ * An edge is refused when the role already is an ancestor of the parent.
+ * <p>
+ * Edits are serialized, hierarchy changes are expected to be rare admin work. Every edit
+ * transaction first locks the {@code role_hierarchy} row of rbac_lock, so the cycle check and
+ * the path counts it reads cannot interleave with an edit on another node. On this node edits
+ * also queue on a {@link ReentrantLock} rather than each holding a connection while it waits
+ * for the row; not a monitor, as an edit runs several statements and a virtual thread blocked
+ * inside {@code synchronized} would keep its carrier thread.
+ */
+@Slf4j
+@Service
+public class RoleHierarchyService {
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ReentrantLock editLock = new ReentrantLock();
+    private TransactionTemplate transaction;
+    private RoleMapper roleMapper;
+    private RoleParentMapper roleParentMapper;
+    private RoleClosureMapper roleClosureMapper;
+
+    @PostConstruct
+    public void init() {
+        BatchMappers batch = new BatchMappers(sqlSessionFactory);
+        roleMapper = batch.get(RoleMapper.class);
+        roleParentMapper = batch.get(RoleParentMapper.class);
+        roleClosureMapper = batch.get(RoleClosureMapper.class);
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public List<Integer> parentsOf(int roleId) {
+        return roleParentMapper.selectByExample()
+                .where(RoleParentDynamicSqlSupport.roleId, isEqualTo(roleId))
+                .orderBy(RoleParentDynamicSqlSupport.parentId)
+                .build().execute()
+                .stream().map(RoleParent::getParentId).collect(Collectors.toList());
+    }
+
+    /**
+     * Lets {@code roleId} inherit from {@code parentId}. Returns {@code false} when the edge
+     * already exists.
+     */
+    public boolean addParent(int roleId, int parentId) {
+        return edit(status -> {
+            requireRole(roleId);
+            requireRole(parentId);
+            if (roleId == parentId || roleClosureMapper.selectByPrimaryKey(parentId, roleId) != null) {
+                throw new IllegalStateException("role " + parentId + " already inherits from role " + roleId);
+            }
+            if (edge(roleId, parentId) != null) return false;
+            ensureSelf(roleId);
+            ensureSelf(parentId);
+            RoleParent edge = new RoleParent();
+            edge.setRoleId(roleId);
+            edge.setParentId(parentId);
+            roleParentMapper.insert(StatementTemplates.ROLE_PARENT_INSERT.bind(edge));
+            int rows = connect(roleId, parentId, 1);
+            log.info("role {} inherits from role {}, {} closure rows changed", roleId, parentId, rows);
+            return true;
+        });
+    }
+
+    /**
+     * Removes the edge, {@code false} when it did not exist.
+     */
+    public boolean removeParent(int roleId, int parentId) {
+        return edit(status -> {
+            RoleParent edge = edge(roleId, parentId);
+            if (edge == null) return false;
+            roleParentMapper.deleteByPrimaryKey(edge.getId());
+            int rows = connect(roleId, parentId, -1);
+            log.info("role {} no longer inherits from role {}, {} closure rows changed", roleId, parentId, rows);
+            return true;
+        });
+    }
+
+    /**
+     * Recomputes role_closure from role_parent, for data written around this service
+     * (an import, manual SQL). Only rows that differ are written, returns their number.
+     */
+    public int rebuild() {
+        return edit(status -> {
+            long start = System.currentTimeMillis();
+            List<Integer> roles = SelectDSL.selectWithMapper(roleMapper::selectMany, RoleDynamicSqlSupport.id)
+                    .from(RoleDynamicSqlSupport.role)
+                    .build().execute()
+                    .stream().map(Role::getId).collect(Collectors.toList());
+            Map<Integer, Map<Integer, Long>> closure = closureOf(roles, roleParentMapper.selectByExample().build().execute());
+            Map<Long, Long> existing = new HashMap<>();
+            for (RoleClosure row : roleClosureMapper.selectByExample().build().execute()) {
+                existing.put(key(row.getDescendantId(), row.getAncestorId()), row.getPathCount());
+            }
+            List<RoleClosure> inserts = new ArrayList<>();
+            List<RoleClosure> updates = new ArrayList<>();
+            List<RoleClosure> deletes = new ArrayList<>();
+            closure.forEach((descendant, ancestors) -> ancestors.forEach((ancestor, paths) -> {
+                Long current = existing.remove(key(descendant, ancestor));
+                if (current == null) {
+                    inserts.add(RoleClosure.of(descendant, ancestor, paths));
+                } else if (current.longValue() != paths) {
+                    updates.add(RoleClosure.of(descendant, ancestor, paths));
+                }
+            }));
+            existing.forEach((key, paths) -> deletes.add(RoleClosure.of((int) (key >>> 32), (int) (long) key, paths)));
+            int rows = write(inserts, updates, deletes);
+            log.info("role closure rebuilt in {}ms: {} roles, {} rows inserted, {} updated, {} deleted",
+                    System.currentTimeMillis() - start, closure.size(), inserts.size(), updates.size(), deletes.size());
+            return rows;
+        });
+    }
+
+    /**
+     * New roles get their own closure row, without it their direct permissions would not
+     * join on login. Deleted roles lose their edges, with the paths through them, and then
+     * their remaining closure rows, otherwise their former descendants would keep inheriting
+     * through them.
+     */
+    @EventListener
+    public void onRbacChange(RbacChangeEvent event) {
+        if (!event.getTables().contains("role")) return;
+        edit(status -> {
+            roleClosureMapper.selectRolesWithoutSelf().forEach(this::ensureSelf);
+            roleClosureMapper.selectDeletedRoles().forEach(this::detach);
+            return null;
+        });
+    }
+
+    private <T> T edit(TransactionCallback<T> action) {
+        editLock.lock();
+        try {
+            return transaction.execute(status -> {
+                roleClosureMapper.lockHierarchy();
+                return action.doInTransaction(status);
+            });
+        } finally {
+            editLock.unlock();
+        }
+    }
+
+    private void requireRole(int roleId) {
+        if (roleMapper.selectByPrimaryKey(roleId) == null) throw new UnknownRoleException(roleId);
+    }
+
+    private RoleParent edge(int roleId, int parentId) {
+        List<RoleParent> edges = roleParentMapper.selectByExample()
+                .where(RoleParentDynamicSqlSupport.roleId, isEqualTo(roleId))
+                .and(RoleParentDynamicSqlSupport.parentId, isEqualTo(parentId))
+                .build().execute();
+        return edges.isEmpty() ? null : edges.get(0);
+    }
+
+    private void detach(int roleId) {
+        List<RoleParent> edges = roleParentMapper.selectByExample()
+                .where(RoleParentDynamicSqlSupport.roleId, isEqualTo(roleId))
+                .or(RoleParentDynamicSqlSupport.parentId, isEqualTo(roleId))
+                .build().execute();
+        for (RoleParent edge : edges) {
+            roleParentMapper.deleteByPrimaryKey(edge.getId());
+            connect(edge.getRoleId(), edge.getParentId(), -1);
+        }
+        roleClosureMapper.deleteByExample()
+                .where(RoleClosureDynamicSqlSupport.descendantId, isEqualTo(roleId))
+                .or(RoleClosureDynamicSqlSupport.ancestorId, isEqualTo(roleId))
+                .build().execute();
+        log.info("role {} was deleted, removed its {} edges and closure rows", roleId, edges.size());
+    }
+
+    private void ensureSelf(int roleId) {
+        if (roleClosureMapper.selectByPrimaryKey(roleId, roleId) == null) {
+            roleClosureMapper.insert(StatementTemplates.ROLE_CLOSURE_INSERT.bind(RoleClosure.of(roleId, roleId, 1)));
+        }
+    }
+
+    /**
+     * Adds ({@code sign} 1) or subtracts ({@code sign} -1) the paths through the edge
+     * role -> parent. The existing rows are read in one query driven by the descendants,
+     * a select between batched writes would flush them early.
+     */
+    private int connect(int roleId, int parentId, int sign) {
+        Map<Integer, Long> ancestors = roleClosureMapper.selectByExample()
+                .where(RoleClosureDynamicSqlSupport.descendantId, isEqualTo(parentId))
+                .build().execute()
+                .stream().collect(Collectors.toMap(RoleClosure::getAncestorId, RoleClosure::getPathCount));
+        List<RoleClosure> descendants = roleClosureMapper.selectByExample()
+                .where(RoleClosureDynamicSqlSupport.ancestorId, isEqualTo(roleId))
+                .build().execute();
+        Map<Long, Long> existing = new HashMap<>();
+        for (RoleClosure row : roleClosureMapper.selectByDescendantsOf(roleId)) {
+            if (ancestors.containsKey(row.getAncestorId())) {
+                existing.put(key(row.getDescendantId(), row.getAncestorId()), row.getPathCount());
+            }
+        }
+        List<RoleClosure> inserts = new ArrayList<>();
+        List<RoleClosure> updates = new ArrayList<>();
+        List<RoleClosure> deletes = new ArrayList<>();
+        for (RoleClosure descendant : descendants) {
+            for (Map.Entry<Integer, Long> ancestor : ancestors.entrySet()) {
+                long delta = sign * Math.multiplyExact(ancestor.getValue(), descendant.getPathCount());
+                Long current = existing.get(key(descendant.getDescendantId(), ancestor.getKey()));
+                long paths = Math.addExact(current == null ? 0 : current, delta);
+                RoleClosure row = RoleClosure.of(descendant.getDescendantId(), ancestor.getKey(), paths);
+                if (paths < 0) {
+                    throw new IllegalStateException("role_closure is inconsistent at " + row + ", rebuild it");
+                } else if (current == null) {
+                    inserts.add(row);
+                } else if (paths == 0) {
+                    deletes.add(row);
+                } else {
+                    updates.add(row);
+                }
+            }
+        }
+        return write(inserts, updates, deletes);
+    }
+
+    /**
+     * Writes grouped by statement, so the batch executor sends each kind as one JDBC batch.
+     */
+    private int write(List<RoleClosure> inserts, List<RoleClosure> updates, List<RoleClosure> deletes) {
+        inserts.forEach(row -> roleClosureMapper.insert(StatementTemplates.ROLE_CLOSURE_INSERT.bind(row)));
+        updates.forEach(row -> roleClosureMapper.updatePathCount(row.getDescendantId(), row.getAncestorId(), row.getPathCount()));
+        deletes.forEach(row -> roleClosureMapper.deleteByPrimaryKey(row.getDescendantId(), row.getAncestorId()));
+        return inserts.size() + updates.size() + deletes.size();
+    }
+
+    /**
+     * Path counts of every role to its ancestors, parents are resolved before their children.
+     */
+    private static Map<Integer, Map<Integer, Long>> closureOf(List<Integer> roles, List<RoleParent> edges) {
+        Set<Integer> nodes = new HashSet<>(roles);
+        Map<Integer, List<Integer>> parents = new HashMap<>();
+        Map<Integer, List<Integer>> children = new HashMap<>();
+        for (RoleParent edge : edges) {
+            nodes.add(edge.getRoleId());
+            nodes.add(edge.getParentId());
+            parents.computeIfAbsent(edge.getRoleId(), k -> new ArrayList<>()).add(edge.getParentId());
+            children.computeIfAbsent(edge.getParentId(), k -> new ArrayList<>()).add(edge.getRoleId());
+        }
+        Map<Integer, Integer> pending = new HashMap<>();
+        Deque<Integer> ready = new ArrayDeque<>();
+        for (Integer node : nodes) {
+            int count = parents.getOrDefault(node, Collections.emptyList()).size();
+            pending.put(node, count);
+            if (count == 0) ready.add(node);
+        }
+        Map<Integer, Map<Integer, Long>> closure = new HashMap<>();
+        while (!ready.isEmpty()) {
+            Integer node = ready.poll();
+            Map<Integer, Long> ancestors = new HashMap<>();
+            ancestors.put(node, 1L);
+            for (Integer parent : parents.getOrDefault(node, Collections.emptyList())) {
+                closure.get(parent).forEach((ancestor, paths) -> ancestors.merge(ancestor, paths, Math::addExact));
+            }
+            closure.put(node, ancestors);
+            for (Integer child : children.getOrDefault(node, Collections.emptyList())) {
+                if (pending.merge(child, -1, Integer::sum) == 0) ready.add(child);
+            }
+        }
+        if (closure.size() < nodes.size()) throw new IllegalStateException("role_parent contains a cycle");
+        return closure;
+    }
+
+    private static long key(int descendantId, int ancestorId) {
+        return ((long) descendantId << 32) | (ancestorId & 0xffffffffL);
+    }
+}
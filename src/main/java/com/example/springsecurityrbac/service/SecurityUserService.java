@@ -3,10 +3,8 @@ package com.example.springsecurityrbac.service;
 import com.example.springsecurityrbac.dao.*;
 import com.example.springsecurityrbac.model.Permission;
 import com.example.springsecurityrbac.model.User;
-import org.mybatis.dynamic.sql.render.RenderingStrategy;
-import org.mybatis.dynamic.sql.select.render.SelectStatementProvider;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -15,47 +13,124 @@ import org.springframework.util.CollectionUtils;
 
 import java.util.*;
 
-import static org.mybatis.dynamic.sql.SqlBuilder.equalTo;
-import static org.mybatis.dynamic.sql.SqlBuilder.isEqualTo;
-import static org.mybatis.dynamic.sql.SqlBuilder.select;
-
 
 @Service
-public class SecurityUserService implements UserDetailsService {
+public class SecurityUserService implements UserDetailsService, UserDetailsPasswordService {
     @Autowired
     private UserMapper userMapper;
     @Autowired
     private PermissionMapper permissionMapper;
+    @Autowired
+    private PermissionRegistry permissionRegistry;
+    @Autowired(required = false)
+    private RbacSnapshotService rbacSnapshotService;
+    @Autowired(required = false)
+    private UserDetailsCache userDetailsCache;
+    @Autowired(required = false)
+    private RbacVersionService rbacVersionService;
+    @Autowired(required = false)
+    private LoginMetrics loginMetrics;
+    @Autowired(required = false)
+    private UsernameFilter usernameFilter;
+
+    @Value("${rbac.login.single-query:false}")
+    private boolean singleQuery;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        long start = System.nanoTime();
+        try {
+            if (usernameFilter != null && !usernameFilter.mightExist(username)) throw new UsernameNotFoundException(username);
+            return loadCached(username);
+        } finally {
+            if (loginMetrics != null) loginMetrics.total(System.nanoTime() - start);
+        }
+    }
+
+    private UserDetails loadCached(String username) {
+        if (userDetailsCache == null) return load(username);
+
+        UserDetails cached = userDetailsCache.getUserFromCache(username);
+        if (loginMetrics != null) loginMetrics.cache(cached != null);
+        if (cached != null) return cached;
+        long epoch = userDetailsCache.epoch();
+        User user = load(username);
+        userDetailsCache.putUserInCache(user, epoch);
+        return user;
+    }
+
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User record = new User();
+        record.setId(((User) user).getId());
+        record.setPassword(newPassword);
+        userMapper.updateByPrimaryKeySelective(record);
+        ((User) user).setPassword(newPassword);
+        return user;
+    }
+
+    private User load(String username) {
+        long start = System.nanoTime();
+        if (singleQuery && rbacSnapshotService == null) {
+            User user = userMapper.selectWithPermissionsByUsername(username);
+            long loaded = System.nanoTime();
+            if (user == null) throw notFound(username);
+            stamp(user);
+            user.setAuthorities(toAuthorities(user.getGrantedPermissions()));
+            user.setGrantedPermissions(null);
+            if (loginMetrics != null) {
+                loginMetrics.userLookup(loaded - start);
+                loginMetrics.authorityBuild(System.nanoTime() - loaded);
+            }
+            return user;
+        }
+
+        User user = userMapper.selectByUsername(username);
+        long userLoaded = System.nanoTime();
+        if (user == null) throw notFound(username);
+        stamp(user);
+
+        if (rbacSnapshotService != null) {
+            user.setAuthorities(rbacSnapshotService.authoritiesOf(user.getId()));
+            if (loginMetrics != null) {
+                loginMetrics.userLookup(userLoaded - start);
+                loginMetrics.permissionLoad(System.nanoTime() - userLoaded);
+            }
+            return user;
+        }
 
-        SelectStatementProvider selectStatement = select(UserDynamicSqlSupport.id,UserDynamicSqlSupport.username,UserDynamicSqlSupport.password,UserDynamicSqlSupport.locked)
-                .from(UserDynamicSqlSupport.user)
-                .where(UserDynamicSqlSupport.username,isEqualTo(username))
-                .build().render(RenderingStrategy.MYBATIS3);
-
-        Map<String,Object> parameter = new HashMap<>();
-        parameter.put("#{username}",username);
-        User user = userMapper.selectOne(selectStatement);
-        if (user == null) throw new UsernameNotFoundException(username);
-
-        SelectStatementProvider manyPermission = select(PermissionDynamicSqlSupport.id,PermissionDynamicSqlSupport.permissionCode,PermissionDynamicSqlSupport.permissionName)
-                .from(PermissionDynamicSqlSupport.permission)
-                .join(RolePermissionDynamicSqlSupport.rolePermission).on(RolePermissionDynamicSqlSupport.permissionId,equalTo(PermissionDynamicSqlSupport.id))
-                .join(UserRoleDynamicSqlSupport.userRole).on(UserRoleDynamicSqlSupport.roleId,equalTo(RolePermissionDynamicSqlSupport.roleId))
-                .where(UserRoleDynamicSqlSupport.userId,isEqualTo(user.getId()))
-                .build()
-                .render(RenderingStrategy.MYBATIS3);
-        List<Permission> permissions = permissionMapper.selectMany(manyPermission);
-        if (!CollectionUtils.isEmpty(permissions)){
-            Set<SimpleGrantedAuthority> sga = new HashSet<>();
-            permissions.forEach(p->{
-                sga.add(new SimpleGrantedAuthority(p.getPermissionCode()));
-            });
-            user.setAuthorities(sga);
+        List<Permission> permissions = permissionMapper.selectByUserId(user.getId());
+        long permissionsLoaded = System.nanoTime();
+        user.setAuthorities(toAuthorities(permissions));
+        if (loginMetrics != null) {
+            loginMetrics.userLookup(userLoaded - start);
+            loginMetrics.permissionLoad(permissionsLoaded - userLoaded);
+            loginMetrics.authorityBuild(System.nanoTime() - permissionsLoaded);
         }
 
         return user;
     }
+
+    private UsernameNotFoundException notFound(String username) {
+        if (loginMetrics != null) loginMetrics.notFound();
+        return new UsernameNotFoundException(username);
+    }
+
+    /**
+     * Records the RBAC version the authorities are loaded at. Taken before the permission
+     * query, except on the single-query path where the user id is only known afterwards.
+     */
+    private void stamp(User user) {
+        if (rbacVersionService == null) return;
+        VersionStamp stamp = rbacVersionService.current(user.getId());
+        user.setRbacVersion(stamp.getGlobal());
+        user.setUserVersion(stamp.getUser());
+    }
+
+    private PermissionAuthorities toAuthorities(List<Permission> permissions) {
+        if (CollectionUtils.isEmpty(permissions)) return null;
+        PermissionAuthorities.Builder authorities = PermissionAuthorities.builder(permissionRegistry);
+        permissions.forEach(p->authorities.add(permissionRegistry.resolveId(p.getId())));
+        return authorities.build();
+    }
 }
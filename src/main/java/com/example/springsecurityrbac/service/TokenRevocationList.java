@@ -0,0 +1,105 @@
+package com.example.springsecurityrbac.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ids of signed tokens revoked before their expiry, on logout. Requests check the local
+ * copy only. A revocation is added to a Redis sorted set scored by the token's expiry,
+ * which a starting node loads, and goes out on {@link #CHANNEL} to the running ones.
+ * Every entry is dropped when its token would have expired anyway, so the list never holds
+ * more than one token lifetime of logouts.
+ */
+@Service
+@ConditionalOnProperty(prefix = "rbac.token", name = "enabled")
+public class TokenRevocationList implements MessageListener {
+    public static final String CHANNEL = "rbac:token:revoke";
+    private static final byte[] KEY = "rbac:token:revoked".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    @Autowired
+    @Qualifier("rbacMessageListenerContainer")
+    private RedisMessageListenerContainer listenerContainer;
+
+    private final Cache<Long, Long> revoked = Caffeine.newBuilder()
+            .expireAfter(new Expiry<Long, Long>() {
+                @Override
+                public long expireAfterCreate(Long tokenId, Long expiresAt, long currentTime) {
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAt - System.currentTimeMillis()));
+                }
+
+                @Override
+                public long expireAfterUpdate(Long tokenId, Long expiresAt, long currentTime, long currentDuration) {
+                    return expireAfterCreate(tokenId, expiresAt, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(Long tokenId, Long expiresAt, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .executor(Runnable::run)
+            .build();
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        long now = System.currentTimeMillis();
+        Set<ZSetOperations.TypedTuple<String>> entries =
+                redisTemplate.opsForZSet().rangeByScoreWithScores(new String(KEY, StandardCharsets.UTF_8), now, Double.MAX_VALUE);
+        if (entries != null) {
+            entries.forEach(entry -> add(Long.parseLong(entry.getValue()), entry.getScore().longValue()));
+        }
+    }
+
+    public boolean isRevoked(long tokenId) {
+        return revoked.getIfPresent(tokenId) != null;
+    }
+
+    public void revoke(long tokenId, long expiresAt) {
+        long now = System.currentTimeMillis();
+        if (expiresAt <= now) return;
+        add(tokenId, expiresAt);
+        byte[] member = String.valueOf(tokenId).getBytes(StandardCharsets.UTF_8);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.zRemRangeByScore(KEY, 0, now);
+            connection.zAdd(KEY, expiresAt, member);
+            return null;
+        });
+        redisTemplate.convertAndSend(CHANNEL, tokenId + ":" + expiresAt);
+    }
+
+    public long size() {
+        return revoked.estimatedSize();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = redisTemplate.getStringSerializer().deserialize(message.getBody());
+        if (body == null) return;
+        int colon = body.indexOf(':');
+        add(Long.parseLong(body.substring(0, colon)), Long.parseLong(body.substring(colon + 1)));
+    }
+
+    private void add(long tokenId, long expiresAt) {
+        if (expiresAt > System.currentTimeMillis()) revoked.put(tokenId, expiresAt);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.springsecurityrbac.service;
+
+/**
+ * A role id in a request names no role.
+ */
+public class UnknownRoleException extends IllegalArgumentException {
+
+    public UnknownRoleException(int roleId) {
+        super("unknown role " + roleId);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.config.PathTrie;
+import com.example.springsecurityrbac.config.PermissionAttribute;
+import com.example.springsecurityrbac.dao.UrlPermissionMapper;
+import com.example.springsecurityrbac.model.UrlPermission;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * URL rules from the {@code url_permission} table, compiled into a {@link PathTrie}.
+ * Patterns the trie cannot express are matched one by one with {@link AntPathRequestMatcher}
+ * after the trie found nothing. The compiled rules are replaced with a single volatile write
+ * on refresh: after a commit to {@code url_permission} on this node, and on a fixed delay for
+ * changes made elsewhere.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "rbac.url-rules", name = "enabled", matchIfMissing = true)
+public class UrlPermissionService {
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    @Autowired
+    private UrlPermissionMapper urlPermissionMapper;
+    @Autowired
+    private PermissionRegistry permissionRegistry;
+
+    private volatile Rules rules = new Rules(PathTrie.<ConfigAttribute>builder().build(), Collections.emptyList());
+
+    @PostConstruct
+    public void init() {
+        refresh();
+    }
+
+    /**
+     * Permissions a request needs, any one of them grants access. {@code null} when no rule
+     * matches.
+     */
+    public List<ConfigAttribute> attributesOf(HttpServletRequest request) {
+        Rules current = rules;
+        String path = request.getPathInfo() == null ? request.getServletPath() : request.getServletPath() + request.getPathInfo();
+        List<ConfigAttribute> attributes = current.trie.match(request.getMethod(), path);
+        if (attributes != null) return attributes;
+        for (AntRule rule : current.fallback) {
+            if (rule.matcher.matches(request)) return rule.attributes;
+        }
+        return null;
+    }
+
+    /**
+     * The same lookup by method and path, for requests that are not servlet requests.
+     */
+    public List<ConfigAttribute> attributesOf(String method, String path) {
+        Rules current = rules;
+        List<ConfigAttribute> attributes = current.trie.match(method, path);
+        if (attributes != null) return attributes;
+        for (AntRule rule : current.fallback) {
+            if ((rule.method == null || rule.method.equals(method)) && PATH_MATCHER.match(rule.pattern, path)) {
+                return rule.attributes;
+            }
+        }
+        return null;
+    }
+
+    @Scheduled(fixedDelayString = "${rbac.url-rules.refresh-interval:60000}")
+    public void refresh() {
+        long start = System.currentTimeMillis();
+        List<UrlPermission> rows = urlPermissionMapper.selectByExample().build().execute();
+        PathTrie.Builder<ConfigAttribute> trie = PathTrie.builder();
+        Map<String, AntRule> fallback = new LinkedHashMap<>();
+        for (UrlPermission row : rows) {
+            String method = StringUtils.hasText(row.getHttpMethod()) ? row.getHttpMethod().toUpperCase(Locale.ROOT) : null;
+            ConfigAttribute attribute = attribute(row.getPermissionId());
+            if (!trie.add(row.getUrlPattern(), method, attribute)) {
+                fallback.computeIfAbsent(method + " " + row.getUrlPattern(),
+                        k -> new AntRule(row.getUrlPattern(), method)).attributes.add(attribute);
+            }
+        }
+        rules = new Rules(trie.build(), new ArrayList<>(fallback.values()));
+        log.debug("url rules compiled in {}ms: {} in trie, {} ant patterns",
+                System.currentTimeMillis() - start, rules.trie.size(), fallback.size());
+    }
+
+    @EventListener
+    public void onRbacChange(RbacChangeEvent event) {
+        if (event.getTables().contains("url_permission") || event.getTables().contains("permission")) {
+            refresh();
+        }
+    }
+
+    /**
+     * A rule pointing at a permission that does not exist denies everyone.
+     */
+    private ConfigAttribute attribute(Integer permissionId) {
+        int index = permissionRegistry.resolveId(permissionId);
+        if (index < 0) {
+            log.warn("url rule refers to unknown permission {}", permissionId);
+            return new PermissionAttribute("permission#" + permissionId, -1);
+        }
+        return new PermissionAttribute(permissionRegistry.authority(index).getAuthority(), index);
+    }
+
+    private static final class Rules {
+        final PathTrie<ConfigAttribute> trie;
+        final List<AntRule> fallback;
+
+        Rules(PathTrie<ConfigAttribute> trie, List<AntRule> fallback) {
+            this.trie = trie;
+            this.fallback = fallback;
+        }
+    }
+
+    private static final class AntRule {
+        final AntPathRequestMatcher matcher;
+        final String pattern;
+        final String method;
+
+        final List<ConfigAttribute> attributes = new ArrayList<>(2);
+
+        AntRule(String pattern, String method) {
+            this.matcher = new AntPathRequestMatcher(pattern, method);
+            this.pattern = pattern;
+            this.method = method;
+        }
+    }
+}
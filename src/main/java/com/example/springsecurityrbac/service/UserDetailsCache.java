@@ -0,0 +1,261 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.dao.UserMapper;
+import com.example.springsecurityrbac.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Two-tier cache in front of {@link SecurityUserService}: a bounded local LRU/TTL cache
+ * and a shared Redis tier. Redis keys carry a generation, flushing everything is a single
+ * {@code INCR}. Invalidations go out on {@link #CHANNEL} so that every node evicts locally.
+ * <p>
+ * Password hashes stay inside the JVM: the Redis tier holds users without theirs, and a user
+ * found there gets it back from a primary key lookup of the one column before it is returned.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "rbac.user-cache", name = "enabled", matchIfMissing = true)
+public class UserDetailsCache implements UserCache, MessageListener {
+    public static final String CHANNEL = "rbac:user-cache:invalidate";
+    private static final String GENERATION_KEY = "rbac:user-cache:generation";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    @Qualifier("rbacMessageListenerContainer")
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Value("${rbac.user-cache.local.maximum-size:10000}")
+    private long maximumSize;
+    @Value("${rbac.user-cache.local.ttl-seconds:60}")
+    private long localTtl;
+    @Value("${rbac.user-cache.redis.ttl-seconds:600}")
+    private long redisTtl;
+
+    private final JdkSerializationRedisSerializer serializer = new JdkSerializationRedisSerializer();
+    private final Map<Integer, String> usernames = new ConcurrentHashMap<>();
+    private final AtomicLong epoch = new AtomicLong();
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder redisMisses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private Cache<String, User> local;
+    private volatile long generation;
+
+    @PostConstruct
+    public void init() {
+        local = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(localTtl, TimeUnit.SECONDS)
+                .executor(Runnable::run)
+                .removalListener((String username, User user, RemovalCause cause) -> {
+                    if (user != null && cause != RemovalCause.REPLACED) usernames.remove(user.getId(), username);
+                })
+                .recordStats()
+                .build();
+        String stored = redisTemplate.opsForValue().get(GENERATION_KEY);
+        generation = stored == null ? 0 : Long.parseLong(stored);
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * Changes on every local invalidation. A loader reads it before going to the database
+     * and passes it to {@link #putUserInCache(UserDetails, long)}, which drops the entry
+     * if an invalidation arrived in between.
+     */
+    public long epoch() {
+        return epoch.get();
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        User user = local.getIfPresent(username);
+        if (user != null) return user;
+
+        long loadedAt = epoch();
+        long gen = generation;
+        byte[] bytes = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(userKey(gen, username)));
+        if (bytes == null) {
+            redisMisses.increment();
+            return null;
+        }
+        user = (User) serializer.deserialize(bytes);
+        User stored = userMapper.selectPasswordByPrimaryKey(user.getId());
+        if (stored == null) {
+            redisMisses.increment();
+            return null;
+        }
+        redisHits.increment();
+        user.setPassword(stored.getPassword());
+        if (epoch() == loadedAt) putLocal(user);
+        return user;
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        putUserInCache(user, epoch());
+    }
+
+    public void putUserInCache(UserDetails details, long loadedAt) {
+        if (!(details instanceof User) || epoch() != loadedAt) return;
+        User user = (User) details;
+        putLocal(user);
+        long gen = generation;
+        byte[] value = serializer.serialize(withoutPassword(user));
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.setEx(userKey(gen, user.getUsername()), redisTtl, value);
+            connection.setEx(idKey(gen, user.getId()), redisTtl, user.getUsername().getBytes(StandardCharsets.UTF_8));
+            return null;
+        });
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        User user = local.getIfPresent(username);
+        if (user != null) {
+            invalidateUsers(Arrays.asList(user.getId()));
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public void onRbacChange(RbacChangeEvent event) {
+        if (event.isAllUsers()) {
+            invalidateAll();
+        } else if (!event.getUserIds().isEmpty()) {
+            invalidateUsers(new ArrayList<>(event.getUserIds()));
+        }
+    }
+
+    /**
+     * Starts a new generation, the Redis tier of the old one expires by its TTL.
+     */
+    public void invalidateAll() {
+        Long next = redisTemplate.opsForValue().increment(GENERATION_KEY, 1);
+        evictAllLocal(next);
+        redisTemplate.convertAndSend(CHANNEL, "all:" + next);
+    }
+
+    public void invalidateUsers(List<Integer> userIds) {
+        long gen = generation;
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            byte[][] idKeys = userIds.stream().map(id -> idKey(gen, id)).toArray(byte[][]::new);
+            List<byte[]> names = connection.mGet(idKeys);
+            List<byte[]> keys = new ArrayList<>(Arrays.asList(idKeys));
+            for (byte[] name : names) {
+                if (name != null) keys.add(userKey(gen, new String(name, StandardCharsets.UTF_8)));
+            }
+            connection.del(keys.toArray(new byte[0][]));
+            return null;
+        });
+        evictLocal(userIds);
+        redisTemplate.convertAndSend(CHANNEL, "ids:" + userIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = redisTemplate.getStringSerializer().deserialize(message.getBody());
+        if (body == null) return;
+        if (body.startsWith("all:")) {
+            evictAllLocal(Long.parseLong(body.substring(4)));
+        } else if (body.startsWith("ids:")) {
+            evictLocal(Arrays.stream(body.substring(4).split(",")).map(Integer::valueOf).collect(Collectors.toList()));
+        }
+    }
+
+    public Stats getStats() {
+        CacheStats stats = local.stats();
+        return new Stats(stats.hitCount(), stats.missCount(), stats.evictionCount(),
+                redisHits.sum(), redisMisses.sum(), invalidations.sum(), local.estimatedSize());
+    }
+
+    private void putLocal(User user) {
+        local.put(user.getUsername(), user);
+        usernames.put(user.getId(), user.getUsername());
+    }
+
+    private void evictLocal(List<Integer> userIds) {
+        epoch.incrementAndGet();
+        for (Integer id : userIds) {
+            String username = usernames.remove(id);
+            if (username != null) local.invalidate(username);
+        }
+        invalidations.increment();
+    }
+
+    private void evictAllLocal(long nextGeneration) {
+        // the new generation first, a reader that sees the new epoch must not read the old one
+        if (nextGeneration > generation) generation = nextGeneration;
+        epoch.incrementAndGet();
+        local.invalidateAll();
+        invalidations.increment();
+    }
+
+    private static User withoutPassword(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setUsername(user.getUsername());
+        copy.setLocked(user.getLocked());
+        copy.setDeptId(user.getDeptId());
+        copy.setPermissions(user.getPermissions());
+        copy.setRbacVersion(user.getRbacVersion());
+        copy.setUserVersion(user.getUserVersion());
+        return copy;
+    }
+
+    private static byte[] userKey(long generation, String username) {
+        return ("rbac:user:" + generation + ":" + username).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] idKey(long generation, Integer userId) {
+        return ("rbac:user-id:" + generation + ":" + userId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private final long localHits;
+        private final long localMisses;
+        private final long localEvictions;
+        private final long redisHits;
+        private final long redisMisses;
+        private final long invalidations;
+        private final long localSize;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.springsecurityrbac.service;
+
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Stores a re-encoded password for a user after a successful login.
+ */
+public interface UserDetailsPasswordService {
+
+    UserDetails updatePassword(UserDetails user, String newPassword);
+}
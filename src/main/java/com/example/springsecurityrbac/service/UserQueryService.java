@@ -0,0 +1,73 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.config.PermissionContact;
+import com.example.springsecurityrbac.dao.DataScopeColumns;
+import com.example.springsecurityrbac.dao.SelectStatementTemplate;
+import com.example.springsecurityrbac.dao.UserDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.UserMapper;
+import com.example.springsecurityrbac.model.DataScope;
+import com.example.springsecurityrbac.model.User;
+import org.mybatis.dynamic.sql.render.RenderingStrategy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mybatis.dynamic.sql.SqlBuilder.isGreaterThan;
+import static org.mybatis.dynamic.sql.SqlBuilder.select;
+
+/**
+ * Users the caller may see with {@link PermissionContact#USER_VIEW}, paged by id. The data scope
+ * is part of the query, which is rendered once per scope with a {@code limit}, so a page reads
+ * at most {@code size} rows.
+ */
+@Service
+public class UserQueryService {
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private DataScopeService dataScopeService;
+
+    private final Map<DataScope, SelectStatementTemplate> pages = new EnumMap<>(DataScope.class);
+
+    @PostConstruct
+    public void init() {
+        for (DataScope scope : DataScope.values()) {
+            pages.put(scope, SelectStatementTemplate.of(dataScopeService.restrict(
+                    select(UserDynamicSqlSupport.id, UserDynamicSqlSupport.username, UserDynamicSqlSupport.locked, UserDynamicSqlSupport.deptId)
+                            .from(UserDynamicSqlSupport.user), new DataScopeService.Grant(scope, 0, 0), DataScopeColumns.USER)
+                    .and(UserDynamicSqlSupport.id, isGreaterThan(0))
+                    .orderBy(UserDynamicSqlSupport.id)
+                    .build().render(RenderingStrategy.MYBATIS3)).limit());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserSummary> list(int afterId, int size) {
+        DataScopeService.Grant grant = dataScopeService.grantOf(PermissionContact.USER_VIEW);
+        Object[] scope = DataScopeService.restrictionValues(grant);
+        Object[] values = Arrays.copyOf(scope, scope.length + 2);
+        values[scope.length] = afterId;
+        values[scope.length + 1] = size;
+        List<User> users = userMapper.selectMany(pages.get(grant.getScope()).bind(values));
+        List<UserSummary> page = new ArrayList<>(users.size());
+        for (User user : users) {
+            page.add(new UserSummary(user.getId(), user.getUsername(), user.getDeptId(), Boolean.TRUE.equals(user.getLocked())));
+        }
+        return page;
+    }
+
+    @lombok.Value
+    public static class UserSummary {
+        int id;
+        String username;
+        Integer deptId;
+        boolean locked;
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.dao.IdConditions;
+import com.example.springsecurityrbac.dao.UserDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.UserMapper;
+import com.example.springsecurityrbac.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link BloomFilter} of every {@code user.username}, asked before a login goes to the user
+ * cache and the database: a username it has never seen does not exist. The answer has to hold
+ * under the accent- and case-insensitive collation of the column, where an accented {@code e}
+ * is {@code e} and the sharp s is {@code s} ({@code utf8mb4_general_ci}) or {@code ss}
+ * ({@code utf8mb4_0900_ai_ci}). So names are folded at least as far as either collation
+ * folds them (see {@link #normalize(String)}); folding further only costs false positives.
+ * <p>
+ * A background thread builds the filter at startup by streaming the usernames through a cursor
+ * and rebuilds it every {@code rebuild-interval-minutes}; logins go to the database until the
+ * first build is done and keep using the old filter while a new one is built. Usernames written
+ * through the user mapper are added after commit and sent on {@link #CHANNEL} to the other nodes;
+ * writes that cannot be narrowed to single users start a rebuild on every node.
+ * <p>
+ * Users inserted around the mappers (SQL by hand, a migration after startup) are unknown to
+ * the filter and refused until the next scheduled rebuild. Publishing an empty message on
+ * {@link #CHANNEL} ({@code PUBLISH rbac:username-filter:add ""}) starts a rebuild on every
+ * node, and until it is done the filter answers "may exist" for every name. The filter is off
+ * unless {@code rbac.username-filter.enabled} is set; it takes about 12 MB for the default
+ * {@code expected-users} of ten million at a false positive rate of 1%.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "rbac.username-filter", name = "enabled")
+public class UsernameFilter implements MessageListener {
+    public static final String CHANNEL = "rbac:username-filter:add";
+    private static final int MESSAGE_BATCH = 1000;
+    private static final Map<Character, String> LETTER_FOLDS = new HashMap<>();
+
+    static {
+        // letters without a decomposition that the ai_ci collations equate with base letters
+        LETTER_FOLDS.put('\u00e6', "ae");
+        LETTER_FOLDS.put('\u0153', "oe");
+        LETTER_FOLDS.put('\u00f8', "o");
+        LETTER_FOLDS.put('\u0111', "d");
+        LETTER_FOLDS.put('\u00f0', "d");
+        LETTER_FOLDS.put('\u0127', "h");
+        LETTER_FOLDS.put('\u0142', "l");
+        LETTER_FOLDS.put('\u0140', "l");
+        LETTER_FOLDS.put('\u0167', "t");
+        LETTER_FOLDS.put('\u00fe', "th");
+        LETTER_FOLDS.put('\u0131', "i");
+        LETTER_FOLDS.put('\u0138', "k");
+        LETTER_FOLDS.put('\u014b', "n");
+    }
+
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    @Autowired
+    @Qualifier("rbacMessageListenerContainer")
+    private RedisMessageListenerContainer listenerContainer;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${rbac.username-filter.expected-users:10000000}")
+    private long expectedUsers;
+    @Value("${rbac.username-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+    @Value("${rbac.username-filter.rebuild-interval-minutes:10}")
+    private long rebuildIntervalMinutes;
+
+    private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "username-filter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile BloomFilter current;
+    private volatile BloomFilter building;
+    private final AtomicLong rebuildsRequested = new AtomicLong();
+    private volatile long rebuildsCovered;
+    private TransactionTemplate readTransaction;
+    private Counter absent;
+
+    @PostConstruct
+    public void init() {
+        readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        absent = Counter.builder("rbac.username-filter.absent")
+                .description("logins of usernames the filter has never seen, answered without the database")
+                .register(meterRegistry);
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        rebuilder.scheduleWithFixedDelay(this::rebuild, 0, rebuildIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        rebuilder.shutdownNow();
+    }
+
+    /**
+     * {@code false} when the username certainly does not exist, {@code true} when it may
+     * (or the filter is not built yet, or a requested rebuild has not finished).
+     */
+    public boolean mightExist(String username) {
+        BloomFilter filter = current;
+        if (filter == null || username == null || rebuildsCovered < rebuildsRequested.get()
+                || filter.mightContain(normalize(username))) {
+            return true;
+        }
+        absent.increment();
+        return false;
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    /**
+     * Builds a new filter from the user table and swaps it in. Usernames added meanwhile go
+     * into both filters, so none is lost to the swap.
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        long requested = rebuildsRequested.get();
+        BloomFilter filter = new BloomFilter(expectedUsers, falsePositiveRate);
+        building = filter;
+        try {
+            readTransaction.execute(status -> {
+                try (Cursor<User> cursor = userMapper.cursorOfUsernames().execute()) {
+                    for (User user : cursor) {
+                        if (user.getUsername() != null) filter.put(normalize(user.getUsername()));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+            current = filter;
+            rebuildsCovered = requested;
+            log.info("username filter of {} users ({} bytes) built in {}ms",
+                    filter.insertions(), filter.bytes(), System.currentTimeMillis() - start);
+            if (filter.insertions() > expectedUsers) {
+                log.warn("{} users exceed rbac.username-filter.expected-users={}, false positives are above {}",
+                        filter.insertions(), expectedUsers, falsePositiveRate);
+            }
+        } catch (RuntimeException e) {
+            log.warn("username filter rebuild failed, keeping the previous one", e);
+        } finally {
+            building = null;
+        }
+    }
+
+    @EventListener
+    public void onRbacChange(RbacChangeEvent event) {
+        if (!event.getTables().contains("user")) return;
+        // an empty message asks every node, this one included, to rebuild
+        if (event.isAllUsers()) {
+            rebuildsRequested.incrementAndGet();
+            redisTemplate.convertAndSend(CHANNEL, "");
+        }
+        Set<String> usernames = new TreeSet<>(event.getNewUsernames());
+        usernames.forEach(this::add);
+        publish(usernames);
+        if (!event.getUserIds().isEmpty()) {
+            // a renamed user is only known by id; the lookup runs off the writer's thread,
+            // which may still hold its connection outside a transaction
+            List<Integer> ids = new ArrayList<>(event.getUserIds());
+            Collections.sort(ids);
+            rebuilder.execute(() -> addUsersById(ids));
+        }
+    }
+
+    private void addUsersById(List<Integer> ids) {
+        try {
+            Set<String> usernames = new TreeSet<>();
+            userMapper.selectByExample().where(UserDynamicSqlSupport.id, IdConditions.exactly(ids)).build().execute()
+                    .forEach(user -> usernames.add(user.getUsername()));
+            usernames.forEach(this::add);
+            publish(usernames);
+        } catch (RuntimeException e) {
+            log.warn("cannot add the usernames of users {} to the username filter", ids, e);
+        }
+    }
+
+    private void publish(Set<String> usernames) {
+        List<String> batch = new ArrayList<>(MESSAGE_BATCH);
+        for (String username : usernames) {
+            batch.add(username);
+            if (batch.size() == MESSAGE_BATCH) {
+                redisTemplate.convertAndSend(CHANNEL, String.join("\n", batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) redisTemplate.convertAndSend(CHANNEL, String.join("\n", batch));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = redisTemplate.getStringSerializer().deserialize(message.getBody());
+        if (body == null) return;
+        if (body.isEmpty()) {
+            rebuildsRequested.incrementAndGet();
+            rebuilder.execute(this::rebuild);
+            return;
+        }
+        for (String username : body.split("\n")) add(username);
+    }
+
+    private void add(String username) {
+        if (username == null) return;
+        String normalized = normalize(username);
+        // building before current: the rebuild publishes current before it clears building
+        BloomFilter filter = building;
+        if (filter != null) filter.put(normalized);
+        filter = current;
+        if (filter != null) filter.put(normalized);
+    }
+
+    /**
+     * Compatibility decomposition (full-width and ligature forms), without combining marks,
+     * format and control characters (ignorable in the collations) and trailing blanks (pad
+     * space), case-folded through upper case so the sharp s becomes {@code ss}, with the
+     * letters of {@link #LETTER_FOLDS} spelled out. Runs of {@code s} count as one, which covers
+     * the sharp s being {@code s} as well as {@code ss}.
+     */
+    static String normalize(String username) {
+        String decomposed = Normalizer.normalize(username, Normalizer.Form.NFKD);
+        StringBuilder stripped = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            int type = Character.getType(c);
+            if (type != Character.NON_SPACING_MARK && type != Character.ENCLOSING_MARK
+                    && type != Character.FORMAT && type != Character.CONTROL) {
+                stripped.append(c);
+            }
+        }
+        int end = stripped.length();
+        while (end > 0 && stripped.charAt(end - 1) == ' ') end--;
+        String folded = stripped.substring(0, end).toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+        StringBuilder out = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            String spelled = LETTER_FOLDS.get(c);
+            if (spelled != null) {
+                out.append(spelled);
+            } else if (c != 's' || out.length() == 0 || out.charAt(out.length() - 1) != 's') {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.springsecurityrbac.service;
+
+import lombok.Value;
+
+/**
+ * The global and the per-user RBAC version a principal's authorities were loaded at.
+ */
+@Value
+public class VersionStamp {
+    long global;
+    long user;
+}
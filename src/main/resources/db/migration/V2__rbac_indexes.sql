@@ -0,0 +1,16 @@
+-- 登录查询使用的索引：按用户名查用户，按 user_id 查角色、按 role_id 查权限均走覆盖索引
+-- 建唯一索引前先删除重复的关联记录（保留 id 最小的一条）
+
+DELETE FROM `user_role` WHERE `id` NOT IN (
+  SELECT `id` FROM (SELECT MIN(`id`) AS `id` FROM `user_role` GROUP BY `user_id`, `role_id`) `keep`
+);
+
+DELETE FROM `role_permission` WHERE `id` NOT IN (
+  SELECT `id` FROM (SELECT MIN(`id`) AS `id` FROM `role_permission` GROUP BY `role_id`, `permission_id`) `keep`
+);
+
+CREATE UNIQUE INDEX `uk_user_username` ON `user` (`username`);
+
+CREATE UNIQUE INDEX `uk_user_role_user_role` ON `user_role` (`user_id`, `role_id`);
+
+CREATE UNIQUE INDEX `uk_role_permission_role_permission` ON `role_permission` (`role_id`, `permission_id`);
@@ -0,0 +1,5 @@
+-- 批量分配角色/权限接口所需的权限，授予超级管理员
+
+insert  into `permission`(`permission_name`,`permission_code`) values ('角色分配','ROLE_ASSIGN');
+
+insert  into `role_permission`(`role_id`,`permission_id`) select 1, `id` from `permission` where `permission_code` = 'ROLE_ASSIGN';
@@ -0,0 +1,5 @@
+-- 权限数据导出/导入接口所需的权限，授予超级管理员
+
+insert  into `permission`(`permission_name`,`permission_code`) values ('权限数据导入导出','RBAC_TRANSFER');
+
+insert  into `role_permission`(`role_id`,`permission_id`) select 1, `id` from `permission` where `permission_code` = 'RBAC_TRANSFER';
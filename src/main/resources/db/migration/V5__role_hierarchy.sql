@@ -0,0 +1,20 @@
+-- 角色继承：role_parent 记录 role_id 继承 parent_id 的权限；role_closure 为其传递闭包，
+-- 每个角色包含一条指向自身的记录，path_count 为两角色间的路径数，删除继承关系时据此增量维护
+
+CREATE TABLE `role_parent` (
+  `id` int(11) NOT NULL AUTO_INCREMENT,
+  `role_id` int(11) NOT NULL,
+  `parent_id` int(11) NOT NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_role_parent_role_parent` (`role_id`, `parent_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE `role_closure` (
+  `descendant_id` int(11) NOT NULL,
+  `ancestor_id` int(11) NOT NULL,
+  `path_count` bigint(20) NOT NULL,
+  PRIMARY KEY (`descendant_id`, `ancestor_id`),
+  KEY `idx_role_closure_ancestor` (`ancestor_id`, `descendant_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+insert  into `role_closure`(`descendant_id`,`ancestor_id`,`path_count`) select `id`, `id`, 1 from `role`;
@@ -0,0 +1,8 @@
+-- 数据权限：用户所属部门，以及角色授予权限时的数据范围
+-- data_scope：1 仅本人数据，2 本部门数据，NULL 全部数据（已有授权保持不变）
+
+ALTER TABLE `user` ADD COLUMN `dept_id` int(11) DEFAULT NULL;
+
+CREATE INDEX `idx_user_dept` ON `user` (`dept_id`, `id`);
+
+ALTER TABLE `role_permission` ADD COLUMN `data_scope` tinyint(4) DEFAULT NULL COMMENT '数据范围：1 本人，2 本部门，NULL 全部';
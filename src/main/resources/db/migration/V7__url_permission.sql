@@ -0,0 +1,11 @@
+-- URL 权限规则：url_pattern 为 Ant 风格路径，http_method 为空表示任意方法
+
+CREATE TABLE `url_permission` (
+  `id` int(11) NOT NULL AUTO_INCREMENT,
+  `url_pattern` varchar(255) NOT NULL,
+  `http_method` varchar(16) DEFAULT NULL,
+  `permission_id` int(11) NOT NULL,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+insert  into `url_permission`(`url_pattern`,`http_method`,`permission_id`) select '/user/**', NULL, `id` from `permission` where `permission_code` = 'USER_VIEW';
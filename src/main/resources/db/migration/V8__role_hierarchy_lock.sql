@@ -0,0 +1,9 @@
+-- 角色继承编辑锁：修改 role_parent/role_closure 前在事务内 select ... for update 锁定该行，
+-- 多个节点同时编辑时环检测与 path_count 的读取和写回不会交错
+
+CREATE TABLE `rbac_lock` (
+  `name` varchar(64) NOT NULL,
+  PRIMARY KEY (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+insert  into `rbac_lock`(`name`) values ('role_hierarchy');
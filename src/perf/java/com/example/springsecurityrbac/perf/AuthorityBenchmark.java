@@ -0,0 +1,106 @@
+package com.example.springsecurityrbac.perf;
+
+import com.example.springsecurityrbac.dao.PermissionMapper;
+import com.example.springsecurityrbac.dao.StatementTemplates;
+import com.example.springsecurityrbac.model.Permission;
+import com.example.springsecurityrbac.service.PermissionAuthorities;
+import com.example.springsecurityrbac.service.PermissionRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a user's authority set from permission rows and checking one authority on it,
+ * {@code HashSet<SimpleGrantedAuthority>} against the {@link PermissionAuthorities} bitset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AuthorityBenchmark {
+    @Param({"20", "200"})
+    public int permissionsPerRole;
+
+    private AnnotationConfigApplicationContext context;
+    private PermissionRegistry permissionRegistry;
+    private List<Permission> rows;
+    private Set<SimpleGrantedAuthority> hashSet;
+    private PermissionAuthorities bits;
+    private SimpleGrantedAuthority probe;
+    private int probeIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(BenchmarkDatabase.create(10, 5, 1000, 3, permissionsPerRole), Collections.emptyMap());
+        permissionRegistry = context.getBean(PermissionRegistry.class);
+        rows = context.getBean(PermissionMapper.class).selectMany(StatementTemplates.PERMISSIONS_BY_USER_ID.bind(1001));
+        hashSet = buildHashSet();
+        bits = buildBits();
+        probe = new SimpleGrantedAuthority(rows.get(rows.size() / 2).getPermissionCode());
+        probeIndex = permissionRegistry.indexOf(probe.getAuthority());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Set<SimpleGrantedAuthority> buildHashSet() {
+        Set<SimpleGrantedAuthority> authorities = new HashSet<>();
+        for (Permission p : rows) {
+            authorities.add(new SimpleGrantedAuthority(p.getPermissionCode()));
+        }
+        return authorities;
+    }
+
+    @Benchmark
+    public PermissionAuthorities buildBits() {
+        PermissionAuthorities.Builder authorities = PermissionAuthorities.builder(permissionRegistry);
+        for (Permission p : rows) {
+            authorities.add(permissionRegistry.resolveId(p.getId()));
+        }
+        return authorities.build();
+    }
+
+    @Benchmark
+    public boolean containsHashSet() {
+        return hashSet.contains(probe);
+    }
+
+    @Benchmark
+    public boolean containsBitsByAuthority() {
+        return bits.contains(probe);
+    }
+
+    @Benchmark
+    public boolean hasBit() {
+        return bits.has(probeIndex);
+    }
+
+    /**
+     * What {@code hasAuthority} does on a token: a scan over the authorities.
+     */
+    @Benchmark
+    public boolean scanAuthorities() {
+        for (GrantedAuthority authority : bits) {
+            if (probe.getAuthority().equals(authority.getAuthority())) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.springsecurityrbac.perf;
+
+import com.example.springsecurityrbac.service.PermissionRegistry;
+import com.example.springsecurityrbac.service.RbacSnapshotService;
+import com.example.springsecurityrbac.service.SecurityUserService;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.annotation.MapperScan;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Spring context with the MyBatis mappers and the login services over a
+ * {@link BenchmarkDatabase}, without web, Redis or Spring Boot auto-configuration.
+ */
+@Configuration
+@MapperScan("com.example.springsecurityrbac.dao")
+@Import({PermissionRegistry.class, SecurityUserService.class, RbacSnapshotService.class})
+public class BenchmarkContext {
+
+    public static AnnotationConfigApplicationContext start(DataSource dataSource, Map<String, Object> properties,
+                                                           Class<?>... configurations) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        context.getBeanFactory().registerSingleton("dataSource", dataSource);
+        context.register(BenchmarkContext.class);
+        if (configurations.length > 0) context.register(configurations);
+        context.refresh();
+        return context;
+    }
+
+    @Bean
+    public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+        return new PropertySourcesPlaceholderConfigurer();
+    }
+
+    @Bean
+    public SqlSessionFactory sqlSessionFactory(DataSource dataSource) throws Exception {
+        SqlSessionFactoryBean factory = new SqlSessionFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setMapperLocations(new PathMatchingResourcePatternResolver().getResources("classpath:mybatis/*.xml"));
+        return factory.getObject();
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager(DataSource dataSource) {
+        return new DataSourceTransactionManager(dataSource);
+    }
+}
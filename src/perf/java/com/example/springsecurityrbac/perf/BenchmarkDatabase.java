@@ -0,0 +1,154 @@
+package com.example.springsecurityrbac.perf;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory H2 database in MySQL mode, migrated with the application's Flyway scripts,
+ * with a generated RBAC data set on top of the rows shipped there. Users are named
+ * {@code user1..userN} with password {@code 123456}, permission codes are
+ * {@code PERMISSION_1..PERMISSION_N}, and every generated role also grants {@code USER_VIEW}.
+ * Generated roles are flat unless {@link #addRoleTree(DataSource, int, int)} links them,
+ * users have no department unless {@link #assignDepartments(DataSource, int)} spreads them.
+ */
+public final class BenchmarkDatabase {
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private BenchmarkDatabase() {
+    }
+
+    public static DataSource create(int users, int roles, int permissions, int rolesPerUser, int permissionsPerRole) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:rbac" + SEQUENCE.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(dataSource);
+        flyway.migrate();
+        try (Connection connection = dataSource.getConnection()) {
+            populate(connection, users, roles, permissions, rolesPerUser, permissionsPerRole);
+        } catch (SQLException e) {
+            throw new IllegalStateException("cannot create benchmark database", e);
+        }
+        return dataSource;
+    }
+
+    /**
+     * Makes the generated roles a tree rooted at the first one, role {@code i} inherits from
+     * role {@code (i - 2) / fanout + 1}, so the last roles are the deepest leaves. Only
+     * role_parent is written, role_closure has to be rebuilt afterwards.
+     */
+    public static void addRoleTree(DataSource dataSource, int roles, int fanout) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("insert into role_parent(role_id, parent_id) values (?, ?)")) {
+            for (int i = 2; i <= roles; i++) {
+                ps.setInt(1, 1000 + i);
+                ps.setInt(2, 1000 + (i - 2) / fanout + 1);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (SQLException e) {
+            throw new IllegalStateException("cannot create role tree", e);
+        }
+    }
+
+    /**
+     * Puts every user into one of {@code departments} departments, round robin by id, and
+     * refreshes the statistics so H2 picks the department index.
+     */
+    public static void assignDepartments(DataSource dataSource, int departments) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("update `user` set dept_id = mod(id, ?) + 1");
+             Statement statement = connection.createStatement()) {
+            ps.setInt(1, departments);
+            ps.executeUpdate();
+            statement.execute("analyze");
+        } catch (SQLException e) {
+            throw new IllegalStateException("cannot assign departments", e);
+        }
+    }
+
+    private static void populate(Connection connection, int users, int roles, int permissions,
+                                 int rolesPerUser, int permissionsPerRole) throws SQLException {
+        Random random = new Random(42);
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("delete from user_role");
+            statement.execute("delete from role_permission");
+            statement.execute("delete from `user` where id > 1");
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "insert into permission(id, permission_name, permission_code) values (?, ?, ?)")) {
+            for (int i = 1; i <= permissions; i++) {
+                ps.setInt(1, 1000 + i);
+                ps.setString(2, "permission " + i);
+                ps.setString(3, "PERMISSION_" + i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = connection.prepareStatement("insert into role(id, role_name) values (?, ?)")) {
+            for (int i = 1; i <= roles; i++) {
+                ps.setInt(1, 1000 + i);
+                ps.setString(2, "role " + i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "insert into role_closure(descendant_id, ancestor_id, path_count) values (?, ?, 1)")) {
+            for (int i = 1; i <= roles; i++) {
+                ps.setInt(1, 1000 + i);
+                ps.setInt(2, 1000 + i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "insert into role_permission(role_id, permission_id) values (?, ?)")) {
+            ps.setInt(1, 1);
+            ps.setInt(2, 1);
+            ps.addBatch();
+            for (int role = 1; role <= roles; role++) {
+                ps.setInt(1, 1000 + role);
+                ps.setInt(2, 1);
+                ps.addBatch();
+                for (int p : random.ints(1, permissions + 1).distinct().limit(Math.min(permissionsPerRole, permissions)).toArray()) {
+                    ps.setInt(1, 1000 + role);
+                    ps.setInt(2, 1000 + p);
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement user = connection.prepareStatement(
+                "insert into `user`(id, username, password, locked) values (?, ?, ?, 0)");
+             PreparedStatement userRole = connection.prepareStatement(
+                     "insert into user_role(user_id, role_id) values (?, ?)")) {
+            userRole.setInt(1, 1);
+            userRole.setInt(2, 1);
+            userRole.addBatch();
+            for (int i = 1; i <= users; i++) {
+                user.setInt(1, 1000 + i);
+                user.setString(2, "user" + i);
+                user.setString(3, "123456");
+                user.addBatch();
+                for (int role : random.ints(1, roles + 1).distinct().limit(Math.min(rolesPerUser, roles)).toArray()) {
+                    userRole.setInt(1, 1000 + i);
+                    userRole.setInt(2, 1000 + role);
+                    userRole.addBatch();
+                }
+            }
+            user.executeBatch();
+            userRole.executeBatch();
+        }
+        connection.commit();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.springsecurityrbac.perf;
+
+import com.example.springsecurityrbac.dao.UserMapper;
+import com.example.springsecurityrbac.model.User;
+import com.example.springsecurityrbac.service.DataScopeService;
+import com.example.springsecurityrbac.service.SecurityUserService;
+import com.example.springsecurityrbac.service.UserQueryService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.prepost.PostFilter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Users of the caller's department out of {@code users} spread over {@code departments}:
+ * {@link UserQueryService} with the scope pushed into the where clause (a page of 50 and the
+ * whole department), against reading the table and dropping rows with {@code @PostFilter}.
+ * The caller is {@code liubo}, whose {@code USER_VIEW} grant is narrowed to its department.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DataScopeBenchmark {
+    @Param({"100000"})
+    public int users;
+    @Param({"10", "100"})
+    public int departments;
+
+    private AnnotationConfigApplicationContext context;
+    private UserQueryService userQueryService;
+    private PostFiltered postFiltered;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        DataSource dataSource = BenchmarkDatabase.create(users, 10, 200, 1, 5);
+        BenchmarkDatabase.assignDepartments(dataSource, departments);
+        new JdbcTemplate(dataSource).update("update role_permission set data_scope = 2 where role_id = 1 and permission_id = 1");
+        context = BenchmarkContext.start(dataSource, Collections.emptyMap(), Scoped.class);
+        userQueryService = context.getBean(UserQueryService.class);
+        postFiltered = context.getBean(PostFiltered.class);
+        User user = (User) context.getBean(SecurityUserService.class).loadUserByUsername("liubo");
+        user.setDeptId(1 % departments + 1);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+        context.close();
+    }
+
+    @Benchmark
+    public List<UserQueryService.UserSummary> pushdownPage() {
+        return userQueryService.list(0, 50);
+    }
+
+    @Benchmark
+    public List<UserQueryService.UserSummary> pushdownDepartment() {
+        return userQueryService.list(0, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<User> postFilterDepartment() {
+        return postFiltered.users();
+    }
+
+    public static class PostFiltered {
+        @Autowired
+        private UserMapper userMapper;
+
+        @PostFilter("filterObject.deptId == principal.deptId")
+        public List<User> users() {
+            return userMapper.selectByExample().build().execute();
+        }
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    @EnableGlobalMethodSecurity(prePostEnabled = true)
+    @Import({DataScopeService.class, UserQueryService.class})
+    public static class Scoped {
+
+        @Bean
+        public PostFiltered postFiltered() {
+            return new PostFiltered();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.springsecurityrbac.perf;
+
+import com.alibaba.druid.filter.FilterEventAdapter;
+import com.alibaba.druid.proxy.jdbc.StatementProxy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Druid filter that waits {@code loadtest.jdbc-latency-millis} before every statement, the
+ * round trip an in-memory {@link BenchmarkDatabase} does not have. The calling thread sleeps
+ * outside of any driver lock, as it would while waiting on a socket.
+ */
+public class JdbcLatencyFilter extends FilterEventAdapter {
+    private final long latencyMillis = Long.getLong("loadtest.jdbc-latency-millis", 0);
+
+    @Override
+    protected void statementExecuteBefore(StatementProxy statement, String sql) {
+        pause();
+    }
+
+    @Override
+    protected void statementExecuteQueryBefore(StatementProxy statement, String sql) {
+        pause();
+    }
+
+    @Override
+    protected void statementExecuteUpdateBefore(StatementProxy statement, String sql) {
+        pause();
+    }
+
+    @Override
+    protected void statementExecuteBatchBefore(StatementProxy statement) {
+        pause();
+    }
+
+    private void pause() {
+        if (latencyMillis <= 0) return;
+        try {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.springsecurityrbac.perf;
+
+import com.example.springsecurityrbac.dao.PermissionMapper;
+import com.example.springsecurityrbac.dao.StatementTemplates;
+import com.example.springsecurityrbac.model.Permission;
+import com.example.springsecurityrbac.service.SecurityUserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SecurityUserService#loadUserByUsername(String)} against H2: user query plus
+ * permission join ({@code join}), one mapped query ({@code single-query}) and the in-memory
+ * snapshot ({@code snapshot}). {@link #permissionResultMapping()} isolates the mapping of
+ * one user's permission rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LoginBenchmark {
+    @Param({"join", "single-query", "snapshot"})
+    public String mode;
+    @Param({"1000"})
+    public int users;
+    @Param({"200"})
+    public int permissions;
+
+    private AnnotationConfigApplicationContext context;
+    private SecurityUserService securityUserService;
+    private PermissionMapper permissionMapper;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("rbac.login.single-query", "single-query".equals(mode));
+        properties.put("rbac.snapshot.enabled", "snapshot".equals(mode));
+        context = BenchmarkContext.start(BenchmarkDatabase.create(users, 50, permissions, 3, 20), properties);
+        securityUserService = context.getBean(SecurityUserService.class);
+        permissionMapper = context.getBean(PermissionMapper.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsername() {
+        return securityUserService.loadUserByUsername("user" + nextUser());
+    }
+
+    @Benchmark
+    public List<Permission> permissionResultMapping() {
+        return permissionMapper.selectMany(StatementTemplates.PERMISSIONS_BY_USER_ID.bind(1000 + nextUser()));
+    }
+
+    private int nextUser() {
+        next = next == users ? 1 : next + 1;
+        return next;
+    }
+}
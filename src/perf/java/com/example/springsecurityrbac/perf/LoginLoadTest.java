@@ -0,0 +1,394 @@
+package com.example.springsecurityrbac.perf;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.example.springsecurityrbac.SpringSecurityRbacApplication;
+import com.example.springsecurityrbac.config.ReadWriteRoutingDataSource;
+import com.example.springsecurityrbac.service.UsernameFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Boots {@link SpringSecurityRbacApplication} against a {@link BenchmarkDatabase} and an
+ * embedded Redis server, then drives form logins to {@code /login}, each followed by a few
+ * hits on {@code /user/index}, from a fixed number of client threads. Every login comes from
+ * its own {@code X-Forwarded-For} address.
+ * <p>
+ * Reports p50/p99 latency and throughput of logins and page hits, JDBC statements per login
+ * (Druid's execute count, replica pools included), Redis commands per login and its page hits,
+ * the Redis bytes held per session and the mean of every {@code rbac.login.load} phase. After
+ * the measured logins a credential-stuffing burst of wrong passwords runs from a single
+ * address, every other attempt for a username that does not exist, and the report adds how
+ * many of its attempts were turned away and the JDBC statements it cost.
+ * <p>
+ * Settings are system properties:
+ * <ul>
+ * <li>{@code loadtest.users}, {@code loadtest.concurrency}, {@code loadtest.logins},
+ * {@code loadtest.warmup-logins}, {@code loadtest.pages-per-login}: size of the run;</li>
+ * <li>{@code loadtest.jdbc-latency-millis}: delays every statement by {@link JdbcLatencyFilter};</li>
+ * <li>{@code loadtest.stuffing-attempts}: length of the credential-stuffing burst;</li>
+ * <li>{@code loadtest.replicas}: routes reads to that many replica pools on the same database,
+ * i.e. replicas without lag.</li>
+ * </ul>
+ * Program arguments are passed on to the application and win over the stand-in settings, e.g.
+ * {@code --rbac.password.bcrypt-strength=4}, or {@code --spring.main.web-application-type=reactive}
+ * for the WebFlux variant.
+ */
+public class LoginLoadTest {
+    private static final Pattern CSRF = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"");
+    private static final Pattern COOKIE = Pattern.compile("^([^=;]+)=([^;]*)");
+
+    private final int users = Integer.getInteger("loadtest.users", 1000);
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 32);
+    private final int logins = Integer.getInteger("loadtest.logins", 2000);
+    private final int warmupLogins = Integer.getInteger("loadtest.warmup-logins", 200);
+    private final int pagesPerLogin = Integer.getInteger("loadtest.pages-per-login", 5);
+    private final long jdbcLatencyMillis = Long.getLong("loadtest.jdbc-latency-millis", 0);
+    private final int stuffingAttempts = Integer.getInteger("loadtest.stuffing-attempts", 500);
+    private final int replicas = Integer.getInteger("loadtest.replicas", 0);
+    private final String result = System.getProperty("loadtest.result", "target/loadtest-result.json");
+
+    private String baseUrl;
+
+    public static void main(String[] args) throws Exception {
+        new LoginLoadTest().run(args);
+    }
+
+    private void run(String[] args) throws Exception {
+        int redisPort = freePort();
+        RedisServer redis = RedisServer.builder().port(redisPort).setting("bind 127.0.0.1").build();
+        redis.start();
+        ConfigurableApplicationContext context = null;
+        try {
+            String url = ((org.h2.jdbcx.JdbcDataSource) BenchmarkDatabase.create(users, 50, 200, 3, 20)).getURL();
+            Map<String, String> overrides = new LinkedHashMap<>();
+            overrides.put("server.port", "0");
+            overrides.put("spring.datasource.url", url);
+            overrides.put("spring.datasource.username", "sa");
+            overrides.put("spring.datasource.password", "");
+            overrides.put("spring.redis.host", "127.0.0.1");
+            overrides.put("spring.redis.port", String.valueOf(redisPort));
+            overrides.put("spring.redis.password", "");
+            overrides.put("logging.level.root", "WARN");
+            overrides.put("logging.level.org.thymeleaf", "ERROR");
+            overrides.put("server.use-forward-headers", "true");
+            if (replicas > 0) {
+                overrides.put("rbac.datasource.routing.enabled", "true");
+                for (int i = 0; i < replicas; i++) overrides.put("rbac.datasource.replicas[" + i + "].url", url);
+            }
+            if (jdbcLatencyMillis > 0) overrides.put("spring.datasource.druid.filters", JdbcLatencyFilter.class.getName());
+            overrides.forEach(System::setProperty);
+            SpringApplication application = SpringSecurityRbacApplication.application(args);
+            application.addInitializers(app -> app.getBeanFactory().registerSingleton("benchmarkExcludeFilter", new BenchmarkExcludeFilter()));
+            context = application.run(args);
+            baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+            List<DruidDataSource> pools = new ArrayList<>();
+            pools.add(context.getBean(DruidDataSource.class));
+            if (replicas > 0) pools.addAll(context.getBean(ReadWriteRoutingDataSource.class).getReplicas().values());
+            awaitUsernameFilter(context);
+
+            drive(warmupLogins);
+            flushSessions(context);
+            long statementsBefore = executeCount(pools);
+            long primaryBefore = pools.get(0).getExecuteCount();
+            long redisCommandsBefore = redisCommands(context);
+            Stats stats = drive(logins);
+            long statements = executeCount(pools) - statementsBefore;
+            long replicaStatements = statements - (pools.get(0).getExecuteCount() - primaryBefore);
+            long redisCommands = redisCommands(context) - redisCommandsBefore;
+            long[] sessionBytes = sessionBytes(context);
+            statementsBefore = executeCount(pools);
+            Stats stuffing = stuff(stuffingAttempts);
+            long stuffingStatements = executeCount(pools) - statementsBefore;
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("users", users);
+            report.put("concurrency", concurrency);
+            report.put("jdbcLatencyMillis", jdbcLatencyMillis);
+            report.put("logins", stats.login.size());
+            report.put("failedLogins", stats.failures.get());
+            report.put("durationMillis", stats.millis);
+            report.put("loginsPerSecond", stats.login.size() * 1000.0 / stats.millis);
+            report.put("pagesPerSecond", stats.page.size() * 1000.0 / stats.millis);
+            report.put("loginP50Millis", percentile(stats.login, 50));
+            report.put("loginP99Millis", percentile(stats.login, 99));
+            report.put("pageP50Millis", percentile(stats.page, 50));
+            report.put("pageP99Millis", percentile(stats.page, 99));
+            report.put("statementsPerLogin", statements / (double) Math.max(1, stats.login.size()));
+            report.put("replicas", replicas);
+            report.put("replicaStatementShare", replicaStatements / (double) Math.max(1, statements));
+            report.put("redisCommandsPerLogin", redisCommands / (double) Math.max(1, stats.login.size()));
+            report.put("sessions", sessionBytes[0]);
+            report.put("redisBytesPerSession", sessionBytes[1] / (double) Math.max(1, sessionBytes[0]));
+            report.put("stuffingAttempts", stuffingAttempts);
+            report.put("stuffingRejected", stuffing.failures.get());
+            report.put("stuffingP50Millis", percentile(stuffing.login, 50));
+            report.put("statementsPerStuffingAttempt", stuffingStatements / (double) Math.max(1, stuffingAttempts));
+            for (Timer phase : context.getBean(MeterRegistry.class).find("rbac.login.load").timers()) {
+                report.put("loadUserMeanMillis." + phase.getId().getTag("phase"), phase.mean(TimeUnit.MILLISECONDS));
+            }
+            print(report, System.out);
+            Files.createDirectories(Paths.get(result).toAbsolutePath().getParent());
+            try (PrintStream out = new PrintStream(Files.newOutputStream(Paths.get(result)), true, "UTF-8")) {
+                print(report, out);
+            }
+        } finally {
+            if (context != null) context.close();
+            redis.stop();
+        }
+    }
+
+    private Stats drive(int count) throws Exception {
+        Stats stats = new Stats();
+        AtomicInteger sequence = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < concurrency; t++) {
+            futures.add(clients.submit(() -> {
+                List<Long> login = new ArrayList<>();
+                List<Long> page = new ArrayList<>();
+                for (int n = sequence.getAndIncrement(); n < count; n = sequence.getAndIncrement()) {
+                    Map<String, String> cookies = new HashMap<>();
+                    String client = "10." + (n >> 16 & 0xFF) + "." + (n >> 8 & 0xFF) + "." + (n & 0xFF);
+                    long begin = System.nanoTime();
+                    Response response = login("user" + (n % users + 1), "123456", client, cookies);
+                    if (response.status != 302 || response.location.contains("error")) {
+                        stats.failures.incrementAndGet();
+                        continue;
+                    }
+                    login.add(System.nanoTime() - begin);
+                    for (int i = 0; i < pagesPerLogin; i++) {
+                        begin = System.nanoTime();
+                        int status = request("GET", "/user/index", null, client, cookies).status;
+                        if (status != 200) throw new IllegalStateException("/user/index returned " + status);
+                        page.add(System.nanoTime() - begin);
+                    }
+                }
+                synchronized (stats) {
+                    stats.login.addAll(login);
+                    stats.page.addAll(page);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        stats.millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        clients.shutdown();
+        return stats;
+    }
+
+    /**
+     * Wrong passwords for every user in turn, alternating with usernames that do not exist, all
+     * from one address. Attempts turned away with 429 count as failures.
+     */
+    private Stats stuff(int count) throws Exception {
+        Stats stats = new Stats();
+        AtomicInteger sequence = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < concurrency; t++) {
+            futures.add(clients.submit(() -> {
+                List<Long> attempts = new ArrayList<>();
+                for (int n = sequence.getAndIncrement(); n < count; n = sequence.getAndIncrement()) {
+                    long begin = System.nanoTime();
+                    String username = n % 2 == 0 ? "user" + (n / 2 % users + 1) : "nobody" + n;
+                    Response response = login(username, "wrong-" + n, "203.0.113.7", new HashMap<>());
+                    attempts.add(System.nanoTime() - begin);
+                    if (response.status == 429) stats.failures.incrementAndGet();
+                }
+                synchronized (stats) {
+                    stats.login.addAll(attempts);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        stats.millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        clients.shutdown();
+        return stats;
+    }
+
+    private Response login(String username, String password, String client, Map<String, String> cookies) throws IOException {
+        Response page = request("GET", "/login", null, client, cookies);
+        Matcher csrf = CSRF.matcher(page.body);
+        if (!csrf.find()) throw new IllegalStateException("no csrf token on the login page");
+        String form = "username=" + URLEncoder.encode(username, "UTF-8")
+                + "&password=" + URLEncoder.encode(password, "UTF-8")
+                + "&_csrf=" + URLEncoder.encode(csrf.group(1), "UTF-8");
+        return request("POST", "/login", form, client, cookies);
+    }
+
+    private Response request(String method, String path, String form, String client, Map<String, String> cookies) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setInstanceFollowRedirects(false);
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("X-Forwarded-For", client);
+        if (!cookies.isEmpty()) {
+            StringBuilder header = new StringBuilder();
+            cookies.forEach((name, value) -> header.append(header.length() == 0 ? "" : "; ").append(name).append('=').append(value));
+            connection.setRequestProperty("Cookie", header.toString());
+        }
+        if (form != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(form.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        Response response = new Response();
+        response.status = connection.getResponseCode();
+        response.location = String.valueOf(connection.getHeaderField("Location"));
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            if (!"Set-Cookie".equalsIgnoreCase(header.getKey())) continue;
+            for (String setCookie : header.getValue()) {
+                Matcher cookie = COOKIE.matcher(setCookie);
+                if (cookie.find()) cookies.put(cookie.group(1), cookie.group(2));
+            }
+        }
+        InputStream in = response.status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                byte[] buffer = new byte[4096];
+                for (int n; (n = stream.read(buffer)) > 0; ) {
+                    body.write(buffer, 0, n);
+                }
+            }
+        }
+        response.body = new String(body.toByteArray(), StandardCharsets.UTF_8);
+        return response;
+    }
+
+    private static void awaitUsernameFilter(ConfigurableApplicationContext context) throws InterruptedException {
+        UsernameFilter filter = context.getBeansOfType(UsernameFilter.class).values().stream().findFirst().orElse(null);
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        while (filter != null && !filter.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    private static void flushSessions(ConfigurableApplicationContext context) {
+        context.getBean(StringRedisTemplate.class).execute((RedisCallback<Object>) connection -> {
+            Set<byte[]> keys = connection.keys("spring:session:sessions:*".getBytes(StandardCharsets.UTF_8));
+            if (keys != null && !keys.isEmpty()) connection.del(keys.toArray(new byte[0][]));
+            return null;
+        });
+    }
+
+    private static long executeCount(List<DruidDataSource> pools) {
+        return pools.stream().mapToLong(DruidDataSource::getExecuteCount).sum();
+    }
+
+    private static long redisCommands(ConfigurableApplicationContext context) {
+        Properties stats = context.getBean(StringRedisTemplate.class).execute((RedisCallback<Properties>) connection -> connection.info("stats"));
+        return Long.parseLong(stats.getProperty("total_commands_processed", "0"));
+    }
+
+    /**
+     * Number of sessions and the bytes of their hash fields and values.
+     */
+    private static long[] sessionBytes(ConfigurableApplicationContext context) {
+        return context.getBean(StringRedisTemplate.class).execute((RedisCallback<long[]>) connection -> {
+            long sessions = 0;
+            long bytes = 0;
+            for (byte[] key : connection.keys("spring:session:sessions:*".getBytes(StandardCharsets.UTF_8))) {
+                if (new String(key, StandardCharsets.UTF_8).contains(":expires:")) continue;
+                Map<byte[], byte[]> hash = connection.hGetAll(key);
+                sessions++;
+                bytes += key.length;
+                for (Map.Entry<byte[], byte[]> entry : hash.entrySet()) {
+                    bytes += entry.getKey().length + entry.getValue().length;
+                }
+            }
+            return new long[]{sessions, bytes};
+        });
+    }
+
+    private static double percentile(List<Long> nanos, int percentile) {
+        if (nanos.isEmpty()) return 0;
+        Long[] sorted = nanos.toArray(new Long[0]);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static void print(Map<String, Object> report, PrintStream out) {
+        StringBuilder json = new StringBuilder("{\n");
+        report.forEach((name, value) -> json.append("  \"").append(name).append("\": ")
+                .append(value instanceof Double ? String.format(Locale.ROOT, "%.3f", (Double) value) : value).append(",\n"));
+        json.setLength(json.length() - 2);
+        out.println(json.append("\n}"));
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Keeps the benchmark configurations, which live below the application's package, out of
+     * its component scan.
+     */
+    private static final class BenchmarkExcludeFilter extends TypeExcludeFilter {
+        @Override
+        public boolean match(MetadataReader reader, MetadataReaderFactory factory) {
+            return reader.getClassMetadata().getClassName().startsWith(LoginLoadTest.class.getPackage().getName() + ".");
+        }
+    }
+
+    private static final class Stats {
+        final List<Long> login = new ArrayList<>();
+        final List<Long> page = new ArrayList<>();
+        final AtomicInteger failures = new AtomicInteger();
+        long millis;
+    }
+
+    private static final class Response {
+        int status;
+        String location;
+        String body;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.springsecurityrbac.perf;
+
+import com.example.springsecurityrbac.config.BitPermissionEvaluator;
+import com.example.springsecurityrbac.config.PermissionContact;
+import com.example.springsecurityrbac.config.RequiresPermission;
+import com.example.springsecurityrbac.config.RequiresPermissionInterceptor;
+import com.example.springsecurityrbac.service.SecurityUserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.aop.Advisor;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One secured method call through the Spring proxy: {@code @PreAuthorize} with
+ * {@code hasAuthority} and with {@code hasPermission}, against {@link RequiresPermission}.
+ * The caller is {@code liubo} from the initial migration with 20 more permissions per role.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MethodSecurityBenchmark {
+    private AnnotationConfigApplicationContext context;
+    private SecuredTarget target;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(BenchmarkDatabase.create(100, 10, 200, 3, 20), Collections.emptyMap(),
+                MethodSecurityConfig.class);
+        target = context.getBean(SecuredTarget.class);
+        UserDetails user = context.getBean(SecurityUserService.class).loadUserByUsername("liubo");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+        context.close();
+    }
+
+    @Benchmark
+    public int preAuthorizeHasAuthority() {
+        return target.hasAuthority();
+    }
+
+    @Benchmark
+    public int preAuthorizeHasPermission() {
+        return target.hasPermission();
+    }
+
+    @Benchmark
+    public int requiresPermission() {
+        return target.requiresPermission();
+    }
+
+    public static class SecuredTarget {
+
+        @PreAuthorize("hasAuthority(T(com.example.springsecurityrbac.config.PermissionContact).USER_VIEW)")
+        public int hasAuthority() {
+            return 1;
+        }
+
+        @PreAuthorize("hasPermission(null, T(com.example.springsecurityrbac.config.PermissionContact).USER_VIEW)")
+        public int hasPermission() {
+            return 1;
+        }
+
+        @RequiresPermission(PermissionContact.USER_VIEW)
+        public int requiresPermission() {
+            return 1;
+        }
+    }
+
+    @Configuration
+    @EnableGlobalMethodSecurity(prePostEnabled = true)
+    public static class MethodSecurityConfig {
+
+        @Bean
+        public SecuredTarget securedTarget() {
+            return new SecuredTarget();
+        }
+
+        @Bean
+        public BitPermissionEvaluator bitPermissionEvaluator() {
+            return new BitPermissionEvaluator();
+        }
+
+        @Bean
+        @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+        public static Advisor requiresPermissionAdvisor() {
+            return new RequiresPermissionInterceptor().advisor();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.springsecurityrbac.perf;
+
+import com.example.springsecurityrbac.dao.PermissionMapper;
+import com.example.springsecurityrbac.dao.StatementTemplates;
+import com.example.springsecurityrbac.model.Permission;
+import com.example.springsecurityrbac.service.RoleHierarchyService;
+import com.example.springsecurityrbac.service.SecurityUserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Role inheritance over {@code roles} generated roles, linked as a tree with {@code fanout}
+ * children per role ({@code 0} keeps them flat). Users hold random roles, most of them deep
+ * leaves. {@link #permissionsOfUser()} is the login join through role_closure,
+ * {@link #toggleLeafEdge()} and {@link #toggleSubtreeEdge()} add or remove (alternately) a
+ * second parent of the last leaf and of the first child of the root, which has a
+ * {@code 1 / fanout} share of all roles below it. {@link #rebuild()} recomputes the whole
+ * closure for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RoleHierarchyBenchmark {
+    @Param({"0", "4", "16"})
+    public int fanout;
+    @Param({"10000"})
+    public int roles;
+    @Param({"1000"})
+    public int users;
+
+    private AnnotationConfigApplicationContext context;
+    private SecurityUserService securityUserService;
+    private PermissionMapper permissionMapper;
+    private RoleHierarchyService roleHierarchyService;
+    private boolean leafLinked;
+    private boolean subtreeLinked;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        DataSource dataSource = BenchmarkDatabase.create(users, roles, 200, 3, 5);
+        if (fanout > 0) BenchmarkDatabase.addRoleTree(dataSource, roles, fanout);
+        context = BenchmarkContext.start(dataSource, new HashMap<>(), Hierarchy.class);
+        securityUserService = context.getBean(SecurityUserService.class);
+        permissionMapper = context.getBean(PermissionMapper.class);
+        roleHierarchyService = context.getBean(RoleHierarchyService.class);
+        roleHierarchyService.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Permission> permissionsOfUser() {
+        return permissionMapper.selectMany(StatementTemplates.PERMISSIONS_BY_USER_ID.bind(1000 + nextUser()));
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsername() {
+        return securityUserService.loadUserByUsername("user" + nextUser());
+    }
+
+    @Benchmark
+    public boolean toggleLeafEdge() {
+        leafLinked = !leafLinked;
+        return leafLinked ? roleHierarchyService.addParent(1000 + roles, 1001) : roleHierarchyService.removeParent(1000 + roles, 1001);
+    }
+
+    @Benchmark
+    public boolean toggleSubtreeEdge() {
+        subtreeLinked = !subtreeLinked;
+        return subtreeLinked ? roleHierarchyService.addParent(1002, 1003) : roleHierarchyService.removeParent(1002, 1003);
+    }
+
+    @Benchmark
+    public int rebuild() {
+        return roleHierarchyService.rebuild();
+    }
+
+    private int nextUser() {
+        next = next == users ? 1 : next + 1;
+        return next;
+    }
+
+    @Configuration
+    @Import(RoleHierarchyService.class)
+    public static class Hierarchy {
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.springsecurityrbac.perf;
+
+import com.example.springsecurityrbac.config.SessionRedisSerializer;
+import com.example.springsecurityrbac.service.PermissionRegistry;
+import com.example.springsecurityrbac.service.SecurityUserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing the session's {@link SecurityContext} of a logged-in {@code User}, the JDK
+ * serializer against {@link SessionRedisSerializer}. Sizes are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SessionSerializationBenchmark {
+    @Param({"jdk", "compact"})
+    public String serializer;
+    @Param({"20", "200"})
+    public int permissionsPerRole;
+
+    private AnnotationConfigApplicationContext context;
+    private RedisSerializer<Object> redisSerializer;
+    private SecurityContext securityContext;
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(BenchmarkDatabase.create(10, 5, 1000, 3, permissionsPerRole), Collections.emptyMap());
+        redisSerializer = "jdk".equals(serializer) ? new JdkSerializationRedisSerializer()
+                : new SessionRedisSerializer(context.getBean(PermissionRegistry.class), 512);
+        UserDetails user = context.getBean(SecurityUserService.class).loadUserByUsername("user1");
+        securityContext = new SecurityContextImpl();
+        securityContext.setAuthentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        serialized = redisSerializer.serialize(securityContext);
+        System.out.printf("%n%s, %d authorities: %d bytes%n", serializer, user.getAuthorities().size(), serialized.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return redisSerializer.serialize(securityContext);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return redisSerializer.deserialize(serialized);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.springsecurityrbac.perf;
+
+import com.example.springsecurityrbac.dao.PermissionDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.RolePermissionDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.StatementTemplates;
+import com.example.springsecurityrbac.dao.UserDynamicSqlSupport;
+import com.example.springsecurityrbac.dao.UserRoleDynamicSqlSupport;
+import org.mybatis.dynamic.sql.render.RenderingStrategy;
+import org.mybatis.dynamic.sql.select.render.SelectStatementProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mybatis.dynamic.sql.SqlBuilder.equalTo;
+import static org.mybatis.dynamic.sql.SqlBuilder.isEqualTo;
+import static org.mybatis.dynamic.sql.SqlBuilder.select;
+
+/**
+ * Rendering the login statements with the dynamic SQL DSL on every call against binding
+ * the pre-rendered {@link StatementTemplates}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StatementBenchmark {
+    private final String username = "user1";
+    private final Integer userId = 1001;
+
+    @Benchmark
+    public SelectStatementProvider userByUsernameDsl() {
+        return select(UserDynamicSqlSupport.id, UserDynamicSqlSupport.username, UserDynamicSqlSupport.password, UserDynamicSqlSupport.locked)
+                .from(UserDynamicSqlSupport.user)
+                .where(UserDynamicSqlSupport.username, isEqualTo(username))
+                .build().render(RenderingStrategy.MYBATIS3);
+    }
+
+    @Benchmark
+    public SelectStatementProvider userByUsernameTemplate() {
+        return StatementTemplates.USER_BY_USERNAME.bind(username);
+    }
+
+    @Benchmark
+    public SelectStatementProvider permissionsByUserIdDsl() {
+        return select(PermissionDynamicSqlSupport.id, PermissionDynamicSqlSupport.permissionCode, PermissionDynamicSqlSupport.permissionName)
+                .from(PermissionDynamicSqlSupport.permission)
+                .join(RolePermissionDynamicSqlSupport.rolePermission).on(RolePermissionDynamicSqlSupport.permissionId, equalTo(PermissionDynamicSqlSupport.id))
+                .join(UserRoleDynamicSqlSupport.userRole).on(UserRoleDynamicSqlSupport.roleId, equalTo(RolePermissionDynamicSqlSupport.roleId))
+                .where(UserRoleDynamicSqlSupport.userId, isEqualTo(userId))
+                .build().render(RenderingStrategy.MYBATIS3);
+    }
+
+    @Benchmark
+    public SelectStatementProvider permissionsByUserIdTemplate() {
+        return StatementTemplates.PERMISSIONS_BY_USER_ID.bind(userId);
+    }
+}
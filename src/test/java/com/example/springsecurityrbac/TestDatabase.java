@@ -0,0 +1,83 @@
+package com.example.springsecurityrbac;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory H2 database in MySQL mode, migrated with the application's Flyway scripts. On top
+ * of the shipped rows, {@link #create} adds users {@code user1..userN} (ids from 1001), roles
+ * and permissions with ids from 1001, every role granting {@code USER_VIEW}. User {@code i}
+ * gets the roles following {@code i}, role {@code r} the permissions following
+ * {@code r * permissionsPerRole}, so the data set is the same on every run.
+ */
+public final class TestDatabase {
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private TestDatabase() {
+    }
+
+    public static DataSource create(int users, int roles, int permissions, int rolesPerUser, int permissionsPerRole) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:test" + SEQUENCE.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(dataSource);
+        flyway.migrate();
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= permissions; i++) rows.add(new Object[]{1000 + i, "permission " + i, "PERMISSION_" + i});
+        jdbcTemplate.batchUpdate("insert into permission(id, permission_name, permission_code) values (?, ?, ?)", rows);
+
+        rows.clear();
+        List<Object[]> grants = new ArrayList<>();
+        for (int r = 1; r <= roles; r++) {
+            rows.add(new Object[]{1000 + r, "role " + r});
+            grants.add(new Object[]{1000 + r, 1});
+            for (int k = 0; k < Math.min(permissionsPerRole, permissions); k++) {
+                grants.add(new Object[]{1000 + r, 1001 + (r * permissionsPerRole + k) % permissions});
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into role(id, role_name) values (?, ?)", rows);
+        jdbcTemplate.batchUpdate("insert into role_closure(descendant_id, ancestor_id, path_count) values (?, ?, 1)",
+                rows.stream().map(row -> new Object[]{row[0], row[0]}).collect(Collectors.toList()));
+        jdbcTemplate.batchUpdate("insert into role_permission(role_id, permission_id) values (?, ?)", grants);
+
+        rows.clear();
+        List<Object[]> assignments = new ArrayList<>();
+        for (int i = 1; i <= users; i++) {
+            rows.add(new Object[]{1000 + i, "user" + i, "123456"});
+            for (int k = 0; k < Math.min(rolesPerUser, roles); k++) {
+                assignments.add(new Object[]{1000 + i, 1001 + (i + k) % roles});
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into `user`(id, username, password, locked) values (?, ?, ?, 0)", rows);
+        jdbcTemplate.batchUpdate("insert into user_role(user_id, role_id) values (?, ?)", assignments);
+        return dataSource;
+    }
+
+    /**
+     * Makes the generated roles a tree rooted at the first one, role {@code i} inheriting from
+     * role {@code (i - 2) / fanout + 1}. Only role_parent is written, role_closure has to be
+     * rebuilt afterwards.
+     */
+    public static void addRoleTree(DataSource dataSource, int roles, int fanout) {
+        List<Object[]> edges = new ArrayList<>();
+        for (int i = 2; i <= roles; i++) edges.add(new Object[]{1000 + i, 1000 + (i - 2) / fanout + 1});
+        new JdbcTemplate(dataSource).batchUpdate("insert into role_parent(role_id, parent_id) values (?, ?)", edges);
+    }
+
+    /**
+     * Puts every user into one of {@code departments} departments, {@code id mod departments + 1}.
+     */
+    public static void assignDepartments(DataSource dataSource, int departments) {
+        new JdbcTemplate(dataSource).update("update `user` set dept_id = mod(id, ?) + 1", departments);
+    }
+}
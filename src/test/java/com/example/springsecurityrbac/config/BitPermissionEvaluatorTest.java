@@ -0,0 +1,32 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.service.PermissionRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BitPermissionEvaluatorTest {
+    private final BitPermissionEvaluator evaluator = new BitPermissionEvaluator();
+    private final Authentication authentication = new TestingAuthenticationToken("user1", "", "USER_VIEW");
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(evaluator, "permissionRegistry", new PermissionRegistry());
+    }
+
+    @Test
+    public void unknownIndexIsDenied() {
+        assertThat(evaluator.hasPermission(authentication, null, 42)).isFalse();
+        assertThat(evaluator.hasPermission(authentication, null, -1)).isFalse();
+    }
+
+    @Test
+    public void codeIsMatchedAgainstAuthorities() {
+        assertThat(evaluator.hasPermission(authentication, null, "USER_VIEW")).isTrue();
+        assertThat(evaluator.hasPermission(authentication, null, "USER_EDIT")).isFalse();
+    }
+}
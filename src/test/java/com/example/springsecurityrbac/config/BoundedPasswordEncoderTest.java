@@ -0,0 +1,132 @@
+package com.example.springsecurityrbac.config;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Strength 4 hashes on one thread with a queue of one; the pool is held busy with latches.
+ */
+public class BoundedPasswordEncoderTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(4, 1, 1, 1000);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        encoder.destroy();
+    }
+
+    @Test
+    public void encodedPasswordMatches() {
+        String encoded = encoder.encode("123456");
+
+        assertThat(encoded).startsWith("{bcrypt}$2a$04$");
+        assertThat(encoder.matches("123456", encoded)).isTrue();
+        assertThat(encoder.matches("654321", encoded)).isFalse();
+        assertThat(encoder.matches("123456", "123456")).isTrue();
+        assertThat(encoder.matches("123456", "{noop}123456")).isTrue();
+    }
+
+    @Test
+    public void hashBeyondTheQueueIsRejectedAtOnce() throws InterruptedException {
+        occupy();
+        occupy();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> encoder.encode("123456"))
+                .isInstanceOf(AuthenticationServiceException.class)
+                .hasMessageContaining("saturated");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(200);
+
+        release.countDown();
+        awaitIdle();
+        assertThat(encoder.matches("123456", encoder.encode("123456"))).isTrue();
+    }
+
+    @Test
+    public void plainTextIsMatchedWithoutThePool() throws InterruptedException {
+        occupy();
+        occupy();
+
+        assertThat(encoder.matches("123456", "123456")).isTrue();
+    }
+
+    @Test
+    public void queuedHashIsDroppedAfterTheTimeout() throws InterruptedException {
+        occupy();
+
+        assertThatThrownBy(() -> encoder.encode("123456"))
+                .isInstanceOf(AuthenticationServiceException.class)
+                .hasMessageContaining("timed out");
+
+        assertThat(executor().getQueue()).hasSize(1);
+        release.countDown();
+        awaitIdle();
+        assertThat(executor().getCompletedTaskCount()).isEqualTo(2);
+        assertThat(encoder.matches("123456", encoder.encode("123456"))).isTrue();
+    }
+
+    @Test
+    public void weakerOrOtherEncodingsAreUpgraded() {
+        BoundedPasswordEncoder strong = new BoundedPasswordEncoder(10, 1, 1, 200);
+        try {
+            String hash = new BCryptPasswordEncoder(10).encode("123456");
+
+            assertThat(strong.upgradeEncoding("{bcrypt}" + hash)).isFalse();
+            assertThat(strong.upgradeEncoding("{bcrypt}" + hash.replace("$10$", "$12$"))).isFalse();
+            assertThat(strong.upgradeEncoding("{bcrypt}" + hash.replace("$10$", "$04$"))).isTrue();
+            assertThat(strong.upgradeEncoding(hash)).isTrue();
+            assertThat(strong.upgradeEncoding("123456")).isTrue();
+            assertThat(strong.upgradeEncoding("{noop}123456")).isTrue();
+            assertThat(strong.upgradeEncoding("{pbkdf2}00ff")).isTrue();
+            assertThat(strong.upgradeEncoding("{bcrypt}$2a$x")).isTrue();
+            assertThat(strong.upgradeEncoding("{bcrypt}$2a$1x$" + hash.substring(7))).isTrue();
+            assertThat(strong.upgradeEncoding(null)).isTrue();
+        } finally {
+            strong.destroy();
+        }
+    }
+
+    /**
+     * Takes the pool thread, or the queue slot once the thread is taken.
+     */
+    private void occupy() throws InterruptedException {
+        ThreadPoolExecutor executor = executor();
+        int queued = executor.getQueue().size();
+        boolean running = executor.getActiveCount() > 0;
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((running ? executor.getQueue().size() == queued : executor.getActiveCount() == 0)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        ThreadPoolExecutor executor = executor();
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((executor.getActiveCount() > 0 || !executor.getQueue().isEmpty()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private ThreadPoolExecutor executor() {
+        return (ThreadPoolExecutor) ReflectionTestUtils.getField(encoder, "executor");
+    }
+}
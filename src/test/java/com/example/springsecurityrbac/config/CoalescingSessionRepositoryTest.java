@@ -0,0 +1,186 @@
+package com.example.springsecurityrbac.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.session.Session;
+import org.springframework.session.data.redis.RedisOperationsSessionRepository;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The repository over Spring Session's Redis repository on an embedded Redis server; what
+ * ends up in Redis is read back through the Redis repository.
+ */
+public class CoalescingSessionRepositoryTest {
+    private static final String NAMESPACE = "spring:session";
+    private static final int TIMEOUT_SECONDS = 1800;
+
+    private static RedisServer redis;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private RedisTemplate<Object, Object> redisTemplate;
+    private RedisOperationsSessionRepository sessionRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private CoalescingSessionRepository repository;
+
+    @BeforeClass
+    public static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = RedisServer.builder().port(port).setting("bind 127.0.0.1").build();
+        redis.start();
+        connectionFactory = new LettuceConnectionFactory("127.0.0.1", port);
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterClass
+    public static void stopRedis() {
+        connectionFactory.destroy();
+        redis.stop();
+    }
+
+    @Before
+    public void setUp() {
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.flushAll();
+            return null;
+        });
+        sessionRepository = new RedisOperationsSessionRepository(redisTemplate);
+        sessionRepository.setDefaultMaxInactiveInterval(TIMEOUT_SECONDS);
+        meterRegistry = new SimpleMeterRegistry();
+        repository = new CoalescingSessionRepository(sessionRepository, NAMESPACE, 5000, 60, meterRegistry);
+    }
+
+    @Test
+    public void touchIsHeldBackUntilTheFlush() {
+        String id = created();
+        Instant accessed = touch(id, 10);
+
+        assertThat(stored(id).getLastAccessedTime()).isBefore(accessed);
+
+        repository.flush();
+
+        assertThat(stored(id).getLastAccessedTime()).isEqualTo(accessed);
+        assertThat(counted("coalesced")).isEqualTo(1);
+    }
+
+    @Test
+    public void flushWritesTheLatestTouch() {
+        String id = created();
+        touch(id, 10);
+        Instant latest = touch(id, 20);
+        touch(id, 15);
+
+        repository.flush();
+
+        assertThat(stored(id).getLastAccessedTime()).isEqualTo(latest);
+    }
+
+    @Test
+    public void flushMovesTheExpirationLikeTheRedisRepository() {
+        String id = created();
+        Instant accessed = touch(id, 120);
+
+        repository.flush();
+
+        long bucket = roundUpToNextMinute(accessed.plusSeconds(TIMEOUT_SECONDS).toEpochMilli());
+        assertThat(redisTemplate.opsForSet().members(NAMESPACE + ":expirations:" + bucket)).containsExactly("expires:" + id);
+        assertThat(redisTemplate.getExpire(NAMESPACE + ":sessions:expires:" + id)).isBetween(TIMEOUT_SECONDS - 5L, (long) TIMEOUT_SECONDS);
+        assertThat(redisTemplate.getExpire(NAMESPACE + ":sessions:" + id)).isGreaterThan((long) TIMEOUT_SECONDS);
+        assertThat(redisTemplate.keys(NAMESPACE + ":expirations:*")).hasSize(1);
+    }
+
+    @Test
+    public void touchCloseToExpiryIsWrittenAtOnce() {
+        repository = new CoalescingSessionRepository(sessionRepository, NAMESPACE, 5000, TIMEOUT_SECONDS + 60, meterRegistry);
+        String id = created();
+
+        Instant accessed = touch(id, 10);
+
+        assertThat(stored(id).getLastAccessedTime()).isEqualTo(accessed);
+        assertThat(counted("written-through")).isEqualTo(1);
+    }
+
+    @Test
+    public void sessionDeletedBeforeTheFlushIsNotRecreated() {
+        String id = created();
+        touch(id, 10);
+        sessionRepository.deleteById(id);
+
+        repository.flush();
+
+        assertThat(sessionRepository.findById(id)).isNull();
+        assertThat(redisTemplate.hasKey(NAMESPACE + ":sessions:expires:" + id)).isFalse();
+        assertThat(redisTemplate.getExpire(NAMESPACE + ":sessions:" + id)).isLessThanOrEqualTo(TimeUnit.MINUTES.toSeconds(5));
+    }
+
+    @Test
+    public void attributeChangeIsSavedWithTheLatestAccessTime() {
+        String id = created();
+        touch(id, 10);
+        CoalescingSessionRepository.TouchedSession session = repository.findById(id);
+        Instant accessed = session.getCreationTime().plusSeconds(20);
+        session.setLastAccessedTime(accessed);
+        session.setAttribute("name", "value");
+
+        repository.save(session);
+
+        Session stored = stored(id);
+        assertThat((String) stored.getAttribute("name")).isEqualTo("value");
+        assertThat(stored.getLastAccessedTime()).isEqualTo(accessed);
+        repository.flush();
+        assertThat(stored(id).getLastAccessedTime()).isEqualTo(accessed);
+    }
+
+    private String created() {
+        CoalescingSessionRepository.TouchedSession session = repository.createSession();
+        session.setLastAccessedTime(session.getCreationTime());
+        repository.save(session);
+        return session.getId();
+    }
+
+    /**
+     * A request {@code seconds} after the session was created, on a session read from Redis.
+     */
+    private Instant touch(String id, long seconds) {
+        CoalescingSessionRepository.TouchedSession session = repository.findById(id);
+        Instant accessed = session.getCreationTime().plusSeconds(seconds).truncatedTo(ChronoUnit.MILLIS);
+        session.setLastAccessedTime(accessed);
+        repository.save(session);
+        return accessed;
+    }
+
+    private Session stored(String id) {
+        return sessionRepository.findById(id);
+    }
+
+    private double counted(String result) {
+        return meterRegistry.get("rbac.session.touch").tag("result", result).counter().count();
+    }
+
+    private static long roundUpToNextMinute(long millis) {
+        long minute = TimeUnit.MINUTES.toMillis(1);
+        return (millis / minute + 1) * minute;
+    }
+}
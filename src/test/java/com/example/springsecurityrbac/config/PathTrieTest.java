@@ -0,0 +1,105 @@
+package com.example.springsecurityrbac.config;
+
+import org.junit.Test;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PathTrieTest {
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    @Test
+    public void literalBeatsWildcardBeatsDoubleWildcard() {
+        PathTrie<String> trie = trie("/**", "/a/**", "/a/*", "/a/b", "/*/b");
+
+        assertThat(trie.match("GET", "/a/b")).containsExactly("/a/b");
+        assertThat(trie.match("GET", "/a/c")).containsExactly("/a/*");
+        assertThat(trie.match("GET", "/a/b/c")).containsExactly("/a/**");
+        assertThat(trie.match("GET", "/a")).containsExactly("/a/**");
+        assertThat(trie.match("GET", "/x/b")).containsExactly("/*/b");
+        assertThat(trie.match("GET", "/x/y")).containsExactly("/**");
+        assertThat(trie.match("GET", "/")).containsExactly("/**");
+    }
+
+    @Test
+    public void patternWithoutDoubleWildcardBeatsOneWith() {
+        PathTrie<String> trie = trie("/a/**", "/*/b");
+
+        assertThat(trie.match("GET", "/a/b")).containsExactly("/*/b");
+        assertThat(trie.match("GET", "/a/c")).containsExactly("/a/**");
+    }
+
+    @Test
+    public void fewerWildcardsThenLongerPatternWins() {
+        PathTrie<String> trie = trie("/a/**", "/*/b/**", "/{x}/{y}/c", "/a/*/*", "/*/b/c");
+
+        assertThat(trie.match("GET", "/a/b/d")).containsExactly("/a/*/*");
+        assertThat(trie.match("GET", "/a/b/c")).containsExactly("/*/b/c");
+        assertThat(trie.match("GET", "/x/b/d/e")).containsExactly("/*/b/**");
+        assertThat(trie.match("GET", "/a/b/d/e")).containsExactly("/a/**");
+    }
+
+    @Test
+    public void sameWinnerAsTheAntComparator() {
+        List<String> patterns = Arrays.asList("/**", "/user/**", "/user/*", "/user/{id}/roles", "/user/me",
+                "/*/me", "/user/*/roles/**", "/*/*/roles", "/admin/**", "/admin/user/*");
+        PathTrie<String> trie = trie(patterns.toArray(new String[0]));
+
+        for (String path : Arrays.asList("/user", "/user/me", "/user/7", "/user/7/roles", "/user/7/roles/3",
+                "/role/me", "/role/7/roles", "/admin", "/admin/user/7", "/admin/user/7/roles", "/other/path")) {
+            Comparator<String> comparator = PATH_MATCHER.getPatternComparator(path);
+            Optional<String> ant = patterns.stream().filter(p -> PATH_MATCHER.match(p, path)).sorted(comparator).findFirst();
+            assertThat(trie.match("GET", path)).as(path).containsExactly(ant.orElseThrow(AssertionError::new));
+        }
+    }
+
+    @Test
+    public void methodSpecificBeatsMethodLessOnTheSamePatternOnly() {
+        PathTrie.Builder<String> builder = PathTrie.builder();
+        builder.add("/user/*", null, "any");
+        builder.add("/user/*", "DELETE", "delete");
+        builder.add("/user/**", "POST", "post");
+        builder.add("/user/me", "PUT", "put me");
+        PathTrie<String> trie = builder.build();
+
+        assertThat(trie.match("DELETE", "/user/7")).containsExactly("delete");
+        assertThat(trie.match("GET", "/user/7")).containsExactly("any");
+        assertThat(trie.match("POST", "/user/7")).containsExactly("any");
+        assertThat(trie.match("POST", "/user/7/roles")).containsExactly("post");
+        assertThat(trie.match("GET", "/user/7/roles")).isNull();
+        assertThat(trie.match("PUT", "/user/me")).containsExactly("put me");
+        assertThat(trie.match("GET", "/user/me")).containsExactly("any");
+    }
+
+    @Test
+    public void valuesOfOnePatternAreKeptTogether() {
+        PathTrie.Builder<String> builder = PathTrie.builder();
+        builder.add("/user/{id}", null, "USER_VIEW");
+        builder.add("/user/*", null, "USER_EDIT");
+
+        assertThat(builder.build().match("GET", "/user/7")).containsExactly("USER_VIEW", "USER_EDIT");
+    }
+
+    @Test
+    public void patternsTheTrieCannotExpressAreRejected() {
+        PathTrie.Builder<String> builder = PathTrie.builder();
+
+        assertThat(builder.add("/user/**/roles", null, "x")).isFalse();
+        assertThat(builder.add("/user/*.json", null, "x")).isFalse();
+        assertThat(builder.add("/user/?", null, "x")).isFalse();
+        assertThat(builder.add("/user/{id:\\d+}", null, "x")).isFalse();
+        assertThat(builder.build().size()).isZero();
+        assertThat(builder.build().match("GET", "/user/7/roles")).isNull();
+    }
+
+    private static PathTrie<String> trie(String... patterns) {
+        PathTrie.Builder<String> builder = PathTrie.builder();
+        for (String pattern : patterns) assertThat(builder.add(pattern, null, pattern)).as(pattern).isTrue();
+        return builder.build();
+    }
+}
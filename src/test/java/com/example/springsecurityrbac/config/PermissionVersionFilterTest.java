@@ -0,0 +1,195 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.TestContext;
+import com.example.springsecurityrbac.TestDatabase;
+import com.example.springsecurityrbac.dao.RbacChangeInterceptor;
+import com.example.springsecurityrbac.model.User;
+import com.example.springsecurityrbac.service.RbacAssignmentService;
+import com.example.springsecurityrbac.service.RbacVersionService;
+import com.example.springsecurityrbac.service.UnknownRoleException;
+import com.example.springsecurityrbac.service.VersionStamp;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import redis.embedded.RedisServer;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@code user1} logged in, role and permission changes committed through the bulk assignment
+ * service, versions kept in an embedded Redis server.
+ */
+public class PermissionVersionFilterTest {
+    private static RedisServer redis;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private AnnotationConfigApplicationContext context;
+    private RbacVersionService rbacVersionService;
+    private RbacAssignmentService assignmentService;
+    private UserDetailsService userDetailsService;
+    private PermissionVersionFilter filter;
+
+    @BeforeClass
+    public static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = RedisServer.builder().port(port).setting("bind 127.0.0.1").build();
+        redis.start();
+        connectionFactory = new LettuceConnectionFactory("127.0.0.1", port);
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterClass
+    public static void stopRedis() {
+        connectionFactory.destroy();
+        redis.stop();
+    }
+
+    @Before
+    public void setUp() {
+        new StringRedisTemplate(connectionFactory).execute((RedisCallback<Object>) connection -> {
+            connection.flushAll();
+            return null;
+        });
+        context = TestContext.start(TestDatabase.create(3, 2, 4, 1, 1), Collections.emptyMap(), Versions.class);
+        rbacVersionService = context.getBean(RbacVersionService.class);
+        assignmentService = context.getBean(RbacAssignmentService.class);
+        userDetailsService = mock(UserDetailsService.class);
+        when(userDetailsService.loadUserByUsername(anyString())).thenAnswer(invocation -> user(invocation.getArgument(0)));
+        filter = new PermissionVersionFilter(rbacVersionService, userDetailsService);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user("user1"), null, Collections.emptyList()));
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+        context.close();
+    }
+
+    @Test
+    public void unchangedVersionKeepsThePrincipal() throws Exception {
+        Authentication before = SecurityContextHolder.getContext().getAuthentication();
+
+        request();
+        request();
+
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isSameAs(before);
+    }
+
+    @Test
+    public void roleAssignedAfterLoginReloadsOnTheNextRequest() throws Exception {
+        request();
+
+        assignmentService.assignUsers(1001, Collections.singletonList(1001));
+        request();
+        request();
+
+        verify(userDetailsService, times(1)).loadUserByUsername("user1");
+        User reloaded = principal();
+        assertThat(reloaded.getUserVersion()).isEqualTo(1);
+        assertThat(reloaded.getRbacVersion()).isZero();
+    }
+
+    @Test
+    public void permissionGrantReloadsEveryUser() throws Exception {
+        assignmentService.assignPermissions(1002, Collections.singletonList(1004));
+        request();
+
+        verify(userDetailsService, times(1)).loadUserByUsername("user1");
+        assertThat(principal().getRbacVersion()).isEqualTo(1);
+        assertThat(rbacVersionService.current(1002)).isEqualTo(new VersionStamp(1, 0));
+    }
+
+    @Test
+    public void changeOfAnotherUserDoesNotReload() throws Exception {
+        assignmentService.assignUsers(1001, Collections.singletonList(1002));
+        request();
+
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    public void refusedChangeDoesNotReload() throws Exception {
+        assertThatThrownBy(() -> assignmentService.assignUsers(999999, Collections.singletonList(1001)))
+                .isInstanceOf(UnknownRoleException.class);
+        request();
+
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    private void request() throws IOException, ServletException {
+        filter.doFilter(new MockHttpServletRequest("GET", "/user"), new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    private static User principal() {
+        return (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    }
+
+    /**
+     * Stamped like {@code SecurityUserService} stamps a loaded user.
+     */
+    private User user(String username) {
+        User user = new User();
+        user.setId(1000 + Integer.parseInt(username.substring(4)));
+        user.setUsername(username);
+        user.setLocked(false);
+        VersionStamp stamp = rbacVersionService.current(user.getId());
+        user.setRbacVersion(stamp.getGlobal());
+        user.setUserVersion(stamp.getUser());
+        return user;
+    }
+
+    @Configuration
+    @Import({RbacAssignmentService.class, RbacChangeInterceptor.class, RbacVersionService.class})
+    static class Versions {
+        @Autowired
+        private SqlSessionFactory sqlSessionFactory;
+        @Autowired
+        private RbacChangeInterceptor rbacChangeInterceptor;
+
+        @PostConstruct
+        public void init() {
+            sqlSessionFactory.getConfiguration().addInterceptor(rbacChangeInterceptor);
+        }
+
+        @Bean
+        public StringRedisTemplate stringRedisTemplate() {
+            return new StringRedisTemplate(connectionFactory);
+        }
+    }
+}
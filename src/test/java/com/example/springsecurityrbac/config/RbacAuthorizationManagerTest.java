@@ -0,0 +1,43 @@
+package com.example.springsecurityrbac.config;
+
+import org.junit.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RbacAuthorizationManagerTest {
+    private final RequestMappingHandlerMapping handlerMapping = mock(RequestMappingHandlerMapping.class);
+    private final RbacAuthorizationManager manager = new RbacAuthorizationManager(null, handlerMapping);
+    private final Authentication user = new TestingAuthenticationToken("user1", "", "USER_VIEW");
+
+    @Test
+    public void inheritedHandlerMethodTakesTheAnnotationOfEachController() throws Exception {
+        assertThat(granted(new RequiresPermissionInterceptorTest.Users())).isTrue();
+        assertThat(granted(new RequiresPermissionInterceptorTest.Roles())).isFalse();
+        assertThat(granted(new RequiresPermissionInterceptorTest.Users())).isTrue();
+    }
+
+    @Test
+    public void handlerWithoutAnnotationIsOpen() throws Exception {
+        assertThat(granted(new RequiresPermissionInterceptorTest.Base())).isTrue();
+    }
+
+    private boolean granted(Object controller) throws NoSuchMethodException {
+        HandlerMethod handler = new HandlerMethod(controller, RequiresPermissionInterceptorTest.Base.class.getMethod("list"));
+        when(handlerMapping.getHandler(any())).thenReturn(Mono.just(handler));
+        AuthorizationContext context = new AuthorizationContext(MockServerWebExchange.from(MockServerHttpRequest.get("/list")));
+        AuthorizationDecision decision = manager.check(Mono.just(user), context).block();
+        return decision != null && decision.isGranted();
+    }
+}
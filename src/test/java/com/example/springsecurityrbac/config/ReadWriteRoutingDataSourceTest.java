@@ -0,0 +1,210 @@
+package com.example.springsecurityrbac.config;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.example.springsecurityrbac.TestContext;
+import com.example.springsecurityrbac.TestDatabase;
+import com.example.springsecurityrbac.dao.ReplicaRead;
+import com.example.springsecurityrbac.service.PermissionRegistry;
+import com.example.springsecurityrbac.service.RbacChangeEvent;
+import com.example.springsecurityrbac.service.RbacSnapshotService;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two H2 databases, each answering with its own name, behind the routing data source the
+ * way {@link DataSourceRoutingConfig} wires it.
+ */
+public class ReadWriteRoutingDataSourceTest {
+    private static final long READ_YOUR_WRITES_MILLIS = 1000;
+
+    private DruidDataSource replica;
+    private ReadWriteRoutingDataSource routing;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    public interface NodeDao {
+        String node();
+    }
+
+    @ReplicaRead
+    public interface ReplicaNodeDao extends NodeDao {
+    }
+
+    @Before
+    public void setUp() throws SQLException {
+        replica = replica("replica-0", database("replica"));
+        routing = routing(Collections.singletonMap(replica.getName(), replica));
+    }
+
+    @After
+    public void tearDown() {
+        routing.close();
+    }
+
+    @Test
+    public void readOnlyTransactionReadsTheReplica() {
+        assertThat(nodeIn(readOnly)).isEqualTo("replica");
+    }
+
+    @Test
+    public void readWriteTransactionReadsThePrimary() {
+        assertThat(nodeIn(readWrite)).isEqualTo("primary");
+        assertThat(node()).isEqualTo("primary");
+    }
+
+    @Test
+    public void replicaReadOutsideATransactionReadsTheReplica() {
+        assertThat(dao((ReplicaNodeDao) this::node).node()).isEqualTo("replica");
+        assertThat(dao(this::node).node()).isEqualTo("primary");
+        assertThat(readWrite.<String>execute(status -> dao((ReplicaNodeDao) this::node).node())).isEqualTo("primary");
+    }
+
+    @Test
+    public void readsStayOnThePrimaryForTheWindowAfterAWrite() throws InterruptedException {
+        routing.wrote();
+
+        assertThat(nodeIn(readOnly)).isEqualTo("primary");
+        assertThat(dao((ReplicaNodeDao) this::node).node()).isEqualTo("primary");
+
+        Thread.sleep(READ_YOUR_WRITES_MILLIS + 100);
+
+        assertThat(nodeIn(readOnly)).isEqualTo("replica");
+        assertThat(dao((ReplicaNodeDao) this::node).node()).isEqualTo("replica");
+    }
+
+    @Test
+    public void rbacChangeStartsTheWindow() {
+        routing.onRbacChange(new RbacChangeEvent(this));
+
+        assertThat(nodeIn(readOnly)).isEqualTo("primary");
+    }
+
+    @Test
+    public void snapshotRebuiltForAChangeReadsThePrimary() throws SQLException {
+        DataSource primary = TestDatabase.create(2, 2, 4, 1, 1);
+        DruidDataSource lagging = replica("replica-0", (JdbcDataSource) TestDatabase.create(2, 2, 4, 1, 1));
+        ReadWriteRoutingDataSource rbacRouting = new ReadWriteRoutingDataSource(primary,
+                Collections.singletonMap(lagging.getName(), lagging), false, READ_YOUR_WRITES_MILLIS);
+        rbacRouting.afterPropertiesSet();
+        try (AnnotationConfigApplicationContext context = TestContext.start(new LazyConnectionDataSourceProxy(rbacRouting),
+                Collections.singletonMap("rbac.snapshot.enabled", "true"), Snapshot.class)) {
+            RbacSnapshotService snapshot = context.getBean(RbacSnapshotService.class);
+            assertThat(snapshot.authoritiesOf(1001)).extracting(GrantedAuthority::getAuthority)
+                    .doesNotContain("PERMISSION_4");
+            new JdbcTemplate(primary).update("insert into role_permission(role_id, permission_id) values (1002, 1004)");
+            RbacChangeEvent event = new RbacChangeEvent(this);
+            event.table("role_permission");
+            event.allUsers();
+
+            context.publishEvent(event);
+
+            assertThat(snapshot.authoritiesOf(1001)).extracting(GrantedAuthority::getAuthority)
+                    .contains("PERMISSION_4");
+        }
+    }
+
+    @Test
+    public void replicasTakeTurns() throws SQLException {
+        Map<String, DruidDataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica);
+        DruidDataSource second = replica("replica-1", database("second"));
+        replicas.put(second.getName(), second);
+        routing = routing(replicas);
+
+        assertThat(nodeIn(readOnly)).isEqualTo("replica");
+        assertThat(nodeIn(readOnly)).isEqualTo("second");
+        assertThat(nodeIn(readOnly)).isEqualTo("replica");
+    }
+
+    @Test
+    public void unavailableReplicaFallsBackToThePrimary() throws SQLException {
+        replica.close();
+        DruidDataSource down = new DruidDataSource();
+        down.setName("replica-0");
+        down.setUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";IFEXISTS=TRUE");
+        down.setMaxWait(1000);
+        down.setConnectionErrorRetryAttempts(0);
+        down.setBreakAfterAcquireFailure(true);
+        replica = down;
+        routing = routing(Collections.singletonMap(down.getName(), down));
+
+        assertThat(nodeIn(readOnly)).isEqualTo("primary");
+    }
+
+    @Configuration
+    @Import({PermissionRegistry.class, RbacSnapshotService.class})
+    static class Snapshot {
+        @Bean
+        public ReadWriteRoutingDataSource routingDataSource(DataSource dataSource) {
+            return (ReadWriteRoutingDataSource) ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource();
+        }
+    }
+
+    private ReadWriteRoutingDataSource routing(Map<String, DruidDataSource> replicas) throws SQLException {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(database("primary"), replicas,
+                false, READ_YOUR_WRITES_MILLIS);
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+        return routing;
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private String nodeIn(TransactionTemplate transaction) {
+        return transaction.execute(status -> node());
+    }
+
+    private static NodeDao dao(NodeDao target) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.addAdvisor(new ReplicaReadInterceptor().advisor());
+        return (NodeDao) factory.getProxy();
+    }
+
+    private static JdbcDataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table node(name varchar(16))");
+        jdbcTemplate.update("insert into node values (?)", name);
+        return dataSource;
+    }
+
+    private static DruidDataSource replica(String name, JdbcDataSource database) throws SQLException {
+        DruidDataSource replica = new DruidDataSource();
+        replica.setName(name);
+        replica.setUrl(database.getURL());
+        replica.setUsername("sa");
+        replica.init();
+        return replica;
+    }
+}
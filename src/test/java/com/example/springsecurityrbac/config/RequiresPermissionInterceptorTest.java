@@ -0,0 +1,65 @@
+package com.example.springsecurityrbac.config;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RequiresPermissionInterceptorTest {
+    private final RequiresPermissionInterceptor interceptor = new RequiresPermissionInterceptor();
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void inheritedMethodTakesTheAnnotationOfEachClass() {
+        Base users = proxy(new Users());
+        Base roles = proxy(new Roles());
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user1", "", "USER_VIEW"));
+
+        assertThat(users.list()).isEqualTo("list");
+        assertThatThrownBy(roles::list).isInstanceOf(AccessDeniedException.class);
+        assertThat(users.list()).isEqualTo("list");
+    }
+
+    @Test
+    public void methodAnnotationWinsOverTheClass() {
+        Base users = proxy(new Users());
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user1", "", "USER_VIEW"));
+
+        assertThatThrownBy(users::delete).isInstanceOf(AccessDeniedException.class);
+    }
+
+    private Base proxy(Base target) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvisor(interceptor.advisor());
+        return (Base) factory.getProxy();
+    }
+
+    public static class Base {
+        public String list() {
+            return "list";
+        }
+
+        @RequiresPermission("USER_DELETE")
+        public String delete() {
+            return "delete";
+        }
+    }
+
+    @RequiresPermission("USER_VIEW")
+    public static class Users extends Base {
+    }
+
+    @RequiresPermission("ROLE_VIEW")
+    public static class Roles extends Base {
+    }
+}
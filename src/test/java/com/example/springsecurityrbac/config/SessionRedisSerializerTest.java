@@ -0,0 +1,133 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.TestContext;
+import com.example.springsecurityrbac.TestDatabase;
+import com.example.springsecurityrbac.model.User;
+import com.example.springsecurityrbac.service.PermissionAuthorities;
+import com.example.springsecurityrbac.service.PermissionRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A registry of the shipped permissions plus 40 generated ones.
+ */
+public class SessionRedisSerializerTest {
+    private static final int NEVER = -1;
+
+    private AnnotationConfigApplicationContext context;
+    private PermissionRegistry permissionRegistry;
+
+    @Before
+    public void setUp() {
+        context = TestContext.start(TestDatabase.create(0, 0, 40, 0, 0), Collections.emptyMap(), Registry.class);
+        permissionRegistry = context.getBean(PermissionRegistry.class);
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void securityContextRoundTripsWithoutThePassword() {
+        SessionRedisSerializer serializer = new SessionRedisSerializer(permissionRegistry, NEVER);
+        SecurityContext written = context(permissionRegistry.size());
+
+        byte[] bytes = serializer.serialize(written);
+        SecurityContext read = (SecurityContext) serializer.deserialize(bytes);
+
+        assertThat(bytes[0]).isEqualTo((byte) 'R');
+        User writtenUser = (User) written.getAuthentication().getPrincipal();
+        User user = (User) read.getAuthentication().getPrincipal();
+        assertThat(user.getId()).isEqualTo(1001);
+        assertThat(user.getUsername()).isEqualTo("user1");
+        assertThat(user.getLocked()).isFalse();
+        assertThat(user.getPassword()).isNull();
+        assertThat(user.getRbacVersion()).isEqualTo(7);
+        assertThat(user.getUserVersion()).isEqualTo(3);
+        assertThat(user.getAuthorities()).isInstanceOf(PermissionAuthorities.class).isEqualTo(writtenUser.getAuthorities());
+        assertThat(read.getAuthentication().isAuthenticated()).isTrue();
+        assertThat(read.getAuthentication().getAuthorities()).hasSize(permissionRegistry.size());
+    }
+
+    @Test
+    public void timestampsAndOtherValuesRoundTrip() {
+        SessionRedisSerializer serializer = new SessionRedisSerializer(permissionRegistry, 512);
+
+        assertThat(serializer.serialize(1528000000000L)).hasSize(10);
+        assertThat(serializer.deserialize(serializer.serialize(1528000000000L))).isEqualTo(1528000000000L);
+        assertThat(serializer.serialize(1800)).hasSize(6);
+        assertThat(serializer.deserialize(serializer.serialize(1800))).isEqualTo(1800);
+        assertThat(serializer.deserialize(serializer.serialize("attribute"))).isEqualTo("attribute");
+        assertThat(serializer.serialize(null)).isEmpty();
+        assertThat(serializer.deserialize(new byte[0])).isNull();
+    }
+
+    @Test
+    public void onlyBodiesAboveTheThresholdAreDeflated() {
+        String large = String.join("", Collections.nCopies(200, "permission "));
+        SessionRedisSerializer serializer = new SessionRedisSerializer(permissionRegistry, 512);
+        SessionRedisSerializer uncompressed = new SessionRedisSerializer(permissionRegistry, NEVER);
+
+        byte[] deflated = serializer.serialize(large);
+        byte[] plain = uncompressed.serialize(large);
+        byte[] small = serializer.serialize("attribute");
+
+        assertThat(deflated[1] & 0x80).isNotZero();
+        assertThat(deflated.length).isLessThan(plain.length / 4);
+        assertThat(plain[1] & 0x80).isZero();
+        assertThat(small[1] & 0x80).isZero();
+        assertThat(serializer.deserialize(deflated)).isEqualTo(large);
+        assertThat(serializer.deserialize(plain)).isEqualTo(large);
+
+        byte[] context = new SessionRedisSerializer(permissionRegistry, 16).serialize(context(permissionRegistry.size()));
+        assertThat(context[1] & 0x80).isNotZero();
+        assertThat(((SecurityContext) serializer.deserialize(context)).getAuthentication().getAuthorities())
+                .hasSize(permissionRegistry.size());
+    }
+
+    @Test
+    public void jdkSerializedSessionIsStillRead() {
+        SecurityContext written = context(2);
+        byte[] legacy = new JdkSerializationRedisSerializer().serialize(written);
+
+        Object read = new SessionRedisSerializer(permissionRegistry, 512).deserialize(legacy);
+
+        assertThat(legacy[0]).isEqualTo((byte) 0xAC);
+        assertThat(read).isInstanceOf(SecurityContext.class);
+        assertThat(((User) ((SecurityContext) read).getAuthentication().getPrincipal()).getUsername()).isEqualTo("user1");
+        assertThat(new SessionRedisSerializer(permissionRegistry, 512)
+                .deserialize(new JdkSerializationRedisSerializer().serialize(1528000000000L))).isEqualTo(1528000000000L);
+    }
+
+    private SecurityContext context(int permissions) {
+        PermissionAuthorities.Builder authorities = PermissionAuthorities.builder(permissionRegistry);
+        for (int i = 0; i < permissions; i++) authorities.add(i);
+        User user = new User();
+        user.setId(1001);
+        user.setUsername("user1");
+        user.setPassword("123456");
+        user.setLocked(false);
+        user.setRbacVersion(7);
+        user.setUserVersion(3);
+        user.setAuthorities(authorities.build());
+        return new SecurityContextImpl(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    @Configuration
+    @Import(PermissionRegistry.class)
+    static class Registry {
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.model.User;
+import com.example.springsecurityrbac.service.PermissionRegistry;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SignedTokenCodecTest {
+    private static final String KEY_1 = "1:" + secret('a');
+    private static final String KEY_2 = "2:" + secret('b');
+
+    private final PermissionRegistry permissionRegistry = new PermissionRegistry();
+
+    @Test
+    public void issuedTokenReadsBack() {
+        SignedTokenCodec codec = codec(KEY_1);
+        SignedTokenCodec.Token issued = codec.issue(user(), 60_000);
+
+        SignedTokenCodec.Token read = codec.read(issued.getValue());
+
+        assertThat(read).isNotNull();
+        assertThat(read.getId()).isEqualTo(issued.getId());
+        assertThat(read.getAuthenticatedAt()).isEqualTo(issued.getAuthenticatedAt());
+        assertThat(read.getExpiresAt()).isEqualTo(issued.getExpiresAt());
+        assertThat(read.getUser().getId()).isEqualTo(1001);
+        assertThat(read.getUser().getUsername()).isEqualTo("user1");
+    }
+
+    @Test
+    public void tamperedTokenIsRejected() {
+        SignedTokenCodec codec = codec(KEY_1);
+        byte[] bytes = Base64.getUrlDecoder().decode(codec.issue(user(), 60_000).getValue());
+
+        for (int i = 2; i < bytes.length; i++) {
+            byte[] tampered = bytes.clone();
+            tampered[i] ^= 1;
+            assertThat(codec.read(Base64.getUrlEncoder().withoutPadding().encodeToString(tampered))).as("byte %d", i).isNull();
+        }
+    }
+
+    @Test
+    public void malformedTokenIsRejected() {
+        SignedTokenCodec codec = codec(KEY_1);
+
+        assertThat(codec.read(null)).isNull();
+        assertThat(codec.read("")).isNull();
+        assertThat(codec.read("not base64!")).isNull();
+        assertThat(codec.read(codec.issue(user(), 60_000).getValue().substring(0, 20))).isNull();
+    }
+
+    @Test
+    public void unknownKeyIdIsRejected() {
+        String token = codec(KEY_2).issue(user(), 60_000).getValue();
+
+        assertThat(codec(KEY_1).read(token)).isNull();
+    }
+
+    @Test
+    public void expiredTokenIsRejected() {
+        SignedTokenCodec codec = codec(KEY_1);
+        long now = System.currentTimeMillis();
+
+        assertThat(codec.read(codec.issue(user(), 1, now - 60_000, now - 1000).getValue())).isNull();
+        assertThat(codec.read(codec.issue(user(), 1, now - 60_000, now + 60_000).getValue())).isNotNull();
+    }
+
+    @Test
+    public void renewalKeepsTheIdAndTheLoginTime() {
+        SignedTokenCodec codec = codec(KEY_1);
+        long login = System.currentTimeMillis() - 3_600_000;
+
+        SignedTokenCodec.Token read = codec.read(codec.issue(user(), 42, login, login + 7_200_000).getValue());
+
+        assertThat(read.getId()).isEqualTo(42);
+        assertThat(read.getAuthenticatedAt()).isEqualTo(login / 1000 * 1000);
+        assertThat(read.getIssuedAt()).isGreaterThan(read.getAuthenticatedAt());
+    }
+
+    @Test
+    public void keysRotate() {
+        String old = codec(KEY_1).issue(user(), 60_000).getValue();
+
+        SignedTokenCodec rolledOut = codec(KEY_1 + "," + KEY_2);
+        assertThat(rolledOut.read(old)).isNotNull();
+
+        SignedTokenCodec switched = codec(KEY_2 + "," + KEY_1);
+        String current = switched.issue(user(), 60_000).getValue();
+        assertThat(switched.read(old)).isNotNull();
+        assertThat(switched.read(current)).isNotNull();
+        assertThat(rolledOut.read(current)).isNotNull();
+        assertThat(codec(KEY_1).read(current)).isNull();
+
+        SignedTokenCodec retired = codec(KEY_2);
+        assertThat(retired.read(current)).isNotNull();
+        assertThat(retired.read(old)).isNull();
+    }
+
+    private SignedTokenCodec codec(String keys) {
+        return new SignedTokenCodec(keys, permissionRegistry);
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(1001);
+        user.setUsername("user1");
+        user.setLocked(false);
+        return user;
+    }
+
+    private static String secret(char fill) {
+        byte[] secret = new byte[32];
+        Arrays.fill(secret, (byte) fill);
+        return Base64.getEncoder().encodeToString(secret);
+    }
+}
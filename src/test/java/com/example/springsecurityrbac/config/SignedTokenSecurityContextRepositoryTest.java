@@ -0,0 +1,85 @@
+package com.example.springsecurityrbac.config;
+
+import com.example.springsecurityrbac.model.User;
+import com.example.springsecurityrbac.service.PermissionRegistry;
+import com.example.springsecurityrbac.service.TokenRevocationList;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+public class SignedTokenSecurityContextRepositoryTest {
+    private static final long TTL_SECONDS = 1800;
+    private static final long MAX_AGE_SECONDS = 43200;
+
+    private final SignedTokenCodec codec = new SignedTokenCodec("1:" + secret(), new PermissionRegistry());
+    private final SignedTokenSecurityContextRepository repository = new SignedTokenSecurityContextRepository(
+            codec, mock(TokenRevocationList.class), TTL_SECONDS, MAX_AGE_SECONDS, "RBAC_TOKEN");
+
+    @Test
+    public void tokenPastHalfItsLifetimeIsRenewedUnderTheSameLogin() {
+        long now = System.currentTimeMillis();
+        SignedTokenCodec.Token token = codec.issue(user(), 7, now - 3_600_000, now + 600_000);
+
+        SignedTokenCodec.Token renewed = codec.read(request(token.getValue()));
+
+        assertThat(renewed.getId()).isEqualTo(7);
+        assertThat(renewed.getAuthenticatedAt()).isEqualTo(token.getAuthenticatedAt());
+        assertThat(renewed.getExpiresAt()).isGreaterThan(now + 1_700_000);
+    }
+
+    @Test
+    public void renewalStopsAtTheMaxAge() {
+        long now = System.currentTimeMillis();
+        long login = now - MAX_AGE_SECONDS * 1000 + 600_000;
+        SignedTokenCodec.Token token = codec.issue(user(), 7, login, now + 300_000);
+
+        SignedTokenCodec.Token renewed = codec.read(request(token.getValue()));
+
+        assertThat(renewed.getExpiresAt()).isEqualTo((login + MAX_AGE_SECONDS * 1000) / 1000 * 1000);
+        assertThat(request(renewed.getValue())).isNull();
+    }
+
+    @Test
+    public void maxAgeShorterThanTheTtlIsRefused() {
+        assertThatThrownBy(() -> new SignedTokenSecurityContextRepository(
+                codec, mock(TokenRevocationList.class), TTL_SECONDS, TTL_SECONDS - 1, "RBAC_TOKEN"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * The token sent back for a request carrying {@code token}, {@code null} when none is.
+     */
+    private String request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HttpRequestResponseHolder holder = new HttpRequestResponseHolder(request, response);
+        SecurityContext context = repository.loadContext(holder);
+        assertThat(context.getAuthentication()).isNotNull();
+        repository.saveContext(context, holder.getRequest(), holder.getResponse());
+        return response.getHeader(SignedTokenSecurityContextRepository.HEADER);
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(1001);
+        user.setUsername("user1");
+        user.setLocked(false);
+        return user;
+    }
+
+    private static String secret() {
+        byte[] secret = new byte[32];
+        Arrays.fill(secret, (byte) 'a');
+        return Base64.getEncoder().encodeToString(secret);
+    }
+}
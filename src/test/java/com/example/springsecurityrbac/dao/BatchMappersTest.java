@@ -0,0 +1,67 @@
+package com.example.springsecurityrbac.dao;
+
+import com.example.springsecurityrbac.TestDatabase;
+import com.example.springsecurityrbac.model.UserRole;
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A session factory whose mapper beans have not been created yet, as seen by a service
+ * initialized before them.
+ */
+public class BatchMappersTest {
+    private DataSource dataSource;
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        dataSource = TestDatabase.create(3, 2, 0, 0, 0);
+        SqlSessionFactoryBean factory = new SqlSessionFactoryBean();
+        factory.setDataSource(dataSource);
+        sqlSessionFactory = factory.getObject();
+    }
+
+    @Test
+    public void unregisteredMapperIsAddedOnFirstUse() {
+        assertThatThrownBy(() -> new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH).getMapper(UserRoleMapper.class))
+                .isInstanceOf(BindingException.class);
+
+        BatchMappers batch = new BatchMappers(sqlSessionFactory);
+
+        assertThat(batch.get(UserRoleMapper.class)).isNotNull();
+        assertThat(batch.get(UserRoleMapper.class)).isNotNull();
+        assertThat(sqlSessionFactory.getConfiguration().hasMapper(UserRoleMapper.class)).isTrue();
+    }
+
+    @Test
+    public void insertsAreFlushedAtCommit() {
+        UserRoleMapper userRoleMapper = new BatchMappers(sqlSessionFactory).get(UserRoleMapper.class);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource)).execute(status -> {
+            for (int userId = 1001; userId <= 1003; userId++) {
+                UserRole record = new UserRole();
+                record.setUserId(userId);
+                record.setRoleId(1002);
+                userRoleMapper.insert(StatementTemplates.USER_ROLE_INSERT.bind(record));
+            }
+            return null;
+        });
+
+        assertThat(jdbcTemplate.queryForObject("select count(*) from user_role where role_id = 1002", Integer.class))
+                .isEqualTo(3);
+    }
+}
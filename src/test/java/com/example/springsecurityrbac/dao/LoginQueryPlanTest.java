@@ -0,0 +1,107 @@
+package com.example.springsecurityrbac.dao;
+
+import com.example.springsecurityrbac.TestDatabase;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plans of the login queries on H2 in MySQL mode, migrated with the application's scripts,
+ * and the migrations an existing database runs after it is baselined.
+ */
+public class LoginQueryPlanTest {
+    private static final Pattern CREATE_TABLE = Pattern.compile("CREATE TABLE `(\\w+)`");
+
+    private static DataSource dataSource;
+
+    @BeforeClass
+    public static void createDatabase() {
+        dataSource = TestDatabase.create(2000, 50, 100, 3, 10);
+    }
+
+    @Test
+    public void userByUsernameUsesTheUsernameIndex() throws SQLException {
+        String plan = explain(StatementTemplates.USER_BY_USERNAME, "user1");
+
+        assertThat(plan).contains("UK_USER_USERNAME").doesNotContain("tableScan");
+    }
+
+    @Test
+    public void permissionsByUserIdUseThePairIndexes() throws SQLException {
+        String plan = explain(StatementTemplates.PERMISSIONS_BY_USER_ID, 1001);
+
+        assertThat(plan).contains("UK_USER_ROLE_USER_ROLE", "UK_ROLE_PERMISSION_ROLE_PERMISSION")
+                .doesNotContain("tableScan");
+    }
+
+    /**
+     * Databases created from sql/rbac.sql are baselined at version 1, so V1 must not create
+     * anything the dump does not.
+     */
+    @Test
+    public void firstMigrationCreatesTheTablesOfTheDump() throws IOException {
+        assertThat(tables(new String(Files.readAllBytes(Paths.get("sql/rbac.sql")), StandardCharsets.UTF_8)))
+                .isEqualTo(tables(StreamUtils.copyToString(
+                        new ClassPathResource("db/migration/V1__rbac_schema.sql").getInputStream(), StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void baselinedDatabaseGetsTheLaterTables() throws SQLException {
+        JdbcDataSource existing = new JdbcDataSource();
+        existing.setURL("jdbc:h2:mem:baselined;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        existing.setUser("sa");
+        try (Connection connection = existing.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("runscript from 'classpath:db/migration/V1__rbac_schema.sql'");
+        }
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(existing);
+        flyway.setBaselineOnMigrate(true);
+        flyway.setBaselineVersionAsString("1");
+        flyway.migrate();
+
+        try (Connection connection = existing.getConnection(); Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select url_pattern from url_permission")) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getString(1)).isEqualTo("/user/**");
+        }
+    }
+
+    private static Set<String> tables(String script) {
+        Set<String> tables = new TreeSet<>();
+        Matcher matcher = CREATE_TABLE.matcher(script);
+        while (matcher.find()) tables.add(matcher.group(1));
+        return tables;
+    }
+
+    private static String explain(SelectStatementTemplate template, Object parameter) throws SQLException {
+        String sql = template.getSelectStatement().replaceAll("#\\{[^}]*}", "?");
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("explain " + sql)) {
+            ps.setObject(1, parameter);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+}
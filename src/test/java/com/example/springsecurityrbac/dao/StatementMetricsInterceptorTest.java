@@ -0,0 +1,97 @@
+package com.example.springsecurityrbac.dao;
+
+import com.example.springsecurityrbac.TestContext;
+import com.example.springsecurityrbac.TestDatabase;
+import com.example.springsecurityrbac.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StatementMetricsInterceptorTest {
+    private AnnotationConfigApplicationContext context;
+    private MeterRegistry meterRegistry;
+    private UserMapper userMapper;
+
+    @Before
+    public void setUp() {
+        context = TestContext.start(TestDatabase.create(5, 1, 1, 1, 1), Collections.emptyMap(), Metrics.class);
+        meterRegistry = context.getBean(MeterRegistry.class);
+        userMapper = context.getBean(UserMapper.class);
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void selectsAndUpdatesAreTimed() {
+        userMapper.selectByPrimaryKey(1001);
+        userMapper.selectByPrimaryKey(1002);
+        User user = userMapper.selectByPrimaryKey(1003);
+        user.setLocked(true);
+        userMapper.updateByPrimaryKey(user);
+
+        assertThat(timer("selectOne").count()).isEqualTo(3);
+        assertThat(timer("update").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void cursorQueriesAreTimed() {
+        AtomicInteger usernames = new AtomicInteger();
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).execute(status -> {
+            try (Cursor<User> cursor = userMapper.cursorOfUsernames().execute()) {
+                cursor.forEach(user -> usernames.incrementAndGet());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+
+        assertThat(usernames.get()).isEqualTo(6);
+        assertThat(timer("selectCursor").count()).isEqualTo(1);
+    }
+
+    private Timer timer(String method) {
+        return meterRegistry.get("mybatis.statement").tag("mapper", "UserMapper").tag("method", method).timer();
+    }
+
+    @Configuration
+    @Import(StatementMetricsInterceptor.class)
+    static class Metrics {
+        @Autowired
+        private SqlSessionFactory sqlSessionFactory;
+        @Autowired
+        private StatementMetricsInterceptor statementMetricsInterceptor;
+
+        @PostConstruct
+        public void init() {
+            sqlSessionFactory.getConfiguration().addInterceptor(statementMetricsInterceptor);
+        }
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.springsecurityrbac.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoginThrottleTest {
+    private static RedisServer redis;
+    private static LettuceConnectionFactory connectionFactory;
+
+    @BeforeClass
+    public static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = RedisServer.builder().port(port).setting("bind 127.0.0.1").build();
+        redis.start();
+        connectionFactory = new LettuceConnectionFactory("127.0.0.1", port);
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterClass
+    public static void stopRedis() {
+        connectionFactory.destroy();
+        redis.stop();
+    }
+
+    @Test
+    public void failuresFromOneAddressDoNotBlockAnother() {
+        assertBackoffIsPerAddress(throttle(false));
+    }
+
+    @Test
+    public void sharedFailuresFromOneAddressDoNotBlockAnother() {
+        assertBackoffIsPerAddress(throttle(true));
+    }
+
+    @Test
+    public void successResetsTheBackoffOfItsAddress() {
+        LoginThrottle throttle = throttle(false);
+        for (int i = 0; i < 3; i++) throttle.onFailure(failure("alice", "10.0.0.1"));
+        for (int i = 0; i < 3; i++) throttle.onFailure(failure("alice", "10.0.0.2"));
+
+        throttle.onSuccess(new AuthenticationSuccessEvent(authentication("alice", "10.0.0.1")));
+        for (int i = 0; i < 3; i++) throttle.onFailure(failure("alice", "10.0.0.1"));
+        throttle.onFailure(failure("alice", "10.0.0.2"));
+
+        assertThat(throttle.attempt("alice", "10.0.0.1")).isZero();
+        assertThat(throttle.attempt("alice", "10.0.0.2")).isPositive();
+    }
+
+    @Test
+    public void usernameWindowStillCapsAttemptsAcrossAddresses() {
+        LoginThrottle throttle = throttle(false);
+        for (int i = 0; i < 10; i++) assertThat(throttle.attempt("alice", "10.0.1." + i)).isZero();
+
+        assertThat(throttle.attempt("alice", "10.0.2.1")).isPositive();
+        assertThat(throttle.attempt("bob", "10.0.2.1")).isZero();
+    }
+
+    private static void assertBackoffIsPerAddress(LoginThrottle throttle) {
+        for (int i = 0; i < 5; i++) throttle.onFailure(failure("Alice", "10.0.0.1"));
+
+        assertThat(throttle.attempt("alice", "10.0.0.1")).isPositive();
+        assertThat(throttle.attempt("alice", "10.0.0.2")).isZero();
+    }
+
+    private static LoginThrottle throttle(boolean shared) {
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.flushAll();
+            return null;
+        });
+        LoginThrottle throttle = new LoginThrottle();
+        ReflectionTestUtils.setField(throttle, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(throttle, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(throttle, "windowSeconds", 60L);
+        ReflectionTestUtils.setField(throttle, "usernameLimit", 10);
+        ReflectionTestUtils.setField(throttle, "clientLimit", 100);
+        ReflectionTestUtils.setField(throttle, "freeFailures", 3);
+        ReflectionTestUtils.setField(throttle, "backoffBaseMillis", 1000L);
+        ReflectionTestUtils.setField(throttle, "backoffMaxSeconds", 900L);
+        ReflectionTestUtils.setField(throttle, "maximumSize", 1000L);
+        ReflectionTestUtils.setField(throttle, "shared", shared);
+        throttle.init();
+        return throttle;
+    }
+
+    private static AuthenticationFailureBadCredentialsEvent failure(String username, String address) {
+        return new AuthenticationFailureBadCredentialsEvent(authentication(username, address), new BadCredentialsException("bad"));
+    }
+
+    private static UsernamePasswordAuthenticationToken authentication(String username, String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(address);
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(username, "secret");
+        authentication.setDetails(new WebAuthenticationDetails(request));
+        return authentication;
+    }
+}
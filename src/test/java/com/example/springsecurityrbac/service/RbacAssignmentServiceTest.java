@@ -0,0 +1,107 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.TestContext;
+import com.example.springsecurityrbac.TestDatabase;
+import com.example.springsecurityrbac.dao.RbacChangeInterceptor;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RbacAssignmentServiceTest {
+    private static final int ROLE = 1001;
+    private static final List<Integer> USERS = Arrays.asList(1001, 1002, 1003, 1004, 1005);
+
+    private AnnotationConfigApplicationContext context;
+    private RbacAssignmentService service;
+    private List<RbacChangeEvent> events;
+
+    @Before
+    public void setUp() {
+        context = TestContext.start(TestDatabase.create(20, 5, 20, 0, 0),
+                Collections.singletonMap("rbac.assignment.batch-size", "2"), Assignment.class);
+        service = context.getBean(RbacAssignmentService.class);
+        events = context.getBean(Assignment.class).events;
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void chunkedGrantPublishesOneEvent() {
+        RbacAssignmentService.Result result = service.assignUsers(ROLE, USERS);
+
+        assertThat(result.getChunks()).isEqualTo(3);
+        assertThat(result.getChanged()).isEqualTo(5);
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).isAllUsers()).isFalse();
+        assertThat(events.get(0).getUserIds()).containsExactlyInAnyOrderElementsOf(USERS);
+    }
+
+    @Test
+    public void chunkedRevokeInvalidatesOnlyTheRevokedUsersOnce() {
+        service.assignUsers(ROLE, USERS);
+        events.clear();
+
+        RbacAssignmentService.Result result = service.revokeUsers(ROLE, Arrays.asList(1001, 1002, 1003, 1999));
+
+        assertThat(result.getChanged()).isEqualTo(3);
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).isAllUsers()).isFalse();
+        assertThat(events.get(0).getUserIds()).containsExactlyInAnyOrder(1001, 1002, 1003);
+    }
+
+    @Test
+    public void chunkedPermissionRevokeInvalidatesAllUsersOnce() {
+        service.assignPermissions(ROLE, Arrays.asList(1, 2, 1001, 1002, 1003));
+        events.clear();
+
+        service.revokePermissions(ROLE, Arrays.asList(1, 2, 1001, 1002, 1003));
+
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).isAllUsers()).isTrue();
+    }
+
+    @Test
+    public void unknownRoleIsRefusedBeforeAnyChange() {
+        assertThatThrownBy(() -> service.assignUsers(999999, USERS)).isInstanceOf(UnknownRoleException.class);
+        assertThat(events).isEmpty();
+    }
+
+    @Configuration
+    @Import({RbacAssignmentService.class, RbacChangeInterceptor.class})
+    static class Assignment {
+        final List<RbacChangeEvent> events = new CopyOnWriteArrayList<>();
+
+        @Autowired
+        private SqlSessionFactory sqlSessionFactory;
+        @Autowired
+        private RbacChangeInterceptor rbacChangeInterceptor;
+
+        @PostConstruct
+        public void init() {
+            sqlSessionFactory.getConfiguration().addInterceptor(rbacChangeInterceptor);
+        }
+
+        @EventListener
+        public void onRbacChange(RbacChangeEvent event) {
+            events.add(event);
+        }
+    }
+}
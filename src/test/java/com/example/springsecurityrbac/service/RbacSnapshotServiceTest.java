@@ -0,0 +1,74 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.TestContext;
+import com.example.springsecurityrbac.TestDatabase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RbacSnapshotServiceTest {
+    private final AtomicInteger connections = new AtomicInteger();
+    private AnnotationConfigApplicationContext context;
+
+    @Before
+    public void setUp() {
+        DelegatingDataSource dataSource = new DelegatingDataSource(TestDatabase.create(20, 5, 20, 2, 5)) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                connections.incrementAndGet();
+                return super.getConnection();
+            }
+        };
+        context = TestContext.start(dataSource, Collections.singletonMap("rbac.snapshot.enabled", "true"), Snapshot.class);
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void concurrentFirstCallsShareOneLoadInOneTransaction() throws Exception {
+        RbacSnapshotService service = context.getBean(RbacSnapshotService.class);
+        int before = connections.get();
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<PermissionAuthorities>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return service.authoritiesOf(1001);
+                }));
+            }
+            start.countDown();
+            for (Future<PermissionAuthorities> result : results) assertThat(result.get()).isNotNull();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(connections.get() - before).isEqualTo(1);
+    }
+
+    @Configuration
+    @Import({PermissionRegistry.class, RbacSnapshotService.class})
+    static class Snapshot {
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.TestContext;
+import com.example.springsecurityrbac.TestDatabase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Exports a populated database and imports the dump into a fresh one, in chunks smaller
+ * than every table.
+ */
+public class RbacTransferServiceTest {
+    private static final int ROLES = 8;
+
+    private AnnotationConfigApplicationContext source;
+    private AnnotationConfigApplicationContext target;
+
+    @Before
+    public void setUp() {
+        DataSource populated = TestDatabase.create(30, ROLES, 20, 2, 3);
+        TestDatabase.addRoleTree(populated, ROLES, 2);
+        source = start(populated);
+        target = start(TestDatabase.create(0, 0, 0, 0, 0));
+    }
+
+    @After
+    public void tearDown() {
+        source.close();
+        target.close();
+    }
+
+    @Test
+    public void importedDatabaseExportsTheSameDump() throws IOException {
+        byte[] dump = export(source);
+
+        RbacTransferService.Result result = transfer(target).importFrom(new ByteArrayInputStream(dump));
+
+        assertThat(result.getRows().get("user")).isEqualTo(30);
+        assertThat(result.getRows().get("role")).isEqualTo(ROLES);
+        assertThat(result.getRows().get("role_parent")).isEqualTo(ROLES - 1);
+        assertThat(new String(export(target), StandardCharsets.UTF_8)).isEqualTo(new String(dump, StandardCharsets.UTF_8));
+        assertThat(target.getBean(RoleHierarchyService.class).rebuild()).isZero();
+    }
+
+    @Test
+    public void dumpIsOneRecordPerLine() throws IOException {
+        String[] lines = new String(export(source), StandardCharsets.UTF_8).split("\n");
+
+        assertThat(lines).allSatisfy(line -> assertThat(line).matches("\\{\"[a-z_]+\":\\{.*}}"));
+        assertThat(lines).filteredOn(line -> line.startsWith("{\"user\":")).hasSize(31)
+                .noneMatch(line -> line.contains("permissions"));
+    }
+
+    @Test
+    public void repeatedImportSkipsExistingRows() throws IOException {
+        byte[] dump = export(source);
+        transfer(target).importFrom(new ByteArrayInputStream(dump));
+
+        RbacTransferService.Result again = transfer(target).importFrom(new ByteArrayInputStream(dump));
+
+        assertThat(again.getRows().values()).containsOnly(0L);
+        assertThat(again.getSkipped().get("user")).isEqualTo(31);
+    }
+
+    @Test
+    public void unknownRecordTypeIsRejected() {
+        byte[] dump = "{\"group\":{\"id\":1}}\n".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> transfer(target).importFrom(new ByteArrayInputStream(dump)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("unknown record type group");
+    }
+
+    private static AnnotationConfigApplicationContext start(DataSource dataSource) {
+        return TestContext.start(dataSource, Collections.singletonMap("rbac.transfer.batch-size", "7"), Transfer.class);
+    }
+
+    private static RbacTransferService transfer(AnnotationConfigApplicationContext context) {
+        return context.getBean(RbacTransferService.class);
+    }
+
+    private static byte[] export(AnnotationConfigApplicationContext context) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transfer(context).export(out);
+        return out.toByteArray();
+    }
+
+    @Configuration
+    @Import({RbacTransferService.class, RoleHierarchyService.class})
+    static class Transfer {
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.TestContext;
+import com.example.springsecurityrbac.TestDatabase;
+import com.example.springsecurityrbac.dao.RbacChangeInterceptor;
+import com.example.springsecurityrbac.dao.RoleMapper;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two services on one database, standing in for two nodes editing the hierarchy at once.
+ */
+public class RoleHierarchyServiceTest {
+    private static final int ROLES = 6;
+
+    private AnnotationConfigApplicationContext node1;
+    private AnnotationConfigApplicationContext node2;
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() throws SQLException {
+        DataSource dataSource = TestDatabase.create(10, ROLES, 10, 1, 2);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("set default_lock_timeout 10000");
+        }
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        node1 = TestContext.start(dataSource, Collections.emptyMap(), Hierarchy.class);
+        node2 = TestContext.start(dataSource, Collections.emptyMap(), Hierarchy.class);
+    }
+
+    @After
+    public void tearDown() {
+        node1.close();
+        node2.close();
+    }
+
+    @Test
+    public void concurrentEditsKeepTheClosureConsistent() throws Exception {
+        List<RoleHierarchyService> services = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            services.add((i % 2 == 0 ? node1 : node2).getBean(RoleHierarchyService.class));
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(services.size());
+        try {
+            List<Future<?>> edits = new ArrayList<>();
+            for (int i = 0; i < services.size(); i++) {
+                RoleHierarchyService service = services.get(i);
+                Random random = new Random(i);
+                edits.add(executor.submit(() -> {
+                    start.await();
+                    for (int n = 0; n < 200; n++) {
+                        int role = 1001 + random.nextInt(ROLES);
+                        int parent = 1001 + random.nextInt(ROLES);
+                        try {
+                            if (random.nextInt(3) == 0) {
+                                service.removeParent(role, parent);
+                            } else {
+                                service.addParent(role, parent);
+                            }
+                        } catch (IllegalStateException refusedCycle) {
+                            // the edge would close a cycle
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> edit : edits) edit.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(services.get(0).rebuild()).isZero();
+    }
+
+    @Test
+    public void deletedRoleLeavesNoEdgesOrPathsBehind() {
+        RoleHierarchyService service = node1.getBean(RoleHierarchyService.class);
+        service.addParent(1002, 1001);
+        service.addParent(1003, 1002);
+
+        node1.getBean(RoleMapper.class).deleteByPrimaryKey(1002);
+
+        assertThat(jdbcTemplate.queryForObject("select count(*) from role_closure where descendant_id = 1002 or ancestor_id = 1002",
+                Integer.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("select count(*) from role_parent where role_id = 1002 or parent_id = 1002",
+                Integer.class)).isZero();
+        assertThat(jdbcTemplate.queryForList("select ancestor_id from role_closure where descendant_id = 1003", Integer.class))
+                .containsExactly(1003);
+        assertThat(service.rebuild()).isZero();
+    }
+
+    @Configuration
+    @Import({RoleHierarchyService.class, RbacChangeInterceptor.class})
+    static class Hierarchy {
+        @Autowired
+        private SqlSessionFactory sqlSessionFactory;
+        @Autowired
+        private RbacChangeInterceptor rbacChangeInterceptor;
+
+        @PostConstruct
+        public void init() {
+            sqlSessionFactory.getConfiguration().addInterceptor(rbacChangeInterceptor);
+        }
+    }
+}
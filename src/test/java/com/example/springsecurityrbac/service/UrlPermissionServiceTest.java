@@ -0,0 +1,65 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.TestContext;
+import com.example.springsecurityrbac.TestDatabase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.access.ConfigAttribute;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The shipped {@code /user/**} rule plus patterns the trie cannot express, which are matched
+ * with {@link org.springframework.util.AntPathMatcher} when the trie finds nothing.
+ */
+public class UrlPermissionServiceTest {
+    private AnnotationConfigApplicationContext context;
+    private UrlPermissionService service;
+
+    @Before
+    public void setUp() {
+        DataSource dataSource = TestDatabase.create(0, 0, 0, 0, 0);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("insert into url_permission(url_pattern, http_method, permission_id) values ('/report/**/export', 'get', 2)");
+        jdbcTemplate.update("insert into url_permission(url_pattern, http_method, permission_id) values ('/user/*.json', null, 2)");
+        context = TestContext.start(dataSource, Collections.emptyMap(), Rules.class);
+        service = context.getBean(UrlPermissionService.class);
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void unsupportedPatternFallsBackToAntMatching() {
+        assertThat(service.attributesOf("GET", "/report/2018/05/export")).extracting(ConfigAttribute::getAttribute)
+                .containsExactly("USER_ADD");
+        assertThat(service.attributesOf("POST", "/report/2018/05/export")).isNull();
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/report/2018/export");
+        request.setServletPath("/report/2018/export");
+        assertThat(service.attributesOf(request)).extracting(ConfigAttribute::getAttribute).containsExactly("USER_ADD");
+    }
+
+    @Test
+    public void trieMatchIsNotOverriddenByTheFallback() {
+        assertThat(service.attributesOf("GET", "/user/7.json")).extracting(ConfigAttribute::getAttribute)
+                .containsExactly("USER_VIEW");
+        assertThat(service.attributesOf("GET", "/role/7")).isNull();
+    }
+
+    @Configuration
+    @Import({PermissionRegistry.class, UrlPermissionService.class})
+    static class Rules {
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.dao.UserMapper;
+import com.example.springsecurityrbac.model.User;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Two caches sharing an embedded Redis server, standing in for two nodes.
+ */
+public class UserDetailsCacheTest {
+    private static final String HASH = "{bcrypt}$2a$04$0123456789012345678901uabcdefghijklmnopqrstuvwxyzABCDE";
+
+    private static RedisServer redis;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private final List<RedisMessageListenerContainer> containers = new ArrayList<>();
+    private StringRedisTemplate redisTemplate;
+    private UserMapper userMapper;
+    private UserDetailsCache node1;
+    private UserDetailsCache node2;
+
+    @BeforeClass
+    public static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = RedisServer.builder().port(port).setting("bind 127.0.0.1").build();
+        redis.start();
+        connectionFactory = new LettuceConnectionFactory("127.0.0.1", port);
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterClass
+    public static void stopRedis() {
+        connectionFactory.destroy();
+        redis.stop();
+    }
+
+    @Before
+    public void setUp() throws InterruptedException {
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.flushAll();
+            return null;
+        });
+        userMapper = mock(UserMapper.class);
+        User stored = new User();
+        stored.setId(1001);
+        stored.setPassword(HASH);
+        when(userMapper.selectPasswordByPrimaryKey(1001)).thenReturn(stored);
+        node1 = node();
+        node2 = node();
+        awaitSubscribers(2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (RedisMessageListenerContainer container : containers) container.destroy();
+    }
+
+    @Test
+    public void redisHoldsNoPasswordHash() {
+        node1.putUserInCache(user(), node1.epoch());
+
+        byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.get("rbac:user:0:user1".getBytes(StandardCharsets.UTF_8)));
+        assertThat(value).isNotNull();
+        assertThat(new String(value, StandardCharsets.ISO_8859_1)).doesNotContain("$2a$");
+    }
+
+    @Test
+    public void otherNodeReadsRedisAndRestoresThePassword() {
+        node1.putUserInCache(user(), node1.epoch());
+
+        User cached = (User) node2.getUserFromCache("user1");
+
+        assertThat(cached).isNotNull();
+        assertThat(cached.getId()).isEqualTo(1001);
+        assertThat(cached.getPassword()).isEqualTo(HASH);
+        assertThat(node2.getStats().getRedisHits()).isEqualTo(1);
+        assertThat(node2.getUserFromCache("user1")).isSameAs(cached);
+        verify(userMapper).selectPasswordByPrimaryKey(1001);
+    }
+
+    @Test
+    public void deletedUserIsAMiss() {
+        node1.putUserInCache(user(), node1.epoch());
+        when(userMapper.selectPasswordByPrimaryKey(1001)).thenReturn(null);
+
+        assertThat(node2.getUserFromCache("user1")).isNull();
+    }
+
+    @Test
+    public void invalidationReachesTheOtherNode() throws Exception {
+        node1.putUserInCache(user(), node1.epoch());
+        assertThat(node2.getUserFromCache("user1")).isNotNull();
+        long invalidations = node2.getStats().getInvalidations();
+
+        node1.invalidateUsers(Collections.singletonList(1001));
+
+        awaitInvalidation(node2, invalidations);
+        assertThat(node1.getUserFromCache("user1")).isNull();
+        assertThat(node2.getUserFromCache("user1")).isNull();
+    }
+
+    @Test
+    public void invalidateAllStartsANewGeneration() throws Exception {
+        node1.putUserInCache(user(), node1.epoch());
+        assertThat(node2.getUserFromCache("user1")).isNotNull();
+        long invalidations = node2.getStats().getInvalidations();
+
+        node1.invalidateAll();
+
+        awaitInvalidation(node2, invalidations);
+        assertThat(node2.getUserFromCache("user1")).isNull();
+        assertThat(node().getUserFromCache("user1")).isNull();
+    }
+
+    @Test
+    public void loadOverlappingAnInvalidationIsNotCached() {
+        long loadedAt = node1.epoch();
+        node1.invalidateUsers(Collections.singletonList(1001));
+
+        node1.putUserInCache(user(), loadedAt);
+
+        assertThat(node1.getUserFromCache("user1")).isNull();
+        verify(userMapper, never()).selectPasswordByPrimaryKey(anyInt());
+    }
+
+    private UserDetailsCache node() {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.afterPropertiesSet();
+        container.start();
+        containers.add(container);
+        UserDetailsCache cache = new UserDetailsCache();
+        ReflectionTestUtils.setField(cache, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(cache, "userMapper", userMapper);
+        ReflectionTestUtils.setField(cache, "listenerContainer", container);
+        ReflectionTestUtils.setField(cache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(cache, "localTtl", 60L);
+        ReflectionTestUtils.setField(cache, "redisTtl", 60L);
+        cache.init();
+        return cache;
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(1001);
+        user.setUsername("user1");
+        user.setPassword(HASH);
+        user.setLocked(false);
+        return user;
+    }
+
+    /**
+     * Subscriptions are made asynchronously; a message nobody listens to yet would be lost.
+     */
+    private void awaitSubscribers(long count) throws InterruptedException {
+        byte[] channel = UserDetailsCache.CHANNEL.getBytes(StandardCharsets.UTF_8);
+        byte[] probe = "probe".getBytes(StandardCharsets.UTF_8);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            Long receivers = redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, probe));
+            if (receivers != null && receivers >= count) return;
+            Thread.sleep(10);
+        }
+        throw new AssertionError("listeners did not subscribe to " + UserDetailsCache.CHANNEL);
+    }
+
+    /**
+     * The count goes up once the local tier has been evicted, the epoch before.
+     */
+    private static void awaitInvalidation(UserDetailsCache cache, long invalidations) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.getStats().getInvalidations() == invalidations && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertThat(cache.getStats().getInvalidations()).isGreaterThan(invalidations);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.TestContext;
+import com.example.springsecurityrbac.TestDatabase;
+import com.example.springsecurityrbac.model.DataScope;
+import com.example.springsecurityrbac.model.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@code liubo} (user 1, role 1) in department 2 of 4, every other user in one role that
+ * grants {@code USER_VIEW} without restriction.
+ */
+public class UserQueryServiceTest {
+    private static final int USERS = 40;
+    private static final int DEPARTMENTS = 4;
+
+    private AnnotationConfigApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private UserQueryService userQueryService;
+    private DataScopeService dataScopeService;
+
+    @Before
+    public void setUp() {
+        DataSource dataSource = TestDatabase.create(USERS, 4, 10, 1, 2);
+        TestDatabase.assignDepartments(dataSource, DEPARTMENTS);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        context = TestContext.start(dataSource, Collections.emptyMap(), Scoped.class);
+        userQueryService = context.getBean(UserQueryService.class);
+        dataScopeService = context.getBean(DataScopeService.class);
+        User liubo = new User();
+        liubo.setId(1);
+        liubo.setUsername("liubo");
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(liubo, null));
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+        context.close();
+    }
+
+    @Test
+    public void unrestrictedGrantSeesEveryUser() {
+        assertThat(userQueryService.list(0, Integer.MAX_VALUE)).hasSize(USERS + 1);
+    }
+
+    @Test
+    public void departmentGrantSeesTheDepartment() {
+        scope(1, DataScope.DEPARTMENT);
+
+        List<UserQueryService.UserSummary> users = userQueryService.list(0, Integer.MAX_VALUE);
+
+        assertThat(users).hasSize((USERS + 1) / DEPARTMENTS + 1).extracting(UserQueryService.UserSummary::getDeptId).containsOnly(2);
+        assertThat(users).extracting(UserQueryService.UserSummary::getId).contains(1);
+    }
+
+    @Test
+    public void departmentGrantWithoutADepartmentSeesOnlyOwnRow() {
+        scope(1, DataScope.DEPARTMENT);
+        jdbcTemplate.update("update `user` set dept_id = null where id = 1");
+
+        assertThat(userQueryService.list(0, Integer.MAX_VALUE)).extracting(UserQueryService.UserSummary::getId).containsExactly(1);
+    }
+
+    @Test
+    public void ownGrantSeesOnlyOwnRow() {
+        scope(1, DataScope.OWN);
+
+        assertThat(userQueryService.list(0, Integer.MAX_VALUE)).extracting(UserQueryService.UserSummary::getId).containsExactly(1);
+    }
+
+    @Test
+    public void widestGrantOfSeveralRolesWins() {
+        scope(1, DataScope.OWN);
+        scope(1001, DataScope.DEPARTMENT);
+        jdbcTemplate.update("insert into user_role(user_id, role_id) values (1, 1001)");
+
+        assertThat(dataScopeService.grantOf(1, "USER_VIEW"))
+                .isEqualTo(new DataScopeService.Grant(DataScope.DEPARTMENT, 1, 2));
+    }
+
+    @Test
+    public void pagesFollowTheScope() {
+        scope(1, DataScope.DEPARTMENT);
+
+        List<UserQueryService.UserSummary> first = userQueryService.list(0, 3);
+        List<UserQueryService.UserSummary> second = userQueryService.list(first.get(2).getId(), 3);
+
+        assertThat(first).extracting(UserQueryService.UserSummary::getId).containsExactly(1, 1001, 1005);
+        assertThat(second).extracting(UserQueryService.UserSummary::getId).containsExactly(1009, 1013, 1017);
+    }
+
+    @Test
+    public void unrestrictedPagesAreLimitedInTheQuery() {
+        assertThat(userQueryService.list(0, 3)).extracting(UserQueryService.UserSummary::getId).containsExactly(1, 1001, 1002);
+        assertThat(userQueryService.list(1038, 3)).extracting(UserQueryService.UserSummary::getId).containsExactly(1039, 1040);
+        assertThat(userQueryService.list(0, 0)).isEmpty();
+    }
+
+    @Test
+    public void noGrantIsDenied() {
+        jdbcTemplate.update("delete from role_permission where role_id = 1 and permission_id = 1");
+
+        assertThatThrownBy(() -> userQueryService.list(0, 10)).isInstanceOf(AccessDeniedException.class);
+    }
+
+    private void scope(int roleId, DataScope scope) {
+        jdbcTemplate.update("update role_permission set data_scope = ? where role_id = ? and permission_id = 1",
+                scope.ordinal() + 1, roleId);
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    @Import({DataScopeService.class, UserQueryService.class})
+    static class Scoped {
+    }
+}
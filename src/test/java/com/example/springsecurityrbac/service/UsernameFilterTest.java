@@ -0,0 +1,101 @@
+package com.example.springsecurityrbac.service;
+
+import com.example.springsecurityrbac.TestContext;
+import com.example.springsecurityrbac.TestDatabase;
+import com.example.springsecurityrbac.dao.UserMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The folding has to be at least as coarse as both default collations of the
+ * {@code user.username} column: {@code utf8mb4_general_ci} (MySQL 5.7, pad space, the sharp s
+ * equal to {@code s}) and {@code utf8mb4_0900_ai_ci} (MySQL 8.0, no pad, the sharp s equal to
+ * {@code ss}). The filter must never turn away a name either of them would resolve.
+ */
+public class UsernameFilterTest {
+    private AnnotationConfigApplicationContext context;
+    private DataSource dataSource;
+    private UsernameFilter filter;
+
+    @Before
+    public void setUp() {
+        dataSource = TestDatabase.create(20, 1, 1, 0, 0);
+        context = TestContext.start(dataSource, Collections.emptyMap());
+        new JdbcTemplate(dataSource).update("update `user` set username = 'Jos\u00e9' where id = 1001");
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.getStringSerializer()).thenReturn(new StringRedisSerializer());
+        filter = new UsernameFilter();
+        ReflectionTestUtils.setField(filter, "userMapper", context.getBean(UserMapper.class));
+        ReflectionTestUtils.setField(filter, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(filter, "expectedUsers", 1000L);
+        ReflectionTestUtils.setField(filter, "falsePositiveRate", 0.01);
+        TransactionTemplate readTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readTransaction.setReadOnly(true);
+        ReflectionTestUtils.setField(filter, "readTransaction", readTransaction);
+        ReflectionTestUtils.setField(filter, "absent", new SimpleMeterRegistry().counter("absent"));
+        filter.rebuild();
+    }
+
+    @After
+    public void tearDown() {
+        filter.destroy();
+        context.close();
+    }
+
+    @Test
+    public void foldsCaseAccentsAndTrailingBlanks() {
+        assertThat(UsernameFilter.normalize("JOS\u00c9 ")).isEqualTo(UsernameFilter.normalize("jose"));
+        assertThat(UsernameFilter.normalize("Jose\u0301")).isEqualTo(UsernameFilter.normalize("jose"));
+        assertThat(UsernameFilter.normalize("\uff2a\uff4f\uff53\uff45")).isEqualTo(UsernameFilter.normalize("jose"));
+        assertThat(UsernameFilter.normalize(" jose")).isNotEqualTo(UsernameFilter.normalize("jose"));
+    }
+
+    @Test
+    public void foldsLettersWithoutADecomposition() {
+        assertThat(UsernameFilter.normalize("stra\u00dfe"))
+                .isEqualTo(UsernameFilter.normalize("strasse"))
+                .isEqualTo(UsernameFilter.normalize("strase"));
+        assertThat(UsernameFilter.normalize("\u00c6r\u00f8")).isEqualTo(UsernameFilter.normalize("aero"));
+        assertThat(UsernameFilter.normalize("\u0141ukasz")).isEqualTo(UsernameFilter.normalize("lukasz"));
+    }
+
+    @Test
+    public void anySpellingTheDatabaseResolvesMayExist() {
+        assertThat(filter.mightExist("jose")).isTrue();
+        assertThat(filter.mightExist("JOS\u00c9  ")).isTrue();
+        assertThat(filter.mightExist("USER2")).isTrue();
+        assertThat(filter.mightExist("nobody")).isFalse();
+    }
+
+    @Test
+    public void userInsertedAroundTheMappersMayExistOnceARebuildIsRequested() throws InterruptedException {
+        new JdbcTemplate(dataSource).update("insert into `user`(id, username, password, locked) values (5000, 'manual', 'x', 0)");
+        assertThat(filter.mightExist("manual")).isFalse();
+
+        filter.onMessage(new DefaultMessage(UsernameFilter.CHANNEL.getBytes(StandardCharsets.UTF_8), new byte[0]), null);
+
+        assertThat(filter.mightExist("manual")).isTrue();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (filter.mightExist("nobody") && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertThat(filter.mightExist("nobody")).isFalse();
+        assertThat(filter.mightExist("manual")).isTrue();
+    }
+}